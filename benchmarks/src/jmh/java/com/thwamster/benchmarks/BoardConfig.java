@@ -0,0 +1,32 @@
+package com.thwamster.benchmarks;
+
+import com.thwamster.engine.MinesweeperEngine;
+
+import java.util.Random;
+
+/*
+ * Board sizes shared by the benchmarks, written rows x cols x bombs.
+ * The first three match GameBoard.setDifficulty, the rest are large custom boards.
+ */
+public final class BoardConfig {
+    public static final String BEGINNER = "8x8x10";
+    public static final String INTERMEDIATE = "16x16x40";
+    public static final String EXPERT = "16x30x99";
+    public static final String LARGE = "100x100x2000";
+    public static final String HUGE = "1000x1000x150000";
+
+    public static final long SEED = 20250101L; // every run sees the same boards
+
+    private BoardConfig() { }
+
+    // Builds an engine for a "RxCxB" config with a seeded random source
+    public static MinesweeperEngine engine(String config) {
+        String[] parts = config.split("x");
+        return new MinesweeperEngine(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), new Random(SEED));
+    }
+
+    // The middle cell, used as the first click
+    public static int center(MinesweeperEngine engine) {
+        return engine.index(engine.getNumRows() / 2, engine.getNumCols() / 2);
+    }
+}
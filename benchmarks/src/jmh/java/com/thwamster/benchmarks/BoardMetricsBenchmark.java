@@ -0,0 +1,35 @@
+package com.thwamster.benchmarks;
+
+import com.thwamster.engine.BoardMetrics;
+import com.thwamster.engine.MinesweeperEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/*
+ * Measuring a freshly laid board, which the game does once per first click and the simulator once per game.
+ * The same board is measured every time, so only the two sweeps are timed and nothing should be allocated.
+ */
+@State(Scope.Thread)
+public class BoardMetricsBenchmark {
+    @Param({BoardConfig.BEGINNER, BoardConfig.INTERMEDIATE, BoardConfig.EXPERT, BoardConfig.LARGE, BoardConfig.HUGE})
+    public String config;
+
+    private MinesweeperEngine engine;
+    private final BoardMetrics metrics = new BoardMetrics();
+
+    @Setup
+    public void setup() {
+        this.engine = BoardConfig.engine(this.config);
+        this.engine.start(BoardConfig.center(this.engine));
+        this.metrics.measure(this.engine.getBoard());
+    }
+
+    @Benchmark
+    public int measure() {
+        this.metrics.measure(this.engine.getBoard());
+        return this.metrics.getThreeBV() + this.metrics.getNumIslands();
+    }
+}
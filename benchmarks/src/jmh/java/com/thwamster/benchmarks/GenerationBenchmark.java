@@ -0,0 +1,44 @@
+package com.thwamster.benchmarks;
+
+import com.thwamster.engine.BombPlacer;
+import com.thwamster.engine.MinesweeperEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/*
+ * Board generation on the first click: bomb placement alone, and placement plus numbering through start.
+ * Numbering on its own is the difference between the two.
+ */
+@State(Scope.Thread)
+public class GenerationBenchmark {
+    @Param({BoardConfig.BEGINNER, BoardConfig.INTERMEDIATE, BoardConfig.EXPERT, BoardConfig.LARGE, BoardConfig.HUGE})
+    public String config;
+
+    private MinesweeperEngine engine;
+    private BombPlacer placer;
+    private int center;
+
+    @Setup
+    public void setup() {
+        this.engine = BoardConfig.engine(this.config);
+        this.placer = new BombPlacer(new Random(BoardConfig.SEED));
+        this.center = BoardConfig.center(this.engine);
+    }
+
+    @Benchmark
+    public int[] placeBombs() {
+        return this.placer.place(this.engine.getNumCells(), this.engine.getNumBombs(), this.center);
+    }
+
+    @Benchmark
+    public MinesweeperEngine placeAndNumber() {
+        this.engine.reset();
+        this.engine.start(this.center);
+        return this.engine;
+    }
+}
@@ -0,0 +1,63 @@
+package com.thwamster.benchmarks;
+
+import com.thwamster.engine.TimeFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/*
+ * The text the screen writes every frame: the flag count, the clock and a full scoreboard of 24 times.
+ * reusedBuilders is how the screen does it and should report a gc.alloc.rate.norm of zero, newStrings is the
+ * concatenation and String.format it replaced.
+ */
+@State(Scope.Thread)
+public class HudTextBenchmark {
+    private static final int NUM_LINES = 26;
+
+    private final StringBuilder[] lines = new StringBuilder[NUM_LINES];
+    private final long[] scores = new long[NUM_LINES - 2];
+    private long elapsed;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < NUM_LINES; i++) {
+            this.lines[i] = new StringBuilder(64);
+        }
+        for (int i = 0; i < this.scores.length; i++) {
+            this.scores[i] = 40_000 + i * 7_919L;
+        }
+    }
+
+    @Benchmark
+    public int reusedBuilders() {
+        this.elapsed += 16;
+        this.lines[0].setLength(0);
+        this.lines[0].append("Flags Remaining: ").append(99 - (int) (this.elapsed & 15));
+        this.lines[1].setLength(0);
+        TimeFormat.appendClock(this.lines[1].append("Time Elapsed:  "), this.elapsed);
+        for (int i = 0; i < this.scores.length; i++) {
+            StringBuilder line = this.lines[i + 2];
+            line.setLength(0);
+            TimeFormat.appendClock(line.append(i + 1).append(". "), this.scores[i]);
+        }
+        return this.lines[1].length();
+    }
+
+    @Benchmark
+    public int newStrings() {
+        this.elapsed += 16;
+        int total = ("Flags Remaining: " + (99 - (int) (this.elapsed & 15))).length();
+        total += ("Time Elapsed:  " + format(this.elapsed)).length();
+        for (int i = 0; i < this.scores.length; i++) {
+            total += ((i + 1) + ". " + format(this.scores[i])).length();
+        }
+        return total;
+    }
+
+    private static String format(Long time) {
+        int minutes = (int) (time / (60 * 1000));
+        int seconds = (int) ((time / 1000) % 60);
+        return String.format("%d:%02d", minutes, seconds);
+    }
+}
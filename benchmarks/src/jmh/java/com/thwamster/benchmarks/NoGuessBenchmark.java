@@ -0,0 +1,59 @@
+package com.thwamster.benchmarks;
+
+import com.thwamster.engine.BoardPool;
+import com.thwamster.engine.MinesweeperEngine;
+import com.thwamster.engine.NoGuessGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+
+/*
+ * No-guess starts: generating a layout on the spot against taking one from a pool kept full in the background.
+ * The gap between the two is the first-click latency the pool saves.
+ */
+@State(Scope.Thread)
+public class NoGuessBenchmark {
+    @Param({BoardConfig.BEGINNER, BoardConfig.INTERMEDIATE, BoardConfig.EXPERT})
+    public String config;
+
+    private MinesweeperEngine engine;
+    private NoGuessGenerator generator;
+    private BoardPool pool;
+    private int center;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        this.engine = BoardConfig.engine(this.config);
+        this.generator = new NoGuessGenerator(this.engine.getNumRows(), this.engine.getNumCols(), this.engine.getNumBombs(), new Random(BoardConfig.SEED));
+        this.center = BoardConfig.center(this.engine);
+
+        // one slot per region is plenty, the benchmark only ever takes from the middle
+        this.pool = new BoardPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), 1);
+        this.pool.prepare(this.engine.getNumRows(), this.engine.getNumCols(), this.engine.getNumBombs());
+        while (this.pool.getNumReady(this.engine.getNumRows(), this.engine.getNumCols(), this.engine.getNumBombs()) < this.generator.getNumRegions()) {
+            Thread.sleep(10);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.pool.shutdown();
+    }
+
+    @Benchmark
+    public int[] generate() {
+        return this.generator.generate(this.generator.regionOf(this.center), BoardPool.MAX_ATTEMPTS);
+    }
+
+    // Measures the pool as the first click sees it, including the refill request. An empty slot returns null.
+    @Benchmark
+    public int[] take() {
+        return this.pool.take(this.engine.getNumRows(), this.engine.getNumCols(), this.engine.getNumBombs(), this.center);
+    }
+}
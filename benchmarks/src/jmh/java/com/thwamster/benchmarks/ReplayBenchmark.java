@@ -0,0 +1,67 @@
+package com.thwamster.benchmarks;
+
+import com.thwamster.engine.GameJournal;
+import com.thwamster.engine.MinesweeperEngine;
+import com.thwamster.engine.Replay;
+import com.thwamster.engine.ReplayVerifier;
+import com.thwamster.engine.Solver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/*
+ * Replaying a won game: checking it from scratch as the scoreboard does, and seeking to a random action
+ * once the keyframes are in place.
+ */
+@State(Scope.Thread)
+public class ReplayBenchmark {
+    @Param({BoardConfig.BEGINNER, BoardConfig.INTERMEDIATE, BoardConfig.EXPERT})
+    public String config;
+
+    private GameJournal journal;
+    private ReplayVerifier verifier;
+    private Replay replay;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        MinesweeperEngine engine = BoardConfig.engine(this.config);
+        Solver solver = new Solver(engine);
+        int center = BoardConfig.center(engine);
+
+        // the solver plays, one click every 200 ms, until it wins a game
+        do {
+            engine.reset();
+            this.journal = new GameJournal(engine.getNumRows(), engine.getNumCols(), engine.getNumBombs());
+            engine.start(center);
+            this.journal.setSeed(engine.getGameSeed());
+            long time = 0;
+            for (int cell = center; cell >= 0 && !engine.isOver(); cell = solver.hint()) {
+                engine.reveal(cell);
+                this.journal.record(GameJournal.REVEAL, cell, time);
+                time += 200;
+            }
+        } while (engine.getGameStatus() != MinesweeperEngine.WON);
+
+        this.verifier = new ReplayVerifier();
+        this.replay = new Replay(this.journal, 8);
+        this.replay.seek(this.journal.getNumActions()); // passes every keyframe once
+        this.random = new Random(BoardConfig.SEED);
+    }
+
+    @Benchmark
+    public int verify() {
+        return this.verifier.verify(this.journal, this.journal.getLastTime());
+    }
+
+    @Benchmark
+    public int seek() {
+        this.replay.seek(this.random.nextInt(this.journal.getNumActions() + 1));
+        return this.replay.getEngine().getNumRevealed();
+    }
+}
@@ -0,0 +1,53 @@
+package com.thwamster.benchmarks;
+
+import com.thwamster.engine.BoardStorage;
+import com.thwamster.engine.MinesweeperEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/*
+ * The reveal path: the flood fill behind the first click, and clearing a whole board cell by cell.
+ * Every invocation gets a freshly generated board, so generation is kept out of the measurement.
+ */
+@State(Scope.Thread)
+public class RevealBenchmark {
+    @Param({BoardConfig.BEGINNER, BoardConfig.INTERMEDIATE, BoardConfig.EXPERT, BoardConfig.LARGE, BoardConfig.HUGE})
+    public String config;
+
+    private MinesweeperEngine engine;
+    private int center;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        this.engine = BoardConfig.engine(this.config);
+        this.center = BoardConfig.center(this.engine);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        this.engine.reset();
+        this.engine.start(this.center);
+    }
+
+    @Benchmark
+    public int firstClick() {
+        return this.engine.reveal(this.center);
+    }
+
+    @Benchmark
+    public int clearBoard() {
+        BoardStorage board = this.engine.getBoard();
+        int revealed = 0;
+        for (int i = 0; i < board.getNumCells(); i++) {
+            if (!board.isMine(i)) {
+                revealed += this.engine.reveal(i);
+            }
+        }
+        return revealed;
+    }
+
+}
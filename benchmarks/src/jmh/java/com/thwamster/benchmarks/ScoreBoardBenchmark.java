@@ -0,0 +1,59 @@
+package com.thwamster.benchmarks;
+
+import com.thwamster.engine.ScoreStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/*
+ * The scoreboard: loading a score log from disk, which happens once per board size,
+ * and reading the fastest times, which happens every frame.
+ */
+@State(Scope.Thread)
+public class ScoreBoardBenchmark {
+    @Param({"100", "10000", "100000"})
+    public int numScores;
+
+    private Path directory;
+    private ScoreStore store;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.directory = Files.createTempDirectory("scores");
+        this.store = new ScoreStore(this.directory.resolve("scores.bin"), 24);
+
+        Random random = new Random(BoardConfig.SEED);
+        for (int i = 0; i < this.numScores; i++) {
+            this.store.add(10_000 + random.nextInt(600_000));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.store.getPath());
+        Files.deleteIfExists(this.directory);
+    }
+
+    @Benchmark
+    public int load() throws IOException {
+        return this.store.load(null);
+    }
+
+    @Benchmark
+    public long readTop() {
+        long total = 0;
+        for (int i = 0; i < this.store.getNumTop(); i++) {
+            total += this.store.getTop(i);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,43 @@
+package com.thwamster.benchmarks;
+
+import com.thwamster.engine.ScoreSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/*
+ * The score summary: adding a win, which happens once per game, and asking how a time ranks, which the victory
+ * screen does every frame. Ranking is a binary search over the sketch, so it should not grow with the wins.
+ */
+@State(Scope.Thread)
+public class ScoreSummaryBenchmark {
+    @Param({"100", "100000", "10000000"})
+    public int numScores;
+
+    private ScoreSummary summary;
+    private Random random;
+
+    @Setup
+    public void setup() {
+        this.summary = new ScoreSummary(16, 30, 99);
+        this.random = new Random(BoardConfig.SEED);
+        for (int i = 0; i < this.numScores; i++) {
+            this.summary.add(10_000 + this.random.nextInt(600_000), i);
+        }
+    }
+
+    @Benchmark
+    public long add() {
+        this.summary.add(10_000 + this.random.nextInt(600_000), 0);
+        return this.summary.getCount();
+    }
+
+    @Benchmark
+    public double rank() {
+        return this.summary.fractionSlower(10_000 + this.random.nextInt(600_000)) + this.summary.placeOf(60_000);
+    }
+}
@@ -0,0 +1,30 @@
+package com.thwamster.benchmarks;
+
+import com.thwamster.engine.MinesweeperEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/*
+ * The status check the screen makes before every frame. It reads counters, so it should not grow with the board.
+ */
+@State(Scope.Thread)
+public class StatusBenchmark {
+    @Param({BoardConfig.BEGINNER, BoardConfig.EXPERT, BoardConfig.HUGE})
+    public String config;
+
+    private MinesweeperEngine engine;
+
+    @Setup
+    public void setup() {
+        this.engine = BoardConfig.engine(this.config);
+        this.engine.reveal(BoardConfig.center(this.engine));
+    }
+
+    @Benchmark
+    public int gameStatus() {
+        return this.engine.getGameStatus() + this.engine.getNumRevealed() + this.engine.getNumFlags();
+    }
+}
@@ -0,0 +1,72 @@
+package com.thwamster.benchmarks;
+
+import com.thwamster.engine.BombPlacer;
+import com.thwamster.engine.FlatBoardStorage;
+import com.thwamster.engine.StripeGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * Laying and numbering a board past StripeGenerator.MIN_CELLS, one stripe per task on pools of different sizes,
+ * against BombPlacer and a whole-board numbering sweep on one thread. Every thread count gives the same board.
+ */
+@State(Scope.Thread)
+public class StripeGeneratorBenchmark {
+    @Param({"4096x4096x3355443", "10000x10000x20000000"})
+    public String config;
+
+    @Param({"1", "2", "4", "8"})
+    public int numThreads;
+
+    private int numRows;
+    private int numCols;
+    private int numBombs;
+    private FlatBoardStorage board;
+    private ForkJoinPool pool;
+    private StripeGenerator generator;
+    private long seed = BoardConfig.SEED;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        String[] parts = this.config.split("x");
+        this.numRows = Integer.parseInt(parts[0]);
+        this.numCols = Integer.parseInt(parts[1]);
+        this.numBombs = Integer.parseInt(parts[2]);
+        this.board = new FlatBoardStorage(this.numRows, this.numCols);
+        this.pool = new ForkJoinPool(this.numThreads);
+        this.generator = new StripeGenerator(this.pool);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        this.board.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.pool.shutdown();
+    }
+
+    @Benchmark
+    public int[] striped() {
+        return this.generator.generate(this.board, this.numBombs, 0, this.seed++);
+    }
+
+    @Benchmark
+    public int[] serial() {
+        int[] bombs = new BombPlacer(new Random(this.seed++)).place(this.board.getNumCells(), this.numBombs, 0);
+        for (int bomb : bombs) {
+            this.board.setMine(bomb);
+        }
+        this.board.numberAll();
+        return bombs;
+    }
+}
@@ -0,0 +1,230 @@
+package com.thwamster.engine;
+
+/*
+ * Measures a numbered board: its 3BV, its openings and its islands.
+ * An opening is a connected patch of zeros together with the numbers around it, which one click uncovers as
+ * the engine's reveal spreads. A safe number that no opening reaches has to be clicked on its own, and an island
+ * is a connected group of those. 3BV, the fewest left clicks that clear the board, is the openings plus those
+ * isolated numbers.
+ *
+ * Each sweep down the board meets every cell with its neighbors already passed, on its left and in the row
+ * above, so every pair of neighbors meets once. The first joins zeros to zeros with a union-find over flat
+ * indices and marks the numbers next to a zero. The second joins the isolated numbers into islands and adds
+ * every zero and every number bordering an opening to the size of each opening it touches. Both sweeps are
+ * linear and buffers are kept between boards, so measuring allocates nothing once they fit. Use one per thread.
+ */
+public class BoardMetrics {
+    /* Cell Kinds */
+    private static final byte MINE = 0;
+    private static final byte ZERO = 1;
+    private static final byte BORDER = 2; // a number that some opening reaches
+    private static final byte ISOLATED = 3; // a number that no opening reaches
+
+    /* Packing */
+    private static final int THREE_BV_BITS = 20;
+    private static final int COUNT_BITS = 14; // openings and islands
+
+    /* Instance Variables */
+    private byte[] kind = new byte[0];
+    private int[] parent = new int[0]; // union-find forest, the root of a set is its first cell
+    private int[] size = new int[0]; // cells an opening uncovers, at its root
+    private int[] openings = new int[0]; // the root of each opening in board order, then its size
+    private final int[] roots = new int[8]; // openings around one number
+
+    private int numOpenings;
+    private int numIsolated;
+    private int numIslands;
+    private int largestOpening;
+    private int numCells;
+
+    /* Helper Methods */
+    public int getNumCells() { return this.numCells; }
+    public int getNumOpenings() { return this.numOpenings; }
+    public int getOpeningSize(int opening) { return this.openings[opening]; }
+    public int getLargestOpening() { return this.largestOpening; }
+    public int getNumIsolated() { return this.numIsolated; }
+    public int getNumIslands() { return this.numIslands; }
+    public int getThreeBV() { return this.numOpenings + this.numIsolated; }
+
+    // Without flags or chords there is no way below 3BV. Chording can beat it, but finding by how much takes
+    // a search rather than a sweep.
+    public int getMinClicks() { return this.getThreeBV(); }
+
+    /* Measuring Methods */
+    // Forgets the last board, for a layout that was not measured
+    public void clear() {
+        this.numCells = 0;
+        this.numOpenings = 0;
+        this.numIsolated = 0;
+        this.numIslands = 0;
+        this.largestOpening = 0;
+    }
+
+    public void measure(BoardStorage board) {
+        int numRows = board.getNumRows();
+        int numCols = board.getNumCols();
+        this.numCells = board.getNumCells();
+        if (this.kind.length < this.numCells) {
+            this.kind = new byte[this.numCells];
+            this.parent = new int[this.numCells];
+            this.size = new int[this.numCells];
+            this.openings = new int[this.numCells];
+        }
+        this.numOpenings = 0;
+        this.numIsolated = 0;
+        this.numIslands = 0;
+        this.largestOpening = 0;
+
+        // sort the cells, join the zeros and find which numbers border them
+        for (int row = 0; row < numRows; row++) {
+            for (int col = 0; col < numCols; col++) {
+                int index = row * numCols + col;
+                if (board.isMine(index)) {
+                    this.kind[index] = MINE;
+                    continue;
+                }
+                this.parent[index] = index;
+                this.size[index] = 0;
+                this.kind[index] = board.getNumber(index) == 0 ? ZERO : ISOLATED;
+                if (col > 0) {
+                    this.meet(index, index - 1);
+                }
+                if (row > 0) {
+                    int above = index - numCols;
+                    if (col > 0) {
+                        this.meet(index, above - 1);
+                    }
+                    this.meet(index, above);
+                    if (col + 1 < numCols) {
+                        this.meet(index, above + 1);
+                    }
+                }
+            }
+        }
+
+        // with the openings whole, size them and join the numbers left out into islands
+        int numJoined = 0;
+        for (int row = 0; row < numRows; row++) {
+            for (int col = 0; col < numCols; col++) {
+                int index = row * numCols + col;
+                byte cellKind = this.kind[index];
+                if (cellKind == ZERO) {
+                    int root = this.find(index);
+                    if (root == index) {
+                        this.openings[this.numOpenings++] = index;
+                    }
+                    this.size[root]++;
+                }
+                else if (cellKind == BORDER) {
+                    this.addToOpenings(row, col, numRows, numCols);
+                }
+                else if (cellKind == ISOLATED) {
+                    this.numIsolated++;
+                    numJoined += this.joinIsolated(index, row, col, numCols);
+                }
+            }
+        }
+        this.numIslands = this.numIsolated - numJoined;
+
+        for (int i = 0; i < this.numOpenings; i++) {
+            this.openings[i] = this.size[this.openings[i]];
+            this.largestOpening = Math.max(this.largestOpening, this.openings[i]);
+        }
+    }
+
+    // Two zeros share an opening, and a number next to a zero is one the opening reaches
+    private void meet(int index, int neighbor) {
+        byte neighborKind = this.kind[neighbor];
+        if (this.kind[index] == ZERO) {
+            if (neighborKind == ZERO) {
+                this.union(index, neighbor);
+            }
+            else if (neighborKind == ISOLATED) {
+                this.kind[neighbor] = BORDER;
+            }
+        }
+        else if (neighborKind == ZERO) {
+            this.kind[index] = BORDER;
+        }
+    }
+
+    // Joins an isolated number to those on its left and in the row above. Returns how many sets it merged away.
+    private int joinIsolated(int index, int row, int col, int numCols) {
+        int joined = 0;
+        if (col > 0 && this.kind[index - 1] == ISOLATED) {
+            joined += this.union(index, index - 1);
+        }
+        if (row > 0) {
+            int above = index - numCols;
+            if (col > 0 && this.kind[above - 1] == ISOLATED) {
+                joined += this.union(index, above - 1);
+            }
+            if (this.kind[above] == ISOLATED) {
+                joined += this.union(index, above);
+            }
+            if (col + 1 < numCols && this.kind[above + 1] == ISOLATED) {
+                joined += this.union(index, above + 1);
+            }
+        }
+        return joined;
+    }
+
+    // A number bordering several openings is uncovered by each, so it counts once toward every one of them
+    private void addToOpenings(int row, int col, int numRows, int numCols) {
+        int numRoots = 0;
+        int lastRow = Math.min(row + 1, numRows - 1);
+        int firstCol = Math.max(col - 1, 0);
+        int lastCol = Math.min(col + 1, numCols - 1);
+        for (int r = Math.max(row - 1, 0); r <= lastRow; r++) {
+            for (int neighbor = r * numCols + firstCol, end = r * numCols + lastCol; neighbor <= end; neighbor++) {
+                if (this.kind[neighbor] != ZERO) {
+                    continue;
+                }
+                int root = this.find(neighbor);
+                int i = 0;
+                while (i < numRoots && this.roots[i] != root) {
+                    i++;
+                }
+                if (i == numRoots) {
+                    this.roots[numRoots++] = root;
+                    this.size[root]++;
+                }
+            }
+        }
+    }
+
+    /* Union-Find */
+    // Path halving: every other cell on the way up is pointed at its grandparent
+    private int find(int index) {
+        while (this.parent[index] != index) {
+            this.parent[index] = this.parent[this.parent[index]];
+            index = this.parent[index];
+        }
+        return index;
+    }
+
+    // The later root joins the earlier one, so a set's root stays its first cell in board order.
+    // Returns 1 if the two were apart, 0 if they were already one set.
+    private int union(int a, int b) {
+        int rootA = this.find(a);
+        int rootB = this.find(b);
+        if (rootA == rootB) {
+            return 0;
+        }
+        this.parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        return 1;
+    }
+
+    /* Packing */
+    // The 3BV, openings and islands in 48 bits, for saving next to a score. Each is capped at what its bits hold.
+    public long pack() {
+        long threeBV = Math.min(this.getThreeBV(), (1 << THREE_BV_BITS) - 1);
+        long openingCount = Math.min(this.numOpenings, (1 << COUNT_BITS) - 1);
+        long islandCount = Math.min(this.numIslands, (1 << COUNT_BITS) - 1);
+        return threeBV | (openingCount << THREE_BV_BITS) | (islandCount << (THREE_BV_BITS + COUNT_BITS));
+    }
+
+    public static int threeBVOf(long packed) { return (int) (packed & ((1 << THREE_BV_BITS) - 1)); }
+    public static int openingsOf(long packed) { return (int) ((packed >>> THREE_BV_BITS) & ((1 << COUNT_BITS) - 1)); }
+    public static int islandsOf(long packed) { return (int) ((packed >>> (THREE_BV_BITS + COUNT_BITS)) & ((1 << COUNT_BITS) - 1)); }
+}
@@ -0,0 +1,196 @@
+package com.thwamster.engine;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Ready-made no-guess layouts, generated ahead of time on background threads.
+ *
+ * Each difficulty gets a shelf with a small bounded queue for every first-click region of NoGuessGenerator.
+ * Taking a board is a single poll, and every take wakes the workers to put another one back.
+ * Checking a candidate plays a whole game out, and most candidates fail on large or dense boards, so only
+ * difficulties within MAX_CELLS and MAX_DENSITY get a shelf. A miss is searched for on the spot, but only for
+ * NOW_BUDGET_NANOS before the caller is told to start a random board instead.
+ */
+public class BoardPool {
+    /* Generation */
+    public static final int MAX_ATTEMPTS = 2000; // candidates tried for one region before moving on
+    public static final int MAX_CELLS = 100 * 100; // larger boards take too long per candidate, and need a queue per region
+    public static final float MAX_DENSITY = 0.25F; // denser boards almost never come out solvable
+    private static final long NOW_BUDGET_NANOS = 200_000_000L; // how long generateNow may hold up a first click
+    private static final int NOW_BATCH = 4; // candidates tried between looks at the clock
+
+    /* Instance Variables */
+    private final ExecutorService workers;
+    private final int numWorkers;
+    private final int capacity; // boards kept ready per region
+    private final ConcurrentHashMap<String, Shelf> shelves = new ConcurrentHashMap<String, Shelf>();
+
+    /* Constructors */
+    public BoardPool() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), 2);
+    }
+
+    public BoardPool(int newNumWorkers, int newCapacity) {
+        this.numWorkers = newNumWorkers;
+        this.capacity = newCapacity;
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(newNumWorkers, runnable -> {
+            Thread thread = new Thread(runnable, "no-guess-" + count.incrementAndGet());
+            thread.setDaemon(true); // never keeps the game open on exit
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /* Helper Methods */
+    // Boards ready across every region of a difficulty
+    public int getNumReady(int numRows, int numCols, int numBombs) {
+        Shelf shelf = this.shelves.get(key(numRows, numCols, numBombs));
+        int ready = 0;
+        if (shelf != null) {
+            for (ArrayBlockingQueue<int[]> queue : shelf.ready) {
+                ready += queue.size();
+            }
+        }
+        return ready;
+    }
+
+    // Whether a difficulty is small and sparse enough to be given no-guess layouts
+    public static boolean supports(int numRows, int numCols, int numBombs) {
+        long numCells = (long) numRows * numCols;
+        return numCells <= MAX_CELLS && numBombs <= numCells * MAX_DENSITY;
+    }
+
+    private static String key(int numRows, int numCols, int numBombs) {
+        return numRows + "x" + numCols + "-" + numBombs;
+    }
+
+    /* Pool Methods */
+    // Starts filling every region of a difficulty in the background, if it is supported
+    public void prepare(int numRows, int numCols, int numBombs) {
+        if (supports(numRows, numCols, numBombs)) {
+            this.fill(this.shelf(numRows, numCols, numBombs));
+        }
+    }
+
+    // Returns a layout that needs no guessing from firstClick, or null if none is ready yet or the difficulty is not supported
+    public int[] take(int numRows, int numCols, int numBombs, int firstClick) {
+        if (!supports(numRows, numCols, numBombs)) {
+            return null;
+        }
+        Shelf shelf = this.shelf(numRows, numCols, numBombs);
+        int[] layout = shelf.ready.get(shelf.regions.regionOf(firstClick)).poll();
+        this.fill(shelf);
+        return layout;
+    }
+
+    // Generates a layout on the calling thread, for when take comes back empty. Returns null if the difficulty is
+    // not supported or nothing turned up within NOW_BUDGET_NANOS, and the caller starts a random board instead.
+    public static int[] generateNow(int numRows, int numCols, int numBombs, int firstClick) {
+        if (!supports(numRows, numCols, numBombs)) {
+            return null;
+        }
+        NoGuessGenerator generator = new NoGuessGenerator(numRows, numCols, numBombs, new Random());
+        int region = generator.regionOf(firstClick);
+        long start = System.nanoTime();
+        for (int attempts = 0; attempts < MAX_ATTEMPTS; attempts += NOW_BATCH) {
+            int[] layout = generator.generate(region, NOW_BATCH);
+            if (layout != null) {
+                return layout;
+            }
+            else if (generator.getAttempts() < NOW_BATCH || System.nanoTime() - start > NOW_BUDGET_NANOS) {
+                return null; // the bombs do not fit, or out of time
+            }
+        }
+        return null;
+    }
+
+    public void shutdown() {
+        this.workers.shutdownNow();
+    }
+
+    private Shelf shelf(int numRows, int numCols, int numBombs) {
+        return this.shelves.computeIfAbsent(key(numRows, numCols, numBombs), k -> new Shelf(numRows, numCols, numBombs, this.capacity));
+    }
+
+    // Tops the shelf up to one filler per worker
+    private void fill(Shelf shelf) {
+        while (true) {
+            int fillers = shelf.numFillers.get();
+            if (fillers >= this.numWorkers) {
+                return;
+            }
+            if (shelf.numFillers.compareAndSet(fillers, fillers + 1)) {
+                try {
+                    this.workers.execute(() -> this.runFiller(shelf));
+                }
+                catch (RejectedExecutionException e) {
+                    shelf.numFillers.decrementAndGet(); // shut down
+                    return;
+                }
+            }
+        }
+    }
+
+    // Goes round the regions one board at a time until every queue is full
+    private void runFiller(Shelf shelf) {
+        NoGuessGenerator generator = new NoGuessGenerator(shelf.numRows, shelf.numCols, shelf.numBombs, new Random());
+        int numRegions = shelf.ready.size();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                boolean wanted = false;
+                boolean made = false;
+                for (int k = 0; k < numRegions; k++) {
+                    int region = Math.floorMod(shelf.nextRegion.getAndIncrement(), numRegions);
+                    ArrayBlockingQueue<int[]> queue = shelf.ready.get(region);
+                    if (queue.remainingCapacity() == 0) {
+                        continue;
+                    }
+                    wanted = true;
+
+                    int[] layout = generator.generate(region, MAX_ATTEMPTS);
+                    if (layout != null) {
+                        queue.offer(layout);
+                        made = true;
+                    }
+                }
+                // stop once full, or when no region can be made at all for this difficulty
+                if (!wanted || !made) {
+                    return;
+                }
+            }
+        }
+        finally {
+            shelf.numFillers.decrementAndGet();
+        }
+    }
+
+    /* Shelf */
+    private static class Shelf {
+        final int numRows;
+        final int numCols;
+        final int numBombs;
+        final NoGuessGenerator regions; // only used to map cells to regions, never to generate
+        final ArrayList<ArrayBlockingQueue<int[]>> ready;
+        final AtomicInteger nextRegion = new AtomicInteger(); // shared so fillers spread across the regions
+        final AtomicInteger numFillers = new AtomicInteger();
+
+        Shelf(int newNumRows, int newNumCols, int newNumBombs, int capacity) {
+            this.numRows = newNumRows;
+            this.numCols = newNumCols;
+            this.numBombs = newNumBombs;
+            this.regions = new NoGuessGenerator(newNumRows, newNumCols, newNumBombs, new Random());
+            this.ready = new ArrayList<ArrayBlockingQueue<int[]>>(this.regions.getNumRegions());
+            for (int i = 0; i < this.regions.getNumRegions(); i++) {
+                this.ready.add(new ArrayBlockingQueue<int[]>(capacity));
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.thwamster.engine;
+
+/*
+ * Per-cell state of a board. Cells are addressed by a flat index, row * cols + col,
+ * and each cell tracks whether it holds a mine, its neighboring mine count and
+ * whether it has been revealed or flagged by the player.
+ */
+public interface BoardStorage {
+    /* Dimensions */
+    int getNumRows();
+    int getNumCols();
+    int getNumCells();
+
+    default int index(int row, int col) { return row * this.getNumCols() + col; }
+    default int rowOf(int index) { return index / this.getNumCols(); }
+    default int colOf(int index) { return index % this.getNumCols(); }
+
+    /* Cell State */
+    boolean isMine(int index);
+    int getNumber(int index);
+    boolean isRevealed(int index);
+    boolean isFlagged(int index);
+
+    void setMine(int index);
+    void setNumber(int index, int number);
+    void incrementNumber(int index);
+    void setRevealed(int index, boolean revealed);
+    void setFlagged(int index, boolean flagged);
+
+    // Clears every cell back to an empty, covered, unflagged state
+    void clear();
+
+    // Sets every safe cell's number from the mines around it, in one sweep down the board: each column's mines
+    // over three rows, then three columns at a time
+    default void numberAll() {
+        int numRows = this.getNumRows();
+        int numCols = this.getNumCols();
+        int[] columns = new int[numCols + 2]; // padded by one on each side
+
+        for (int row = 0; row < numRows; row++) {
+            int index = row * numCols;
+            for (int col = 0; col < numCols; col++) {
+                int count = this.isMine(index + col) ? 1 : 0;
+                if (row > 0 && this.isMine(index - numCols + col)) { count++; }
+                if (row + 1 < numRows && this.isMine(index + numCols + col)) { count++; }
+                columns[col + 1] = count;
+            }
+            for (int col = 0; col < numCols; col++) {
+                if (!this.isMine(index + col)) {
+                    this.setNumber(index + col, columns[col] + columns[col + 1] + columns[col + 2]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.thwamster.engine;
+
+import java.util.BitSet;
+import java.util.Random;
+
+public class BombPlacer {
+    /* Instance Variables */
+    private Random random; // source of randomness, can be swapped for a seeded one
+    private int[] pool; // candidate cell indices for the partial shuffle, reused between games
+    private final BitSet chosen; // cells already taken by the sparse sampler, reused between games
+
+    /* Constructors */
+    public BombPlacer() {
+        this(new Random());
+    }
+
+    public BombPlacer(Random newRandom) {
+        this.random = newRandom;
+        this.pool = new int[0];
+        this.chosen = new BitSet();
+    }
+
+    /* Helper Methods */
+    public Random getRandom() { return this.random; }
+    public void setRandom(Random newRandom) { this.random = newRandom; }
+    public void setSeed(long seed) { this.random.setSeed(seed); }
+
+    /* Placement Methods */
+    // Returns the cell indices of the placed bombs, never including safeIndex. Indices run row * cols + col.
+    public int[] place(int numCells, int numBombs, int safeIndex) {
+        boolean hasSafe = safeIndex >= 0 && safeIndex < numCells;
+        int numCandidates = hasSafe ? numCells - 1 : numCells;
+        int count = Math.max(0, Math.min(numBombs, numCandidates));
+        int[] bombs = this.sample(numCandidates, count);
+
+        // candidates skip over the safe cell, so shift everything at or past it up by one
+        if (hasSafe) {
+            for (int i = 0; i < count; i++) {
+                if (bombs[i] >= safeIndex) {
+                    bombs[i]++;
+                }
+            }
+        }
+        return bombs;
+    }
+
+    // Same as above, keeping every cell in safeCells clear. safeCells must be sorted and within the board.
+    public int[] place(int numCells, int numBombs, int[] safeCells) {
+        int numCandidates = numCells - safeCells.length;
+        int count = Math.max(0, Math.min(numBombs, numCandidates));
+        int[] bombs = this.sample(numCandidates, count);
+
+        // walking the safe cells in order, each one pushes the candidates at or past it up by one
+        for (int i = 0; i < count; i++) {
+            int bomb = bombs[i];
+            for (int safe : safeCells) {
+                if (bomb >= safe) {
+                    bomb++;
+                }
+            }
+            bombs[i] = bomb;
+        }
+        return bombs;
+    }
+
+    private int[] sample(int numCandidates, int count) {
+        if (count * 4 < numCandidates) {
+            return this.sampleSparse(numCandidates, count);
+        }
+        else {
+            return this.sampleDense(numCandidates, count);
+        }
+    }
+
+    // Partial Fisher-Yates: only the first count positions of the pool are ever shuffled
+    private int[] sampleDense(int numCandidates, int count) {
+        if (this.pool.length < numCandidates) {
+            this.pool = new int[numCandidates];
+        }
+        for (int i = 0; i < numCandidates; i++) {
+            this.pool[i] = i;
+        }
+
+        int[] bombs = new int[count];
+        for (int i = 0; i < count; i++) {
+            int j = i + this.random.nextInt(numCandidates - i);
+            int swap = this.pool[j];
+            this.pool[j] = this.pool[i];
+            this.pool[i] = swap;
+            bombs[i] = swap;
+        }
+        return bombs;
+    }
+
+    // Floyd's sampling: one random draw per bomb and no pass over the whole board
+    private int[] sampleSparse(int numCandidates, int count) {
+        this.chosen.clear();
+
+        int[] bombs = new int[count];
+        int i = 0;
+        for (int j = numCandidates - count; j < numCandidates; j++) {
+            int t = this.random.nextInt(j + 1);
+            if (this.chosen.get(t)) {
+                t = j;
+            }
+            this.chosen.set(t);
+            bombs[i++] = t;
+        }
+        return bombs;
+    }
+}
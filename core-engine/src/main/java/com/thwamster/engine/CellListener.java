@@ -0,0 +1,12 @@
+package com.thwamster.engine;
+
+/*
+ * Told about every change a MinesweeperEngine makes to its board, as it happens.
+ */
+public interface CellListener {
+    // A cell was revealed, flagged or unflagged
+    void cellChanged(int index);
+
+    // The board was cleared or replaced, so everything known about it is stale
+    void boardReset();
+}
@@ -0,0 +1,36 @@
+package com.thwamster.engine;
+
+/*
+ * One square piece of an InfiniteEngine board, SIZE cells a side, stored with the cell bits of FlatBoardStorage.
+ * Chunks are addressed by chunk coordinates, a cell's coordinates shifted right by SHIFT, so negative cells
+ * land in negative chunks.
+ */
+public class Chunk {
+    /* Size */
+    public static final int SHIFT = 5;
+    public static final int SIZE = 1 << SHIFT; // cells along each side
+    public static final int MASK = SIZE - 1;
+    public static final int NUM_CELLS = SIZE * SIZE;
+
+    /* Instance Variables */
+    private final int chunkX;
+    private final int chunkY;
+    private final byte[] cells = new byte[NUM_CELLS]; // row after row, like FlatBoardStorage
+    private boolean modified; // revealed or flagged since it was generated, so dropping it would lose play
+
+    /* Constructor */
+    public Chunk(int newChunkX, int newChunkY) {
+        this.chunkX = newChunkX;
+        this.chunkY = newChunkY;
+    }
+
+    /* Helper Methods */
+    public int getChunkX() { return this.chunkX; }
+    public int getChunkY() { return this.chunkY; }
+    public byte[] getCells() { return this.cells; }
+    public boolean isModified() { return this.modified; }
+    public void setModified() { this.modified = true; }
+
+    public static long key(int chunkX, int chunkY) { return (long) chunkX << 32 | (chunkY & 0xFFFF_FFFFL); }
+    public static int local(int x, int y) { return (y & MASK) << SHIFT | (x & MASK); }
+}
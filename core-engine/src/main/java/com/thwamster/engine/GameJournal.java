@@ -0,0 +1,262 @@
+package com.thwamster.engine;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * Every action of one game, in order, with what is needed to lay the same bombs again, so a Replay can rebuild
+ * the game exactly.
+ *
+ * Layout, big-endian with unsigned LEB128 varints:
+ *   long   magic "MSJRNL01"
+ *   varint rows, cols, bombs
+ *   byte   layout kind: 0 the bombs come from the seed and the first reveal, 1 they are listed
+ *   long   game seed, or for a listed layout: varint count, then the sorted cells as gaps from the previous one
+ *   then one record per action until the end of the file:
+ *     varint (cell - previous cell, zigzag encoded) << 2 | type
+ *     varint milliseconds since the previous action
+ *
+ * A typical action takes two or three bytes. Records are only ever appended, and a torn record at the end of
+ * a file is dropped on load.
+ */
+public class GameJournal {
+    /* Format */
+    private static final long MAGIC = 0x4D534A52_4E4C3031L; // "MSJRNL01"
+    private static final int SEEDED = 0;
+    private static final int LISTED = 1;
+
+    /* Action Types */
+    public static final int REVEAL = 0; // a left click, which also starts the game
+    public static final int FLAG = 1;
+    public static final int CHORD = 2;
+
+    /* Instance Variables */
+    private final int numRows;
+    private final int numCols;
+    private final int numBombs;
+    private long seed; // game seed for a seeded layout
+    private int[] layout; // sorted bomb cells for a layout made elsewhere, null when seeded
+    private byte[] data = new byte[64]; // the encoded action records
+    private int size; // how much of data is filled
+    private int numActions;
+    private int lastCell; // the previous action's cell, records store the difference
+    private long lastTime; // the previous action's time, records store the difference
+
+    /* Constructor */
+    public GameJournal(int newNumRows, int newNumCols, int newNumBombs) {
+        this.numRows = newNumRows;
+        this.numCols = newNumCols;
+        this.numBombs = newNumBombs;
+    }
+
+    /* Helper Methods */
+    public int getNumRows() { return this.numRows; }
+    public int getNumCols() { return this.numCols; }
+    public int getNumBombs() { return this.numBombs; }
+    public long getSeed() { return this.seed; }
+    public int[] getLayout() { return this.layout; }
+    public int getNumActions() { return this.numActions; }
+    public long getLastTime() { return this.lastTime; }
+    public int getNumBytes() { return this.size; }
+
+    // The first reveal lays the bombs, so one of these is called once the engine has started
+    public void setSeed(long newSeed) {
+        this.seed = newSeed;
+        this.layout = null;
+    }
+
+    public void setLayout(int[] newLayout) {
+        this.layout = newLayout.clone();
+        Arrays.sort(this.layout);
+    }
+
+    /* Recording Methods */
+    // Appends one action. Time is the game's elapsed milliseconds once the action has been made, so the action
+    // that wins a game carries the finishing time.
+    public void record(int type, int cell, long time) {
+        if (this.size + 20 > this.data.length) {
+            this.data = Arrays.copyOf(this.data, this.data.length * 2);
+        }
+        int delta = cell - this.lastCell;
+        this.size = putVarint(this.data, this.size, ((long) ((delta << 1) ^ (delta >> 31)) & 0xFFFF_FFFFL) << 2 | type);
+        this.size = putVarint(this.data, this.size, Math.max(0, time - this.lastTime));
+        this.lastCell = cell;
+        this.lastTime = Math.max(this.lastTime, time);
+        this.numActions++;
+    }
+
+    // Decodes every action into the given arrays, which need room for getNumActions entries
+    public void decode(int[] types, int[] cells, long[] times) {
+        int at = 0;
+        int cell = 0;
+        long time = 0;
+        long[] value = new long[1];
+        for (int a = 0; a < this.numActions; a++) {
+            at = getVarint(this.data, at, this.size, value);
+            int zigzag = (int) (value[0] >>> 2);
+            types[a] = (int) (value[0] & 3);
+            cell += (zigzag >>> 1) ^ -(zigzag & 1);
+            cells[a] = cell;
+            at = getVarint(this.data, at, this.size, value);
+            time += value[0];
+            times[a] = time;
+        }
+    }
+
+    /* Saving Methods */
+    // Writes to a temporary file first and moves it into place, like GameSnapshot
+    public void save(Path path) throws IOException {
+        int layoutSize = this.layout == null ? 8 : 5 + 5 * this.layout.length;
+        ByteBuffer header = ByteBuffer.allocate(8 + 15 + 1 + layoutSize);
+        header.putLong(MAGIC);
+        putVarint(header, this.numRows);
+        putVarint(header, this.numCols);
+        putVarint(header, this.numBombs);
+        if (this.layout == null) {
+            header.put((byte) SEEDED).putLong(this.seed);
+        }
+        else {
+            header.put((byte) LISTED);
+            putVarint(header, this.layout.length);
+            int previous = 0;
+            for (int cell : this.layout) {
+                putVarint(header, cell - previous);
+                previous = cell;
+            }
+        }
+        header.flip();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] parts = {header, ByteBuffer.wrap(this.data, 0, this.size)};
+            while (parts[1].hasRemaining()) {
+                channel.write(parts);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /* Loading Methods */
+    public static GameJournal load(Path path) throws IOException {
+        return read(Files.readAllBytes(path), path.toString());
+    }
+
+    // Parses a journal from memory. Source names it in error messages.
+    public static GameJournal read(byte[] bytes, String source) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        long[] value = new long[1];
+        try {
+            if (in.getLong() != MAGIC) {
+                throw new IOException(source + " is not a journal");
+            }
+            int rows = (int) getVarint(in, value);
+            int cols = (int) getVarint(in, value);
+            int bombs = (int) getVarint(in, value);
+            if (rows < 1 || cols < 1 || (long) rows * cols > Integer.MAX_VALUE - 8 || bombs < 0 || bombs > rows * cols) {
+                throw new IOException(source + " has a damaged header");
+            }
+            GameJournal journal = new GameJournal(rows, cols, bombs);
+
+            int kind = in.get();
+            if (kind == SEEDED) {
+                journal.seed = in.getLong();
+            }
+            else if (kind == LISTED) {
+                int count = (int) getVarint(in, value);
+                if (count < 0 || count > rows * cols) {
+                    throw new IOException(source + " has a damaged layout");
+                }
+                journal.layout = new int[count];
+                int cell = 0;
+                for (int i = 0; i < count; i++) {
+                    cell += (int) getVarint(in, value);
+                    if (cell < 0 || cell >= rows * cols || (i > 0 && cell == journal.layout[i - 1])) {
+                        throw new IOException(source + " has a damaged layout");
+                    }
+                    journal.layout[i] = cell;
+                }
+            }
+            else {
+                throw new IOException(source + " has an unknown layout kind " + kind);
+            }
+
+            // count the whole records, a torn one at the end is left out
+            int start = in.position();
+            int end = bytes.length;
+            int at = start;
+            int whole = at;
+            int numActions = 0;
+            while (at < end) {
+                at = getVarint(bytes, at, end, value);
+                if (at < 0) {
+                    break;
+                }
+                at = getVarint(bytes, at, end, value);
+                if (at < 0) {
+                    break;
+                }
+                whole = at;
+                numActions++;
+            }
+            journal.size = whole - start;
+            journal.data = new byte[Math.max(64, journal.size)];
+            System.arraycopy(bytes, start, journal.data, 0, journal.size);
+            journal.numActions = numActions;
+            return journal;
+        }
+        catch (BufferUnderflowException e) {
+            throw new IOException(source + " is too short to be a journal", e);
+        }
+    }
+
+    /* Varints */
+    private static int putVarint(byte[] out, int at, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out[at++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[at++] = (byte) value;
+        return at;
+    }
+
+    private static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    // Reads one varint into value[0] and returns the position after it, or -1 if it runs past end
+    private static int getVarint(byte[] in, int at, int end, long[] value) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (at >= end) {
+                return -1;
+            }
+            int b = in[at++];
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                value[0] = result;
+                return at;
+            }
+        }
+        return -1;
+    }
+
+    private static long getVarint(ByteBuffer in, long[] value) {
+        int at = getVarint(in.array(), in.position(), in.limit(), value);
+        if (at < 0) {
+            throw new BufferUnderflowException();
+        }
+        in.position(at);
+        return value[0];
+    }
+}
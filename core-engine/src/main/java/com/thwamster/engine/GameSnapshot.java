@@ -0,0 +1,256 @@
+package com.thwamster.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/*
+ * Saves a game in progress to a compact binary file and loads it back.
+ *
+ * Layout, big-endian:
+ *   long  magic "MSSNAP01"
+ *   int   rows, cols, bombs
+ *   byte  status, byte options (bit 0: body is deflated), short unused
+ *   long  game seed, long elapsed milliseconds
+ *   int   body length in the file, then padding to 48 bytes
+ *   body: a state plane of 2 bits per cell (0 covered, 1 revealed, 2 flagged, 3 never written), four cells to a byte,
+ *         then a mine bitset of 1 bit per cell, eight cells to a byte, both lowest bit first.
+ *
+ * Numbers are not stored, the engine counts them again from the mines. A board of n cells takes 3n/8 bytes
+ * before deflating. Loading decodes the planes straight into the board's cell bytes, and large files are
+ * memory-mapped rather than read. Small ones are read into the heap instead, because on Windows a live mapping
+ * would stop the next save from replacing the file.
+ */
+public final class GameSnapshot {
+    /* Format */
+    private static final long MAGIC = 0x4D53534E_41503031L; // "MSSNAP01"
+    private static final int HEADER_SIZE = 48;
+    private static final int DEFLATED = 1;
+    private static final long MAP_THRESHOLD = 1 << 20; // files at least this big are mapped
+
+    /* Cell States */
+    private static final int COVERED = 0;
+    private static final int REVEALED = 1;
+    private static final int FLAGGED = 2;
+
+    private GameSnapshot() { }
+
+    /* Saving Methods */
+    // Writes to a temporary file first and moves it into place, so a crash never leaves half a save behind
+    public static void save(MinesweeperEngine engine, Path path, boolean deflate) throws IOException {
+        byte[] body = encode(engine.getBoard());
+        int bodyLength = body.length;
+        if (deflate) {
+            ByteArrayOutputStream packed = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+            try (DeflaterOutputStream out = new DeflaterOutputStream(packed, new Deflater(Deflater.BEST_SPEED))) {
+                out.write(body);
+            }
+            body = packed.toByteArray();
+            bodyLength = body.length;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        putHeader(header, engine, deflate, engine.getElapsed(), bodyLength);
+        header.rewind(); // the rest of the header is padding
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] parts = {header, ByteBuffer.wrap(body, 0, bodyLength)};
+            while (parts[1].hasRemaining()) {
+                channel.write(parts);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // The same format held in memory and never deflated, for a Replay to jump back to
+    static byte[] capture(MinesweeperEngine engine, long elapsed) {
+        byte[] body = encode(engine.getBoard());
+        ByteBuffer snapshot = ByteBuffer.allocate(HEADER_SIZE + body.length);
+        putHeader(snapshot, engine, false, elapsed, body.length);
+        snapshot.position(HEADER_SIZE);
+        snapshot.put(body);
+        return snapshot.array();
+    }
+
+    private static void putHeader(ByteBuffer header, MinesweeperEngine engine, boolean deflate, long elapsed, int bodyLength) {
+        BoardStorage board = engine.getBoard();
+        header.putLong(MAGIC);
+        header.putInt(board.getNumRows()).putInt(board.getNumCols()).putInt(engine.getNumBombs());
+        header.put((byte) engine.getGameStatus()).put((byte) (deflate ? DEFLATED : 0)).putShort((short) 0);
+        header.putLong(engine.getGameSeed()).putLong(elapsed);
+        header.putInt(bodyLength);
+    }
+
+    private static byte[] encode(BoardStorage board) {
+        int numCells = board.getNumCells();
+        int mineOffset = (numCells + 3) >>> 2;
+        byte[] body = new byte[mineOffset + ((numCells + 7) >>> 3)];
+        if (board instanceof FlatBoardStorage) {
+            byte[] cells = ((FlatBoardStorage) board).getCells();
+            for (int i = 0; i < numCells; i++) {
+                int cell = cells[i];
+                int state = (cell & FlatBoardStorage.FLAGGED) != 0 ? FLAGGED : (cell & FlatBoardStorage.REVEALED) != 0 ? REVEALED : COVERED;
+                body[i >>> 2] |= state << ((i & 3) << 1);
+                if ((cell & FlatBoardStorage.MINE) != 0) {
+                    body[mineOffset + (i >>> 3)] |= 1 << (i & 7);
+                }
+            }
+            return body;
+        }
+
+        for (int i = 0; i < numCells; i++) {
+            int state = board.isFlagged(i) ? FLAGGED : board.isRevealed(i) ? REVEALED : COVERED;
+            body[i >>> 2] |= state << ((i & 3) << 1);
+            if (board.isMine(i)) {
+                body[mineOffset + (i >>> 3)] |= 1 << (i & 7);
+            }
+        }
+        return body;
+    }
+
+    /* Loading Methods */
+    // Replaces the engine's game with the saved one, resizing the board to match
+    public static void load(MinesweeperEngine engine, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer file;
+            if (size >= MAP_THRESHOLD) {
+                file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            else {
+                file = ByteBuffer.allocate((int) size);
+                while (file.hasRemaining() && channel.read(file) >= 0) {
+                    // read the whole file
+                }
+                file.flip();
+            }
+            read(engine, file, path.toString());
+        }
+    }
+
+    // Puts a snapshot from capture back into the engine
+    static void restore(MinesweeperEngine engine, byte[] snapshot) {
+        try {
+            read(engine, ByteBuffer.wrap(snapshot), "keyframe");
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    private static void read(MinesweeperEngine engine, ByteBuffer file, String source) throws IOException {
+        long size = file.limit();
+        if (size < HEADER_SIZE) {
+            throw new IOException(source + " is too short to be a snapshot");
+        }
+        if (file.getLong() != MAGIC) {
+            throw new IOException(source + " is not a snapshot");
+        }
+        int rows = file.getInt();
+        int cols = file.getInt();
+        int bombs = file.getInt();
+        int status = file.get();
+        int options = file.get();
+        file.getShort();
+        long seed = file.getLong();
+        long elapsed = file.getLong();
+        int bodyLength = file.getInt();
+
+        long numCells = (long) rows * cols;
+        if (rows < 1 || cols < 1 || numCells > Integer.MAX_VALUE - 8 || bombs < 0 || bodyLength < 0 || HEADER_SIZE + (long) bodyLength > size
+                || status < MinesweeperEngine.LOST || status > MinesweeperEngine.WON) {
+            throw new IOException(source + " has a damaged header");
+        }
+        int stateBytes = (int) ((numCells + 3) >>> 2);
+        int mineBytes = (int) ((numCells + 7) >>> 3);
+
+        file.position(HEADER_SIZE);
+        ByteBuffer body;
+        if ((options & DEFLATED) != 0) {
+            body = inflate(file, bodyLength, stateBytes + mineBytes, source);
+        }
+        else {
+            if (bodyLength != stateBytes + mineBytes) {
+                throw new IOException(source + " has the wrong body length");
+            }
+            body = file.slice();
+        }
+
+        engine.initialize(rows, cols, bombs);
+        decode(body, engine.getBoard(), stateBytes, source);
+        engine.restore(status, elapsed, seed);
+    }
+
+    private static ByteBuffer inflate(ByteBuffer packed, int packedLength, int length, String source) throws IOException {
+        byte[] input = new byte[packedLength];
+        packed.get(input);
+        byte[] output = new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            int filled = 0;
+            while (filled < length && !inflater.finished()) {
+                int n = inflater.inflate(output, filled, length - filled);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                filled += n;
+            }
+            if (filled != length) {
+                throw new IOException(source + " has a damaged body");
+            }
+        }
+        catch (DataFormatException e) {
+            throw new IOException(source + " has a damaged body", e);
+        }
+        finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(output);
+    }
+
+    // One pass over the planes, eight cells per mine byte, writing the cell bytes directly when the board allows.
+    // A cell in state 3 means the file is damaged, and the board is left half decoded for the caller to reset.
+    private static void decode(ByteBuffer body, BoardStorage board, int mineOffset, String source) throws IOException {
+        int numCells = board.getNumCells();
+        int damaged = 0; // nonzero once any cell has both state bits set
+        if (board instanceof FlatBoardStorage) {
+            byte[] cells = ((FlatBoardStorage) board).getCells();
+            for (int base = 0; base < numCells; base += 8) {
+                int mines = body.get(mineOffset + (base >>> 3)) & 0xFF;
+                int states = (body.get(base >>> 2) & 0xFF) | ((base + 4 < numCells ? body.get((base >>> 2) + 1) & 0xFF : 0) << 8);
+                int end = Math.min(8, numCells - base);
+                for (int k = 0; k < end; k++) {
+                    // states 1 and 2 shifted up by five land exactly on the REVEALED and FLAGGED bits
+                    int state = (states >>> (k << 1)) & 3;
+                    damaged |= state & (state >>> 1);
+                    cells[base + k] = (byte) ((((mines >>> k) & 1) << 4) | (state << 5));
+                }
+            }
+        }
+        else {
+            for (int i = 0; i < numCells; i++) {
+                int state = (body.get(i >>> 2) >>> ((i & 3) << 1)) & 3;
+                damaged |= state & (state >>> 1);
+                if ((body.get(mineOffset + (i >>> 3)) & (1 << (i & 7))) != 0) {
+                    board.setMine(i);
+                }
+                board.setRevealed(i, state == REVEALED);
+                board.setFlagged(i, state == FLAGGED);
+            }
+        }
+        if (damaged != 0) {
+            throw new IOException(source + " has a cell in no known state");
+        }
+    }
+}
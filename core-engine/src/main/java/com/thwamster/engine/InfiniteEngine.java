@@ -0,0 +1,474 @@
+package com.thwamster.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/*
+ * Minesweeper on a board with no edges, addressed by x (column) and y (row) in the whole int range.
+ *
+ * The board is cut into Chunks that only exist once a reveal or the camera reaches them. A chunk's bombs come
+ * from a hash of the game seed, its chunk coordinates and the cell within it, so any chunk can be built again
+ * at any time and an untouched one costs no memory. Only the CHUNK_LIMIT most recently used chunks stay in
+ * memory. Evicting one that has been played on spills its revealed and flagged state, two bits a cell, to the
+ * spill folder, and it is rebuilt from the hash plus that state when play comes back to it.
+ *
+ * The game starts on the first reveal, which clears the 3x3 around it, and ends on the first bomb.
+ * There is no win, the score is the number of safe cells revealed.
+ */
+public class InfiniteEngine {
+    /* Bombs */
+    public static final float DEFAULT_DENSITY = 0.2F; // about expert's 99 bombs in 480 cells
+    public static final float MIN_DENSITY = 0.15F; // much sparser and the zero cells join up, so an opening could never end
+    public static final float MAX_DENSITY = 0.5F;
+
+    /* Memory */
+    public static final int CHUNK_LIMIT = 256; // chunks kept in memory by default, a kilobyte each
+
+    /* Hashing */
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    /* Instance Variables */
+    // Game
+    private long seed;
+    private final long threshold; // a cell is a bomb when the top 53 bits of its hash fall below this
+    private int gameStatus; // LOST, READY or PLAYING, as in MinesweeperEngine
+    private int safeX; // the first reveal, the 3x3 around it has no bombs
+    private int safeY;
+    private long numRevealed; // safe cells uncovered, the score
+    private int numFlags;
+    private long startTime;
+    private long finishTime;
+
+    // Chunks
+    private final int chunkLimit;
+    private final Path spillFolder; // where evicted chunks go, null to keep them in memory instead
+    private final LinkedHashMap<Long, Chunk> chunks = new LinkedHashMap<Long, Chunk>(64, 0.75F, true); // least recently used first
+    private final HashSet<Long> spilledToDisk = new HashSet<Long>(); // chunks with a file in the spill folder
+    private final HashMap<Long, byte[]> spilledToMemory = new HashMap<Long, byte[]>(); // state planes with nowhere else to go
+    private Chunk lastChunk; // the chunk of the last lookup, most lookups land in it again
+    private final boolean[] apron = new boolean[(Chunk.SIZE + 2) * (Chunk.SIZE + 2)]; // bombs in and around a chunk being built
+    private long numGenerated;
+    private long numSpilled;
+    private long numLoaded;
+
+    // Work Buffers
+    private long[] floodStack = new long[256]; // packed cells still to spread from while uncovering
+
+    // Changed Cells
+    private final long[] dirty = new long[4096]; // packed cells whose state changed since the last clearDirty
+    private int numDirty;
+    private boolean allDirty;
+
+    /* Constructors */
+    public InfiniteEngine(long newSeed) {
+        this(newSeed, DEFAULT_DENSITY, CHUNK_LIMIT, null);
+    }
+
+    public InfiniteEngine(long newSeed, float density, int newChunkLimit, Path newSpillFolder) {
+        float clamped = Math.max(MIN_DENSITY, Math.min(MAX_DENSITY, density));
+        this.threshold = (long) (clamped * (1L << 53));
+        this.chunkLimit = Math.max(16, newChunkLimit);
+        this.spillFolder = newSpillFolder;
+        this.reset(newSeed);
+    }
+
+    /* Helper Methods */
+    // Get Methods
+    public long getSeed() { return this.seed; }
+    public int getGameStatus() { return this.gameStatus; }
+    public boolean isOver() { return this.gameStatus == MinesweeperEngine.LOST; }
+    public long getNumRevealed() { return this.numRevealed; }
+    public int getNumFlags() { return this.numFlags; }
+    public int getNumResident() { return this.chunks.size(); }
+    public int getNumSpilled() { return this.spilledToDisk.size() + this.spilledToMemory.size(); }
+    public long getNumGenerated() { return this.numGenerated; }
+    public long getNumSpills() { return this.numSpilled; }
+    public long getNumLoads() { return this.numLoaded; }
+
+    public long getElapsed() {
+        if (this.gameStatus == MinesweeperEngine.LOST) {
+            return this.finishTime;
+        }
+        else if (this.gameStatus == MinesweeperEngine.PLAYING) {
+            return System.currentTimeMillis() - this.startTime;
+        }
+        else {
+            return 0;
+        }
+    }
+
+    // Cells
+    public static long pack(int x, int y) { return (long) x << 32 | (y & 0xFFFF_FFFFL); }
+    public static int unpackX(long cell) { return (int) (cell >> 32); }
+    public static int unpackY(long cell) { return (int) cell; }
+
+    // The cell's bits, as in FlatBoardStorage. Builds the chunk if the cell has none yet, the next action or touch
+    // evicts back down to the limit.
+    public int getCell(int x, int y) { return this.chunkAt(x, y).getCells()[Chunk.local(x, y)]; }
+
+    public boolean isMine(int x, int y) {
+        if (this.gameStatus != MinesweeperEngine.READY && Math.abs((long) x - this.safeX) <= 1 && Math.abs((long) y - this.safeY) <= 1) {
+            return false;
+        }
+        return (mix(this.chunkSeed(x >> Chunk.SHIFT, y >> Chunk.SHIFT) + (Chunk.local(x, y) + 1) * GOLDEN) >>> 11) < this.threshold;
+    }
+
+    // Changed Cells
+    public long[] getDirty() { return this.dirty; }
+    public int getNumDirty() { return this.numDirty; }
+    public boolean isAllDirty() { return this.allDirty; }
+
+    public void clearDirty() {
+        this.numDirty = 0;
+        this.allDirty = false;
+    }
+
+    private void markDirty(int x, int y) {
+        if (this.numDirty < this.dirty.length) {
+            this.dirty[this.numDirty++] = pack(x, y);
+        }
+        else {
+            this.allDirty = true;
+        }
+    }
+
+    /* Game Methods */
+    // Starts over on a new board, forgetting every chunk
+    public void reset(long newSeed) {
+        this.seed = newSeed;
+        this.gameStatus = MinesweeperEngine.READY;
+        this.numRevealed = 0;
+        this.numFlags = 0;
+        this.forgetChunks();
+        this.allDirty = true;
+        this.numDirty = 0;
+    }
+
+    private void start(int x, int y) {
+        this.safeX = x;
+        this.safeY = y;
+        this.gameStatus = MinesweeperEngine.PLAYING;
+        this.startTime = System.currentTimeMillis();
+        // chunks built before the first click did not know about the clearing, and nothing has been played on them
+        this.forgetChunks();
+        this.allDirty = true;
+    }
+
+    private void lose(Chunk chunk, int local, int x, int y) {
+        chunk.getCells()[local] |= FlatBoardStorage.REVEALED;
+        chunk.setModified();
+        this.markDirty(x, y);
+        this.finishTime = System.currentTimeMillis() - this.startTime;
+        this.gameStatus = MinesweeperEngine.LOST;
+
+        // show the bombs that are in memory, which covers everything on screen
+        for (Chunk resident : this.chunks.values()) {
+            byte[] cells = resident.getCells();
+            for (int i = 0; i < Chunk.NUM_CELLS; i++) {
+                if ((cells[i] & FlatBoardStorage.MINE) != 0) {
+                    cells[i] = (byte) ((cells[i] & ~FlatBoardStorage.FLAGGED) | FlatBoardStorage.REVEALED);
+                }
+            }
+            resident.setModified();
+        }
+        this.allDirty = true;
+    }
+
+    /* Action Methods */
+    // Uncovers a cell, starting the game first if needed. Returns the number of cells revealed.
+    public int reveal(int x, int y) {
+        if (this.gameStatus == MinesweeperEngine.READY) {
+            this.start(x, y);
+        }
+        if (this.gameStatus != MinesweeperEngine.PLAYING) {
+            return 0;
+        }
+
+        Chunk chunk = this.chunkAt(x, y);
+        int local = Chunk.local(x, y);
+        int cell = chunk.getCells()[local];
+        int revealed = 0;
+        if ((cell & (FlatBoardStorage.REVEALED | FlatBoardStorage.FLAGGED)) == 0) {
+            if ((cell & FlatBoardStorage.MINE) != 0) {
+                this.lose(chunk, local, x, y);
+            }
+            else {
+                revealed = this.uncover(x, y);
+            }
+        }
+        this.trim();
+        return revealed;
+    }
+
+    // Places or removes a flag on a covered cell. Returns whether anything changed.
+    public boolean flag(int x, int y) {
+        if (this.gameStatus != MinesweeperEngine.PLAYING) {
+            return false;
+        }
+        Chunk chunk = this.chunkAt(x, y);
+        byte[] cells = chunk.getCells();
+        int local = Chunk.local(x, y);
+        if ((cells[local] & FlatBoardStorage.REVEALED) != 0) {
+            return false;
+        }
+
+        cells[local] ^= FlatBoardStorage.FLAGGED;
+        this.numFlags += (cells[local] & FlatBoardStorage.FLAGGED) != 0 ? 1 : -1;
+        chunk.setModified();
+        this.markDirty(x, y);
+        this.trim();
+        return true;
+    }
+
+    // Uncovers every unflagged neighbor of a revealed number once it has that many flags around it
+    public int chord(int x, int y) {
+        if (this.gameStatus != MinesweeperEngine.PLAYING) {
+            return 0;
+        }
+        int cell = this.getCell(x, y);
+        int number = cell & FlatBoardStorage.NUMBER_MASK;
+        if ((cell & FlatBoardStorage.REVEALED) == 0 || (cell & FlatBoardStorage.MINE) != 0 || number == 0) {
+            return 0;
+        }
+
+        int flags = 0;
+        for (int n = 0; n < 8; n++) {
+            if ((this.getCell(x + MinesweeperEngine.NEIGHBOR_COLS[n], y + MinesweeperEngine.NEIGHBOR_ROWS[n]) & FlatBoardStorage.FLAGGED) != 0) {
+                flags++;
+            }
+        }
+        if (flags != number) {
+            return 0;
+        }
+
+        int revealed = 0;
+        for (int n = 0; n < 8 && this.gameStatus == MinesweeperEngine.PLAYING; n++) {
+            int nx = x + MinesweeperEngine.NEIGHBOR_COLS[n];
+            int ny = y + MinesweeperEngine.NEIGHBOR_ROWS[n];
+            Chunk chunk = this.chunkAt(nx, ny);
+            int local = Chunk.local(nx, ny);
+            int neighbor = chunk.getCells()[local];
+            if ((neighbor & (FlatBoardStorage.REVEALED | FlatBoardStorage.FLAGGED)) == 0) {
+                if ((neighbor & FlatBoardStorage.MINE) != 0) {
+                    this.lose(chunk, local, nx, ny);
+                }
+                else {
+                    revealed += this.uncover(nx, ny);
+                }
+            }
+        }
+        this.trim();
+        return revealed;
+    }
+
+    // Builds every chunk inside the given cells, for the camera. Evicts the least recently used ones past the limit.
+    public void touch(int minX, int minY, int maxX, int maxY) {
+        for (int cy = minY >> Chunk.SHIFT; cy <= maxY >> Chunk.SHIFT; cy++) {
+            for (int cx = minX >> Chunk.SHIFT; cx <= maxX >> Chunk.SHIFT; cx++) {
+                this.chunkAt(cx << Chunk.SHIFT, cy << Chunk.SHIFT);
+            }
+        }
+        this.trim();
+    }
+
+    // Uncovering
+    // Reveals a covered safe cell and, when it is a zero, spreads out to the whole opening, across chunk edges,
+    // with an explicit stack rather than recursion. Returns the cells revealed.
+    private int uncover(int startX, int startY) {
+        Chunk start = this.chunkAt(startX, startY);
+        int startLocal = Chunk.local(startX, startY);
+        start.getCells()[startLocal] |= FlatBoardStorage.REVEALED;
+        start.setModified();
+        this.markDirty(startX, startY);
+        int revealed = 1;
+        int size = 0;
+        if ((start.getCells()[startLocal] & FlatBoardStorage.NUMBER_MASK) == 0) {
+            this.floodStack[size++] = pack(startX, startY);
+        }
+
+        while (size > 0) {
+            long packed = this.floodStack[--size];
+            int x = unpackX(packed);
+            int y = unpackY(packed);
+            for (int n = 0; n < 8; n++) {
+                int nx = x + MinesweeperEngine.NEIGHBOR_COLS[n];
+                int ny = y + MinesweeperEngine.NEIGHBOR_ROWS[n];
+                Chunk chunk = this.chunkAt(nx, ny);
+                byte[] cells = chunk.getCells();
+                int local = Chunk.local(nx, ny);
+                if ((cells[local] & (FlatBoardStorage.REVEALED | FlatBoardStorage.FLAGGED | FlatBoardStorage.MINE)) == 0) {
+                    cells[local] |= FlatBoardStorage.REVEALED;
+                    chunk.setModified();
+                    this.markDirty(nx, ny);
+                    revealed++;
+                    // cells are revealed before they are queued, so each zero is queued at most once
+                    if ((cells[local] & FlatBoardStorage.NUMBER_MASK) == 0) {
+                        if (size == this.floodStack.length) {
+                            this.floodStack = Arrays.copyOf(this.floodStack, size * 2);
+                        }
+                        this.floodStack[size++] = pack(nx, ny);
+                    }
+                }
+            }
+        }
+        this.numRevealed += revealed;
+        return revealed;
+    }
+
+    /* Chunk Methods */
+    private Chunk chunkAt(int x, int y) {
+        int cx = x >> Chunk.SHIFT;
+        int cy = y >> Chunk.SHIFT;
+        Chunk last = this.lastChunk;
+        if (last != null && last.getChunkX() == cx && last.getChunkY() == cy) {
+            return last;
+        }
+
+        Long key = Chunk.key(cx, cy);
+        Chunk chunk = this.chunks.get(key);
+        if (chunk == null) {
+            chunk = this.load(cx, cy, key);
+            this.chunks.put(key, chunk);
+        }
+        this.lastChunk = chunk;
+        return chunk;
+    }
+
+    // Evicts down to the limit. Only called between actions, so no chunk in use can go stale.
+    private void trim() {
+        if (this.chunks.size() <= this.chunkLimit) {
+            return;
+        }
+        Iterator<Chunk> eldest = this.chunks.values().iterator();
+        while (this.chunks.size() > this.chunkLimit && eldest.hasNext()) {
+            Chunk chunk = eldest.next();
+            if (chunk.isModified()) {
+                this.spill(chunk);
+            }
+            eldest.remove();
+        }
+        this.lastChunk = null;
+    }
+
+    private void forgetChunks() {
+        this.chunks.clear();
+        this.lastChunk = null;
+        this.spilledToMemory.clear();
+        for (Long key : this.spilledToDisk) {
+            try {
+                Files.deleteIfExists(this.spillFile(key));
+            }
+            catch (IOException e) {
+                // a stale file is overwritten or ignored, it never leaks into a new game
+            }
+        }
+        this.spilledToDisk.clear();
+    }
+
+    // Building
+    private long chunkSeed(int chunkX, int chunkY) { return mix(this.seed ^ mix(Chunk.key(chunkX, chunkY) + GOLDEN)); }
+
+    // SplitMix64's finalizer, every input bit reaches every output bit
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private Chunk load(int chunkX, int chunkY, Long key) {
+        Chunk chunk = this.generate(chunkX, chunkY);
+        byte[] plane = this.spilledToMemory.remove(key);
+        if (plane == null && this.spilledToDisk.contains(key)) {
+            try {
+                plane = Files.readAllBytes(this.spillFile(key));
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Could not read back chunk " + chunkX + ", " + chunkY, e);
+            }
+        }
+        if (plane != null) {
+            // states 1 and 2 shifted up by five land exactly on the REVEALED and FLAGGED bits
+            byte[] cells = chunk.getCells();
+            for (int i = 0; i < Chunk.NUM_CELLS; i++) {
+                cells[i] |= ((plane[i >>> 2] >>> ((i & 3) << 1)) & 3) << 5;
+            }
+            chunk.setModified();
+            this.numLoaded++;
+        }
+        return chunk;
+    }
+
+    // Lays the chunk's bombs and numbers. The numbers along its edges need the bombs just outside it, which the
+    // hash gives without building the neighboring chunks.
+    private Chunk generate(int chunkX, int chunkY) {
+        Chunk chunk = new Chunk(chunkX, chunkY);
+        byte[] cells = chunk.getCells();
+        int width = Chunk.SIZE + 2;
+        int baseX = (chunkX << Chunk.SHIFT) - 1;
+        int baseY = (chunkY << Chunk.SHIFT) - 1;
+        for (int ay = 0; ay < width; ay++) {
+            for (int ax = 0; ax < width; ax++) {
+                this.apron[ay * width + ax] = this.isMine(baseX + ax, baseY + ay);
+            }
+        }
+
+        for (int ly = 0; ly < Chunk.SIZE; ly++) {
+            for (int lx = 0; lx < Chunk.SIZE; lx++) {
+                int a = (ly + 1) * width + lx + 1;
+                int value;
+                if (this.apron[a]) {
+                    value = FlatBoardStorage.MINE;
+                }
+                else {
+                    value = 0;
+                    for (int n = 0; n < 8; n++) {
+                        if (this.apron[a + MinesweeperEngine.NEIGHBOR_ROWS[n] * width + MinesweeperEngine.NEIGHBOR_COLS[n]]) {
+                            value++;
+                        }
+                    }
+                }
+                cells[ly << Chunk.SHIFT | lx] = (byte) value;
+            }
+        }
+        this.numGenerated++;
+        return chunk;
+    }
+
+    // Spilling
+    // Keeps only what play changed, a 2 bit state per cell (0 covered, 1 revealed, 2 flagged), 256 bytes a chunk
+    private void spill(Chunk chunk) {
+        byte[] cells = chunk.getCells();
+        byte[] plane = new byte[Chunk.NUM_CELLS / 4];
+        for (int i = 0; i < Chunk.NUM_CELLS; i++) {
+            int state = (cells[i] & FlatBoardStorage.FLAGGED) != 0 ? 2 : (cells[i] & FlatBoardStorage.REVEALED) != 0 ? 1 : 0;
+            plane[i >>> 2] |= state << ((i & 3) << 1);
+        }
+
+        Long key = Chunk.key(chunk.getChunkX(), chunk.getChunkY());
+        this.numSpilled++;
+        if (this.spillFolder != null) {
+            try {
+                Files.createDirectories(this.spillFolder);
+                Files.write(this.spillFile(key), plane);
+                this.spilledToDisk.add(key);
+                return;
+            }
+            catch (IOException e) {
+                // a full or read-only disk still leaves memory, four times smaller than the chunk itself
+            }
+        }
+        this.spilledToDisk.remove(key);
+        this.spilledToMemory.put(key, plane);
+    }
+
+    private Path spillFile(long key) {
+        return this.spillFolder.resolve((int) (key >> 32) + "_" + (int) key + ".chunk");
+    }
+}
@@ -0,0 +1,104 @@
+package com.thwamster.engine;
+
+import java.util.Arrays;
+
+/*
+ * Counts of non-negative longs in fixed log-linear buckets, in the style of HdrHistogram.
+ * Values below 64 get a bucket each. Above that every power of two is split into 32 buckets, so a value is
+ * known to within about 3% across the whole long range with under 2000 buckets. Recording is a few shifts and
+ * an increment with no allocation, so it is cheap enough for every frame.
+ */
+public class LogHistogram {
+    /* Buckets */
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS; // buckets per power of two
+    private static final int LINEAR = SUB_COUNT * 2; // values below this are counted exactly
+    private static final int NUM_BUCKETS = LINEAR + (63 - SUB_BITS - 1) * SUB_COUNT;
+
+    /* Instance Variables */
+    private final long[] counts = new long[NUM_BUCKETS];
+    private long total; // values recorded
+    private long sum; // of every value recorded
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /* Helper Methods */
+    public long getTotal() { return this.total; }
+    public long getSum() { return this.sum; }
+    public long getMin() { return this.total == 0 ? 0 : this.min; }
+    public long getMax() { return this.max; }
+    public double getMean() { return this.total == 0 ? 0 : (double) this.sum / this.total; }
+    public boolean isEmpty() { return this.total == 0; }
+    public int getNumBuckets() { return NUM_BUCKETS; }
+    public long getCount(int bucket) { return this.counts[bucket]; }
+
+    public static int bucketOf(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int) (value >>> (exponent - SUB_BITS)); // SUB_COUNT to 2 * SUB_COUNT - 1
+        return LINEAR + (exponent - SUB_BITS - 1) * SUB_COUNT + mantissa - SUB_COUNT;
+    }
+
+    // Smallest value that falls in the bucket
+    public static long lowestOf(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR) / SUB_COUNT + SUB_BITS + 1;
+        long mantissa = (bucket - LINEAR) % SUB_COUNT + SUB_COUNT;
+        return mantissa << (exponent - SUB_BITS);
+    }
+
+    // Largest value that falls in the bucket
+    public static long highestOf(int bucket) {
+        return bucket + 1 < NUM_BUCKETS ? lowestOf(bucket + 1) - 1 : Long.MAX_VALUE;
+    }
+
+    // A value with at least fraction of the recorded values at or below it, within the precision of its bucket
+    public long percentile(double fraction) {
+        if (this.total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(fraction * this.total));
+        long seen = 0;
+        for (int b = 0; b < NUM_BUCKETS; b++) {
+            seen += this.counts[b];
+            if (seen >= target) {
+                return Math.min(this.max, highestOf(b));
+            }
+        }
+        return this.max;
+    }
+
+    /* Counting Methods */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        this.counts[bucketOf(value)]++;
+        this.total++;
+        this.sum += value;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+    }
+
+    public void merge(LogHistogram other) {
+        for (int b = 0; b < NUM_BUCKETS; b++) {
+            this.counts[b] += other.counts[b];
+        }
+        this.total += other.total;
+        this.sum += other.sum;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+    }
+
+    public void clear() {
+        Arrays.fill(this.counts, 0);
+        this.total = 0;
+        this.sum = 0;
+        this.min = Long.MAX_VALUE;
+        this.max = 0;
+    }
+}
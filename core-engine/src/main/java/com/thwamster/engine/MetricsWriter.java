@@ -0,0 +1,90 @@
+package com.thwamster.engine;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/*
+ * Writes the last interval of a StageMetrics out for offline analysis. The CSV gains one row per stage and
+ * counter each interval, so a long session reads as a time series. The JSON is replaced each interval and
+ * carries the same summary plus every non-empty bucket.
+ */
+public final class MetricsWriter {
+    private static final String CSV_HEADER = "time_ms,interval_ms,kind,name,count,mean,p50,p90,p99,max";
+
+    private MetricsWriter() { }
+
+    /* Writing Methods */
+    public static void appendCsv(Path path, StageMetrics metrics, long timeMillis) throws IOException {
+        boolean fresh = !Files.exists(path);
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (fresh) {
+                out.write(CSV_HEADER);
+                out.newLine();
+            }
+            long interval = metrics.getIntervalNanos() / 1_000_000;
+            for (int s = 0; s < metrics.getNumStages(); s++) {
+                writeRow(out, timeMillis, interval, "time_ns", metrics.getStage(s), metrics.getTimes(s));
+                if (metrics.isAllocationCounted()) {
+                    writeRow(out, timeMillis, interval, "alloc_bytes", metrics.getStage(s), metrics.getAllocations(s));
+                }
+            }
+            for (int c = 0; c < metrics.getNumCounters(); c++) {
+                writeRow(out, timeMillis, interval, "count", metrics.getCounter(c), metrics.getValues(c));
+            }
+        }
+    }
+
+    private static void writeRow(BufferedWriter out, long timeMillis, long interval, String kind, String name, LogHistogram histogram) throws IOException {
+        out.write(String.format(Locale.ROOT, "%d,%d,%s,%s,%d,%.1f,%d,%d,%d,%d", timeMillis, interval, kind, name, histogram.getTotal(),
+            histogram.getMean(), histogram.percentile(0.5), histogram.percentile(0.9), histogram.percentile(0.99), histogram.getMax()));
+        out.newLine();
+    }
+
+    // Writes to a temporary file and moves it into place, so a reader never sees half an interval
+    public static void writeJson(Path path, StageMetrics metrics, long timeMillis) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write(String.format(Locale.ROOT, "{\"time_ms\": %d, \"interval_ms\": %d, \"stages\": [", timeMillis, metrics.getIntervalNanos() / 1_000_000));
+            for (int s = 0; s < metrics.getNumStages(); s++) {
+                out.write(s == 0 ? "\n  " : ",\n  ");
+                out.write("{\"name\": \"" + metrics.getStage(s) + "\", \"time_ns\": ");
+                writeHistogram(out, metrics.getTimes(s));
+                if (metrics.isAllocationCounted()) {
+                    out.write(", \"alloc_bytes\": ");
+                    writeHistogram(out, metrics.getAllocations(s));
+                }
+                out.write("}");
+            }
+            out.write("\n], \"counters\": [");
+            for (int c = 0; c < metrics.getNumCounters(); c++) {
+                out.write(c == 0 ? "\n  " : ",\n  ");
+                out.write("{\"name\": \"" + metrics.getCounter(c) + "\", \"values\": ");
+                writeHistogram(out, metrics.getValues(c));
+                out.write("}");
+            }
+            out.write("\n]}\n");
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Buckets are written as [lowest value, count] pairs
+    private static void writeHistogram(BufferedWriter out, LogHistogram histogram) throws IOException {
+        out.write(String.format(Locale.ROOT, "{\"count\": %d, \"mean\": %.1f, \"min\": %d, \"p50\": %d, \"p90\": %d, \"p99\": %d, \"max\": %d, \"buckets\": [",
+            histogram.getTotal(), histogram.getMean(), histogram.getMin(), histogram.percentile(0.5), histogram.percentile(0.9),
+            histogram.percentile(0.99), histogram.getMax()));
+        boolean first = true;
+        for (int b = 0; b < histogram.getNumBuckets(); b++) {
+            if (histogram.getCount(b) > 0) {
+                out.write((first ? "[" : ", [") + LogHistogram.lowestOf(b) + ", " + histogram.getCount(b) + "]");
+                first = false;
+            }
+        }
+        out.write("]}");
+    }
+}
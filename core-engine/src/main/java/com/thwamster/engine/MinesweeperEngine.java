@@ -0,0 +1,479 @@
+package com.thwamster.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * The rules of Minesweeper with no rendering, input or file handling attached.
+ * Cells are addressed by their flat index, row * cols + col, as in BoardStorage.
+ */
+public class MinesweeperEngine {
+    /* Game Status */
+    public static final int LOST = -1;
+    public static final int READY = 0; // waiting for the first click, no bombs placed yet
+    public static final int PLAYING = 1;
+    public static final int WON = 2;
+
+    /* Neighbors */
+    public static final int[] NEIGHBOR_ROWS = {-1, -1, -1, 0, 0, 1, 1, 1};
+    public static final int[] NEIGHBOR_COLS = {-1, 0, 1, -1, 1, -1, 0, 1};
+
+    /* Buffers */
+    private static final int BUFFER_SIZE = 256; // starting length of revealStack and dirty, they double as needed
+
+    /* Instance Variables */
+    // Elements
+    private BoardStorage board; // mine, number, revealed and flagged state of every cell
+    private int numBombs; // the number of bombs in the grid
+    private int numFlags; // the number of flags the player has placed
+    private int numRevealed; // the number of safe cells the player has uncovered
+    private int numCorrectFlags; // the number of flags sitting on a bomb
+    private int numIncorrectFlags; // the number of flags sitting on a safe cell
+    private int gameStatus; // one of LOST, READY, PLAYING or WON
+    private long startTime; // beginning timer
+    private long finishTime; // end timer
+    private Random random; // draws the seed for each game, seedable for reproducible runs
+    private long gameSeed; // the seed this game's bombs were laid from, 0 for a layout made elsewhere
+    private final BombPlacer placer; // picks bomb cells from the game seed
+    private StripeGenerator stripes; // lays boards of StripeGenerator.MIN_CELLS or more in parallel, created when first needed
+    private final int[] neighborOffsets = new int[8]; // index distance to each neighbor, in NEIGHBOR_ROWS order
+    private int[] revealStack = new int[BUFFER_SIZE]; // work buffer of zero cells still to spread from while uncovering
+    private int[] bombs; // cell indices of the placed bombs
+
+    // Changed Cells
+    private int[] dirty = new int[BUFFER_SIZE]; // cells whose state changed since the last clearDirty
+    private int numDirty; // how much of dirty is filled
+    private boolean allDirty; // every cell may have changed, dirty is ignored
+    private final ArrayList<CellListener> listeners = new ArrayList<CellListener>(); // told about each change as it happens
+
+    /* Constructors */
+    public MinesweeperEngine(int newNumRows, int newNumCols, int newNumBombs) {
+        this(newNumRows, newNumCols, newNumBombs, new Random());
+    }
+
+    public MinesweeperEngine(int newNumRows, int newNumCols, int newNumBombs, Random random) {
+        this.random = random;
+        this.placer = new BombPlacer(new Random());
+        this.initialize(newNumRows, newNumCols, newNumBombs);
+    }
+
+    /* Helper Methods */
+    // Get Methods
+    public BoardStorage getBoard() { return this.board; }
+    public int getNumRows() { return this.board.getNumRows(); }
+    public int getNumCols() { return this.board.getNumCols(); }
+    public int getNumCells() { return this.board.getNumCells(); }
+    public int getNumBombs() { return this.numBombs; }
+    public int getNumFlags() { return this.numFlags; }
+    public int getNumRevealed() { return this.numRevealed; }
+    public int getNumCorrectFlags() { return this.numCorrectFlags; }
+    public int getNumIncorrectFlags() { return this.numIncorrectFlags; }
+    public int getGameStatus() { return this.gameStatus; }
+    public int[] getBombs() { return this.bombs; }
+    public long getGameSeed() { return this.gameSeed; }
+    public boolean isStriped() { return this.getNumCells() >= StripeGenerator.MIN_CELLS && this.board instanceof FlatBoardStorage; }
+
+    public StripeGenerator getStripeGenerator() {
+        if (this.stripes == null) {
+            this.stripes = new StripeGenerator(ForkJoinPool.commonPool());
+        }
+        return this.stripes;
+    }
+    public boolean isOver() { return this.gameStatus == LOST || this.gameStatus == WON; }
+
+    public long getElapsed() {
+        if (this.isOver()) {
+            return this.finishTime;
+        }
+        else if (this.gameStatus == PLAYING) {
+            return System.currentTimeMillis() - this.startTime;
+        }
+        else {
+            return 0;
+        }
+    }
+
+    // Set Methods
+    public void setRandom(Random newRandom) { this.random = newRandom; }
+    public void setSeed(long seed) { this.random.setSeed(seed); }
+
+    // Draws the seed for the next game, for a board laid away from the engine and handed back to start
+    public long nextSeed() { return this.random.nextLong(); }
+
+    // Cells
+    public int index(int row, int col) { return this.board.index(row, col); }
+
+    public boolean validCell(int row, int col) {
+        return row >= 0 && row < this.getNumRows() && col >= 0 && col < this.getNumCols();
+    }
+
+    public boolean isCovered(int index) {
+        return !this.board.isRevealed(index) && !this.board.isFlagged(index);
+    }
+
+    // Changed Cells
+    public int[] getDirty() { return this.dirty; }
+    public int getNumDirty() { return this.numDirty; }
+    public boolean isAllDirty() { return this.allDirty; }
+
+    public void clearDirty() {
+        this.numDirty = 0;
+        this.allDirty = false;
+    }
+
+    private void markDirty(int index) {
+        if (this.numDirty == this.dirty.length && this.dirty.length < this.getNumCells()) {
+            this.dirty = Arrays.copyOf(this.dirty, Math.min(2 * this.dirty.length, this.getNumCells()));
+        }
+        if (this.numDirty < this.dirty.length) {
+            this.dirty[this.numDirty++] = index;
+        }
+        else {
+            this.allDirty = true;
+        }
+        for (int i = 0; i < this.listeners.size(); i++) {
+            this.listeners.get(i).cellChanged(index);
+        }
+    }
+
+    // Listeners
+    public void addListener(CellListener listener) { this.listeners.add(listener); }
+    public void removeListener(CellListener listener) { this.listeners.remove(listener); }
+
+    /* Initialization Methods */
+    public void initialize(int newNumRows, int newNumCols, int newNumBombs) {
+        // the same size again keeps its buffers, reset clears them
+        if (this.board == null || this.board.getNumRows() != newNumRows || this.board.getNumCols() != newNumCols) {
+            this.board = new FlatBoardStorage(newNumRows, newNumCols);
+            // sized by the largest opening seen rather than the board, which may be too big to hold twice more
+            this.revealStack = new int[BUFFER_SIZE];
+            this.dirty = new int[BUFFER_SIZE];
+            for (int n = 0; n < 8; n++) {
+                this.neighborOffsets[n] = NEIGHBOR_ROWS[n] * newNumCols + NEIGHBOR_COLS[n];
+            }
+        }
+        this.numBombs = newNumBombs;
+        this.reset();
+    }
+
+    // Places the bombs, keeping safeIndex clear. A safeIndex of -1 leaves every cell open to a bomb.
+    public void start(int safeIndex) {
+        this.start(safeIndex, this.random.nextLong());
+    }
+
+    // Lays the bombs from a given game seed, so the same seed and first click always give the same board.
+    // A very large board is laid and numbered in parallel stripes, which give the same board for a seed however
+    // many threads there are, but not the same board a smaller one would.
+    public void start(int safeIndex, long seed) {
+        if (this.isStriped()) {
+            int[] layout = this.getStripeGenerator().generate((FlatBoardStorage) this.board, this.numBombs, safeIndex, seed);
+            this.gameStatus = PLAYING;
+            this.startTime = System.currentTimeMillis();
+            this.takeBombs(layout);
+        }
+        else {
+            this.placer.setSeed(seed);
+            this.start(this.placer.place(this.getNumCells(), this.numBombs, safeIndex));
+        }
+        this.gameSeed = seed;
+    }
+
+    // Starts on a board laid and numbered elsewhere, such as by a StripeGenerator on another thread, which takes
+    // the place of the engine's own. It must be the same size and carry the flags placed so far, and layout lists
+    // its bombs. The engine keeps both.
+    public void start(FlatBoardStorage laid, int[] layout, long seed) {
+        if (laid.getNumRows() != this.getNumRows() || laid.getNumCols() != this.getNumCols()) {
+            throw new IllegalArgumentException("Cannot start a " + this.getNumRows() + "x" + this.getNumCols()
+                + " game on a " + laid.getNumRows() + "x" + laid.getNumCols() + " board");
+        }
+        this.board = laid;
+        this.gameStatus = PLAYING;
+        this.startTime = System.currentTimeMillis();
+        this.takeBombs(layout);
+        this.gameSeed = seed;
+        this.numDirty = 0;
+        this.allDirty = true;
+        for (int i = 0; i < this.listeners.size(); i++) {
+            this.listeners.get(i).boardReset();
+        }
+    }
+
+    // Starts with bombs chosen elsewhere, such as a layout from a NoGuessGenerator. The engine keeps the array.
+    public void start(int[] layout) {
+        this.gameStatus = PLAYING;
+        this.startTime = System.currentTimeMillis();
+
+        this.placeBombs(layout);
+        this.numberBoard();
+    }
+
+    public void finish(int finishStatus) {
+        this.finishTime = System.currentTimeMillis() - this.startTime;
+        this.gameStatus = finishStatus;
+    }
+
+    public void reset() {
+        this.board.clear();
+        this.bombs = new int[0];
+        this.numFlags = 0;
+        this.numRevealed = 0;
+        this.numCorrectFlags = 0;
+        this.numIncorrectFlags = 0;
+        this.gameStatus = READY;
+        this.gameSeed = 0;
+        this.numDirty = 0;
+        this.allDirty = true;
+        for (int i = 0; i < this.listeners.size(); i++) {
+            this.listeners.get(i).boardReset();
+        }
+    }
+
+    // Picks a saved game back up. The board's mine, revealed and flagged bits must already be in place,
+    // the numbers, bomb list and counters are rebuilt from them.
+    public void restore(int status, long elapsed, long seed) {
+        int numCells = this.getNumCells();
+        int[] mines = new int[this.numBombs]; // the saved count, grown if the board holds more
+        int numMines = 0;
+        this.numFlags = 0;
+        this.numRevealed = 0;
+        this.numCorrectFlags = 0;
+        this.numIncorrectFlags = 0;
+        for (int i = 0; i < numCells; i++) {
+            if (this.board.isMine(i)) {
+                if (numMines == mines.length) {
+                    mines = Arrays.copyOf(mines, Math.max(16, numMines * 2));
+                }
+                mines[numMines++] = i;
+            }
+            if (this.board.isFlagged(i)) {
+                this.numFlags++;
+                this.countFlag(i, 1);
+            }
+            else if (this.board.isRevealed(i) && !this.board.isMine(i)) {
+                this.numRevealed++;
+            }
+        }
+        this.bombs = numMines == mines.length ? mines : Arrays.copyOf(mines, numMines);
+        if (status != READY) {
+            this.numBombs = numMines;
+        }
+        this.board.numberAll();
+
+        this.gameStatus = status;
+        this.gameSeed = seed;
+        this.startTime = System.currentTimeMillis() - elapsed;
+        this.finishTime = elapsed;
+        this.numDirty = 0;
+        this.allDirty = true;
+        for (int i = 0; i < this.listeners.size(); i++) {
+            this.listeners.get(i).boardReset();
+        }
+    }
+
+    // Bombs
+    private void placeBombs(int[] layout) {
+        for (int index : layout) {
+            this.board.setMine(index);
+        }
+        this.takeBombs(layout);
+    }
+
+    // Keeps a layout whose bombs are already on the board
+    private void takeBombs(int[] layout) {
+        this.bombs = layout;
+        for (int index : this.bombs) {
+            // flags placed before the first click were all counted as incorrect
+            if (this.board.isFlagged(index)) {
+                this.numIncorrectFlags--;
+                this.numCorrectFlags++;
+            }
+        }
+        this.numBombs = this.bombs.length;
+    }
+
+    // Numbers
+    // Each bomb adds one to every safe neighbor, so the pass only touches the cells around bombs
+    private void numberBoard() {
+        int numRows = this.getNumRows();
+        int numCols = this.getNumCols();
+
+        for (int index : this.bombs) {
+            int row = index / numCols;
+            int col = index - row * numCols;
+
+            for (int n = 0; n < 8; n++) {
+                int r = row + NEIGHBOR_ROWS[n];
+                int c = col + NEIGHBOR_COLS[n];
+                if (r >= 0 && r < numRows && c >= 0 && c < numCols) {
+                    int neighbor = index + this.neighborOffsets[n];
+                    if (!this.board.isMine(neighbor)) {
+                        this.board.incrementNumber(neighbor);
+                    }
+                }
+            }
+        }
+    }
+
+    /* Action Methods */
+    // Uncovers a cell, starting the game first if needed. Returns the number of cells revealed.
+    public int reveal(int index) {
+        if (this.gameStatus == READY) {
+            this.start(index);
+        }
+        if (this.gameStatus != PLAYING || !this.isCovered(index)) {
+            return 0;
+        }
+
+        if (this.board.isMine(index)) {
+            this.lose();
+            return 0;
+        }
+
+        int revealed = this.uncoverLocation(index);
+        this.checkVictory();
+        return revealed;
+    }
+
+    // Places or removes a flag. Returns whether anything changed.
+    public boolean flag(int index) {
+        if (this.isOver()) {
+            return false;
+        }
+
+        if (this.isCovered(index)) {
+            this.board.setFlagged(index, true);
+            this.markDirty(index);
+            this.numFlags++;
+            this.countFlag(index, 1);
+            return true;
+        }
+        else if (this.board.isFlagged(index)) {
+            this.board.setFlagged(index, false);
+            this.markDirty(index);
+            this.numFlags--;
+            this.countFlag(index, -1);
+            return true;
+        }
+        return false;
+    }
+
+    // Uncovers every unflagged neighbor of a revealed number once it has that many flags around it
+    public int chord(int index) {
+        if (this.gameStatus != PLAYING || !this.board.isRevealed(index) || this.board.isMine(index)) {
+            return 0;
+        }
+
+        int number = this.board.getNumber(index);
+        int numRows = this.getNumRows();
+        int numCols = this.getNumCols();
+        int row = index / numCols;
+        int col = index - row * numCols;
+
+        int flags = 0;
+        for (int n = 0; n < 8; n++) {
+            int r = row + NEIGHBOR_ROWS[n];
+            int c = col + NEIGHBOR_COLS[n];
+            if (r >= 0 && r < numRows && c >= 0 && c < numCols && this.board.isFlagged(index + this.neighborOffsets[n])) {
+                flags++;
+            }
+        }
+        if (number == 0 || flags != number) {
+            return 0;
+        }
+
+        int revealed = 0;
+        for (int n = 0; n < 8; n++) {
+            int r = row + NEIGHBOR_ROWS[n];
+            int c = col + NEIGHBOR_COLS[n];
+            if (r < 0 || r >= numRows || c < 0 || c >= numCols) {
+                continue;
+            }
+
+            int neighbor = index + this.neighborOffsets[n];
+            if (this.isCovered(neighbor)) {
+                if (this.board.isMine(neighbor)) {
+                    this.lose();
+                    return revealed;
+                }
+                revealed += this.uncoverLocation(neighbor);
+            }
+        }
+        this.checkVictory();
+        return revealed;
+    }
+
+    private void countFlag(int index, int change) {
+        if (this.board.isMine(index)) {
+            this.numCorrectFlags += change;
+        }
+        else {
+            this.numIncorrectFlags += change;
+        }
+    }
+
+    private void checkVictory() {
+        if (this.numRevealed == this.getNumCells() - this.numBombs) {
+            this.finish(WON);
+        }
+    }
+
+    private void lose() {
+        this.finish(LOST);
+        this.uncoverAllLocations();
+    }
+
+    // Uncovering
+    // Reveals a covered safe cell and, when it is a zero, spreads out to the whole opening. Returns the cells revealed.
+    private int uncoverLocation(int start) {
+        int numRows = this.getNumRows();
+        int numCols = this.getNumCols();
+
+        this.board.setRevealed(start, true);
+        this.markDirty(start);
+        int revealed = 1;
+        int size = 0;
+        if (this.board.getNumber(start) == 0) {
+            this.revealStack[size++] = start;
+        }
+
+        while (size > 0) {
+            int index = this.revealStack[--size];
+            int row = index / numCols;
+            int col = index - row * numCols;
+
+            for (int n = 0; n < 8; n++) {
+                int r = row + NEIGHBOR_ROWS[n];
+                int c = col + NEIGHBOR_COLS[n];
+                if (r < 0 || r >= numRows || c < 0 || c >= numCols) {
+                    continue;
+                }
+
+                int neighbor = index + this.neighborOffsets[n];
+                if (this.isCovered(neighbor) && !this.board.isMine(neighbor)) {
+                    this.board.setRevealed(neighbor, true);
+                    this.markDirty(neighbor);
+                    revealed++;
+                    // cells are revealed before they are queued, so each zero is queued at most once
+                    if (this.board.getNumber(neighbor) == 0) {
+                        if (size == this.revealStack.length) {
+                            this.revealStack = Arrays.copyOf(this.revealStack, 2 * size);
+                        }
+                        this.revealStack[size++] = neighbor;
+                    }
+                }
+            }
+        }
+        this.numRevealed += revealed;
+        return revealed;
+    }
+
+    private void uncoverAllLocations() {
+        for (int i = 0; i < this.getNumCells(); i++) {
+            this.board.setFlagged(i, false);
+            this.board.setRevealed(i, true);
+        }
+        this.allDirty = true;
+    }
+}
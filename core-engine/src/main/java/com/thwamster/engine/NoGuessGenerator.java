@@ -0,0 +1,116 @@
+package com.thwamster.engine;
+
+import java.util.Random;
+
+/*
+ * Makes bomb layouts that can be cleared from the first click without ever guessing.
+ *
+ * Candidates are drawn at random and played out by a Solver that only makes moves it can prove safe; a layout is
+ * kept once that play wins. The board is split into REGION_SIZE square regions and every cell within two of a
+ * region's center is kept clear, so a first click anywhere in the region lands on a zero and opens the same
+ * area as a click on the center. One checked layout therefore serves any first click in its region.
+ *
+ * Not thread safe, each thread needs its own generator.
+ */
+public class NoGuessGenerator {
+    /* Regions */
+    public static final int REGION_SIZE = 3;
+    private static final int CLEAR_RADIUS = 2; // rows and columns kept clear around a region's center
+
+    /* Instance Variables */
+    private final int numRows;
+    private final int numCols;
+    private final int numBombs;
+    private final int regionRows; // number of regions down the board
+    private final int regionCols; // number of regions across the board
+    private final BombPlacer placer;
+    private final MinesweeperEngine engine; // scratch game the candidates are played out on
+    private final Solver solver;
+    private int attempts; // candidates tried by the last call to generate
+
+    /* Constructor */
+    public NoGuessGenerator(int newNumRows, int newNumCols, int newNumBombs, Random random) {
+        this.numRows = newNumRows;
+        this.numCols = newNumCols;
+        this.numBombs = newNumBombs;
+        this.regionRows = (newNumRows + REGION_SIZE - 1) / REGION_SIZE;
+        this.regionCols = (newNumCols + REGION_SIZE - 1) / REGION_SIZE;
+        this.placer = new BombPlacer(random);
+        this.engine = new MinesweeperEngine(newNumRows, newNumCols, newNumBombs);
+        this.solver = new Solver(this.engine);
+    }
+
+    /* Helper Methods */
+    public int getNumRegions() { return this.regionRows * this.regionCols; }
+    public int getAttempts() { return this.attempts; }
+
+    public int regionOf(int index) {
+        int row = index / this.numCols;
+        int col = index - row * this.numCols;
+        return (row / REGION_SIZE) * this.regionCols + col / REGION_SIZE;
+    }
+
+    // The cell a region's layouts are checked from, the middle of its block where the block is whole
+    public int regionCenter(int region) {
+        int regionRow = region / this.regionCols;
+        int regionCol = region - regionRow * this.regionCols;
+        int row = Math.min(regionRow * REGION_SIZE + REGION_SIZE / 2, this.numRows - 1);
+        int col = Math.min(regionCol * REGION_SIZE + REGION_SIZE / 2, this.numCols - 1);
+        return row * this.numCols + col;
+    }
+
+    /* Generation Methods */
+    // Returns a layout that can be solved from any first click in the region, or null if none turned up in time
+    public int[] generate(int region, int maxAttempts) {
+        int center = this.regionCenter(region);
+        int[] clear = this.clearCells(center);
+        this.attempts = 0;
+        if (this.numRows * this.numCols - clear.length < this.numBombs) {
+            return null; // the bombs do not fit around the clear area
+        }
+
+        while (this.attempts < maxAttempts) {
+            this.attempts++;
+            int[] layout = this.placer.place(this.numRows * this.numCols, this.numBombs, clear);
+            if (this.isSolvable(layout, center)) {
+                return layout;
+            }
+        }
+        return null;
+    }
+
+    // Plays the layout out from firstClick using only moves the solver can prove safe
+    public boolean isSolvable(int[] layout, int firstClick) {
+        this.engine.reset();
+        this.engine.start(layout);
+        this.engine.reveal(firstClick);
+
+        while (this.engine.getGameStatus() == MinesweeperEngine.PLAYING) {
+            int cell = this.solver.findSafe();
+            if (cell < 0) {
+                return false;
+            }
+            this.engine.reveal(cell);
+        }
+        return this.engine.getGameStatus() == MinesweeperEngine.WON;
+    }
+
+    // Every cell within CLEAR_RADIUS of the center, in index order as BombPlacer expects
+    private int[] clearCells(int center) {
+        int row = center / this.numCols;
+        int col = center - row * this.numCols;
+        int firstRow = Math.max(0, row - CLEAR_RADIUS);
+        int lastRow = Math.min(this.numRows - 1, row + CLEAR_RADIUS);
+        int firstCol = Math.max(0, col - CLEAR_RADIUS);
+        int lastCol = Math.min(this.numCols - 1, col + CLEAR_RADIUS);
+
+        int[] clear = new int[(lastRow - firstRow + 1) * (lastCol - firstCol + 1)];
+        int i = 0;
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                clear[i++] = r * this.numCols + c;
+            }
+        }
+        return clear;
+    }
+}
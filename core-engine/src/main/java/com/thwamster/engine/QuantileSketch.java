@@ -0,0 +1,289 @@
+package com.thwamster.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+ * Approximate ranks and quantiles of a stream of longs in a fixed amount of memory, after the KLL sketch.
+ * Values sit in levels, an item on level h standing in for 2^h of the values seen. When the items outgrow the
+ * levels' capacity, the lowest full level is sorted and every other item, starting at random from the first or
+ * second, moves up a level. Capacities shrink by 2/3 per level down from the top, so a sketch with k = 200 holds
+ * a few hundred items however many values it has seen, and a rank is off by about 1-2% of the count.
+ * Below k values nothing has been compacted and ranks are exact.
+ *
+ * Sketches merge by pooling their levels and compacting, so sketches kept on different machines combine into one
+ * of the whole fleet. Queries read a sorted view of every item with its cumulative weight, rebuilt on the first
+ * query after a change, so each rank or quantile is a binary search.
+ */
+public class QuantileSketch {
+    /* Size */
+    public static final int DEFAULT_K = 200;
+    private static final int MIN_CAPACITY = 2; // the smallest a level can be and still compact
+
+    /* Instance Variables */
+    private final int k; // capacity of the top level
+    private long[][] levels = {new long[8]}; // items, unsorted between compactions
+    private int[] sizes = new int[1];
+    private int numLevels = 1;
+    private int numItems; // across every level
+    private int totalCapacity; // of every level at the current height
+    private long count; // values seen, which is the items weighted by their level
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+    private long random = 0x9E37_79B9_7F4A_7C15L; // xorshift state, picks which half of a level moves up
+
+    // Sorted view, every item in order with the weight of it and everything before it
+    private long[] viewValues = new long[0];
+    private long[] viewWeights = new long[0];
+    private boolean viewStale;
+
+    /* Constructor */
+    public QuantileSketch(int newK) {
+        if (newK < MIN_CAPACITY) {
+            throw new IllegalArgumentException("k must be at least " + MIN_CAPACITY);
+        }
+        this.k = newK;
+        this.totalCapacity = this.capacity(0);
+    }
+
+    /* Helper Methods */
+    public int getK() { return this.k; }
+    public long getCount() { return this.count; }
+    public long getMin() { return this.count == 0 ? 0 : this.min; }
+    public long getMax() { return this.count == 0 ? 0 : this.max; }
+    public boolean isEmpty() { return this.count == 0; }
+    public int getNumItems() { return this.numItems; }
+
+    // Capacity of level h, shrinking by 2/3 for each level it sits below the top
+    private int capacity(int level) {
+        int depth = this.numLevels - 1 - level;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(this.k * Math.pow(2.0 / 3, depth)));
+    }
+
+    /* Counting Methods */
+    public void update(long value) {
+        this.add(0, value);
+        this.count++;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+        this.viewStale = true;
+        this.compress();
+    }
+
+    // Folds another sketch in, as though this one had seen its values too. The other sketch is left as it was.
+    public void merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        for (int h = 0; h < other.numLevels; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                this.add(h, other.levels[h][i]);
+            }
+        }
+        this.count += other.count;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+        this.viewStale = true;
+        this.compress();
+    }
+
+    private void add(int level, long value) {
+        while (level >= this.numLevels) {
+            this.addLevel();
+        }
+        if (this.sizes[level] == this.levels[level].length) {
+            this.levels[level] = Arrays.copyOf(this.levels[level], this.sizes[level] * 2);
+        }
+        this.levels[level][this.sizes[level]++] = value;
+        this.numItems++;
+    }
+
+    private void addLevel() {
+        this.levels = Arrays.copyOf(this.levels, this.numLevels + 1);
+        this.sizes = Arrays.copyOf(this.sizes, this.numLevels + 1);
+        this.levels[this.numLevels] = new long[8];
+        this.numLevels++;
+
+        this.totalCapacity = 0;
+        for (int h = 0; h < this.numLevels; h++) {
+            this.totalCapacity += this.capacity(h);
+        }
+    }
+
+    // While there are more items than room, some level is over its own capacity, so compact the lowest one
+    private void compress() {
+        while (this.numItems > this.totalCapacity) {
+            for (int h = 0; h < this.numLevels; h++) {
+                if (this.sizes[h] >= this.capacity(h)) {
+                    this.compact(h);
+                    break;
+                }
+            }
+        }
+    }
+
+    // Sorts the level and moves every other item up, each now standing for twice as many values.
+    // An odd item out stays behind, so the weights still add up to the count.
+    private void compact(int level) {
+        if (level + 1 == this.numLevels) {
+            this.addLevel();
+        }
+        long[] items = this.levels[level];
+        int size = this.sizes[level];
+        Arrays.sort(items, 0, size);
+
+        int keep = size & 1;
+        this.random ^= this.random << 13;
+        this.random ^= this.random >>> 7;
+        this.random ^= this.random << 17;
+        for (int i = keep + (int) (this.random & 1); i < size; i += 2) {
+            this.add(level + 1, items[i]);
+        }
+        this.sizes[level] = keep;
+        this.numItems -= size - keep;
+    }
+
+    /* Query Methods */
+    // How many of the values seen are at or below value, within the sketch's error
+    public long countAtMost(long value) {
+        this.buildView();
+        int low = 0;
+        int high = this.viewValues.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.viewValues[middle] <= value) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low == 0 ? 0 : this.viewWeights[low - 1];
+    }
+
+    // Share of the values seen at or below value, from 0 to 1
+    public double rank(long value) { return this.count == 0 ? 0 : (double) this.countAtMost(value) / this.count; }
+
+    // A value with at least fraction of the values seen at or below it
+    public long quantile(double fraction) {
+        if (this.count == 0) {
+            return 0;
+        }
+        this.buildView();
+        long target = Math.max(1, (long) Math.ceil(fraction * this.count));
+        int low = 0;
+        int high = this.viewWeights.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.viewWeights[middle] < target) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return this.viewValues[low];
+    }
+
+    // Sorts each level, then merges them one at a time into the view
+    private void buildView() {
+        if (!this.viewStale && this.viewValues.length == this.numItems) {
+            return;
+        }
+        long[] values = new long[this.numItems];
+        long[] weights = new long[this.numItems];
+        long[] mergedValues = new long[this.numItems];
+        long[] mergedWeights = new long[this.numItems];
+        int size = 0;
+        for (int h = 0; h < this.numLevels; h++) {
+            long[] items = this.levels[h];
+            int numLevel = this.sizes[h];
+            Arrays.sort(items, 0, numLevel);
+            long weight = 1L << h;
+
+            int a = 0;
+            int b = 0;
+            int out = 0;
+            while (a < size || b < numLevel) {
+                if (b == numLevel || (a < size && values[a] <= items[b])) {
+                    mergedValues[out] = values[a];
+                    mergedWeights[out++] = weights[a++];
+                }
+                else {
+                    mergedValues[out] = items[b++];
+                    mergedWeights[out++] = weight;
+                }
+            }
+            size = out;
+            long[] swap = values;
+            values = mergedValues;
+            mergedValues = swap;
+            swap = weights;
+            weights = mergedWeights;
+            mergedWeights = swap;
+        }
+        for (int i = 1; i < size; i++) {
+            weights[i] += weights[i - 1];
+        }
+        this.viewValues = values;
+        this.viewWeights = weights;
+        this.viewStale = false;
+    }
+
+    /* Saving */
+    public int getSerializedSize() { return 4 + 3 * 8 + 4 + this.numLevels * 4 + this.numItems * 8; }
+
+    public void write(ByteBuffer out) {
+        out.putInt(this.k);
+        out.putLong(this.count);
+        out.putLong(this.min);
+        out.putLong(this.max);
+        out.putInt(this.numLevels);
+        for (int h = 0; h < this.numLevels; h++) {
+            out.putInt(this.sizes[h]);
+            for (int i = 0; i < this.sizes[h]; i++) {
+                out.putLong(this.levels[h][i]);
+            }
+        }
+    }
+
+    // Reads a sketch written by write, checking its items add up to its count
+    public static QuantileSketch read(ByteBuffer in) throws IOException {
+        int k = in.getInt();
+        if (k < MIN_CAPACITY) {
+            throw new IOException("Bad sketch size " + k);
+        }
+        QuantileSketch sketch = new QuantileSketch(k);
+        long count = in.getLong();
+        long min = in.getLong();
+        long max = in.getLong();
+        int numLevels = in.getInt();
+        if (numLevels < 1 || numLevels > 62) {
+            throw new IOException("Bad sketch height " + numLevels);
+        }
+
+        long weight = 0;
+        for (int h = 0; h < numLevels; h++) {
+            int size = in.getInt();
+            if (size < 0 || size > in.remaining() / 8) {
+                throw new IOException("Bad sketch level size " + size);
+            }
+            for (int i = 0; i < size; i++) {
+                sketch.add(h, in.getLong());
+            }
+            weight += (long) size << h;
+        }
+        while (sketch.numLevels < numLevels) {
+            sketch.addLevel(); // empty levels at the top still set the capacities
+        }
+        if (weight != count) {
+            throw new IOException("Sketch items weigh " + weight + ", not its count " + count);
+        }
+        sketch.count = count;
+        sketch.min = min;
+        sketch.max = max;
+        sketch.viewStale = true;
+        return sketch;
+    }
+}
@@ -0,0 +1,129 @@
+package com.thwamster.engine;
+
+/*
+ * Rebuilds a recorded game from its GameJournal, one action at a time or by jumping straight to any action.
+ *
+ * The first time play passes every interval-th action, a keyframe snapshot of the board is kept. Once the game
+ * has been played through, a seek lands on the nearest keyframe at or before its target and replays at most
+ * interval actions from there, however long the game is.
+ */
+public class Replay {
+    /* Keyframes */
+    public static final int DEFAULT_INTERVAL = 64; // actions between keyframes
+
+    /* Instance Variables */
+    private final GameJournal journal;
+    private final MinesweeperEngine engine; // the rebuilt game, as of position
+    private final int interval;
+    private final int numActions;
+    private final int[] types;
+    private final int[] cells;
+    private final long[] times;
+    private final byte[][] keyframes; // the board after every interval-th action, null until play has passed it
+    private int position; // actions applied so far
+
+    /* Constructors */
+    public Replay(GameJournal newJournal) {
+        this(newJournal, DEFAULT_INTERVAL);
+    }
+
+    public Replay(GameJournal newJournal, int newInterval) {
+        this.journal = newJournal;
+        this.interval = Math.max(1, newInterval);
+        this.engine = new MinesweeperEngine(newJournal.getNumRows(), newJournal.getNumCols(), newJournal.getNumBombs());
+
+        this.numActions = newJournal.getNumActions();
+        this.types = new int[this.numActions];
+        this.cells = new int[this.numActions];
+        this.times = new long[this.numActions];
+        newJournal.decode(this.types, this.cells, this.times);
+        this.keyframes = new byte[this.numActions / this.interval + 1][];
+    }
+
+    /* Helper Methods */
+    public GameJournal getJournal() { return this.journal; }
+    public MinesweeperEngine getEngine() { return this.engine; }
+    public int getPosition() { return this.position; }
+    public int getNumActions() { return this.numActions; }
+    public int getType(int action) { return this.types[action]; }
+    public int getCell(int action) { return this.cells[action]; }
+    public long getTime(int action) { return this.times[action]; }
+
+    // Game time as of the current position
+    public long getTime() { return this.position == 0 ? 0 : this.times[this.position - 1]; }
+
+    /* Replay Methods */
+    // Applies the next action. Returns false at the end of the journal.
+    public boolean step() {
+        if (this.position >= this.numActions) {
+            return false;
+        }
+        apply(this.engine, this.journal, this.types[this.position], this.cells[this.position]);
+        this.position++;
+        // a finished board has lost the flag and reveal counts it ended with, so it is replayed rather than kept
+        if (this.position % this.interval == 0 && this.keyframes[this.position / this.interval] == null && !this.engine.isOver()) {
+            this.keyframes[this.position / this.interval] = GameSnapshot.capture(this.engine, this.getTime());
+        }
+        return true;
+    }
+
+    // Moves to the state after the first target actions, forwards or backwards
+    public void seek(int target) {
+        target = Math.max(0, Math.min(this.numActions, target));
+        int keyframe = target / this.interval;
+        while (keyframe > 0 && this.keyframes[keyframe] == null) {
+            keyframe--;
+        }
+
+        // playing on from where we are beats going back to a keyframe whenever we are already past it
+        int from = keyframe * this.interval;
+        if (this.position < from || this.position > target) {
+            if (keyframe == 0) {
+                this.engine.initialize(this.journal.getNumRows(), this.journal.getNumCols(), this.journal.getNumBombs());
+            }
+            else {
+                GameSnapshot.restore(this.engine, this.keyframes[keyframe]);
+            }
+            this.position = from;
+        }
+        while (this.position < target) {
+            this.step();
+        }
+    }
+
+    // Makes one recorded action the way GameBoard makes a click. Returns false for an action no click could make.
+    static boolean apply(MinesweeperEngine engine, GameJournal journal, int type, int cell) {
+        boolean onBoard = cell >= 0 && cell < engine.getNumCells();
+        switch (type) {
+            case GameJournal.REVEAL:
+                if (!onBoard && cell != -1) {
+                    return false;
+                }
+                // a first click off the board still starts the game, just without a safe cell
+                if (engine.getGameStatus() == MinesweeperEngine.READY) {
+                    if (journal.getLayout() != null) {
+                        engine.start(journal.getLayout().clone());
+                    }
+                    else {
+                        engine.start(cell, journal.getSeed());
+                    }
+                }
+                if (onBoard) {
+                    engine.reveal(cell);
+                }
+                return true;
+            case GameJournal.FLAG:
+                if (onBoard) {
+                    engine.flag(cell);
+                }
+                return onBoard;
+            case GameJournal.CHORD:
+                if (onBoard) {
+                    engine.chord(cell);
+                }
+                return onBoard;
+            default:
+                return false;
+        }
+    }
+}
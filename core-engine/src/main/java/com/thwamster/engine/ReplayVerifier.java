@@ -0,0 +1,78 @@
+package com.thwamster.engine;
+
+/*
+ * Checks a submitted time against the game that produced it before the time reaches a scoreboard.
+ * The journal has to replay to a win, the winning action has to be its last, and that action has to carry
+ * exactly the claimed time. A listed layout also has to hold the number of bombs the board claims.
+ *
+ * One verifier reuses one engine and its buffers for every journal of the same size, so checking a game costs
+ * about as much as playing its clicks. It is not thread safe, give each thread its own.
+ */
+public class ReplayVerifier {
+    /* Verdicts */
+    public static final int VALID = 0;
+    public static final int BAD_LAYOUT = 1; // a listed layout with the wrong number of bombs
+    public static final int BAD_ACTION = 2; // a cell off the board or an unknown action type
+    public static final int NOT_WON = 3; // the actions never win the game
+    public static final int EXTRA_ACTIONS = 4; // actions after the game was already over
+    public static final int WRONG_TIME = 5; // the win does not carry the claimed time
+
+    /* Instance Variables */
+    private MinesweeperEngine engine;
+    private int[] types = new int[256];
+    private int[] cells = new int[256];
+    private long[] times = new long[256];
+
+    /* Helper Methods */
+    public static String describe(int verdict) {
+        switch (verdict) {
+            case VALID: return "valid";
+            case BAD_LAYOUT: return "layout does not match the bomb count";
+            case BAD_ACTION: return "action no click could make";
+            case NOT_WON: return "game is not won";
+            case EXTRA_ACTIONS: return "actions after the game ended";
+            case WRONG_TIME: return "time does not match";
+            default: return "unknown verdict " + verdict;
+        }
+    }
+
+    /* Verifying Methods */
+    public int verify(GameJournal journal, long claimedTime) {
+        int[] layout = journal.getLayout();
+        if (layout != null && layout.length != journal.getNumBombs()) {
+            return BAD_LAYOUT;
+        }
+
+        int numActions = journal.getNumActions();
+        if (numActions > this.types.length) {
+            int capacity = Math.max(numActions, this.types.length * 2);
+            this.types = new int[capacity];
+            this.cells = new int[capacity];
+            this.times = new long[capacity];
+        }
+        journal.decode(this.types, this.cells, this.times);
+
+        if (this.engine == null) {
+            this.engine = new MinesweeperEngine(journal.getNumRows(), journal.getNumCols(), journal.getNumBombs());
+        }
+        else {
+            this.engine.initialize(journal.getNumRows(), journal.getNumCols(), journal.getNumBombs());
+        }
+
+        for (int a = 0; a < numActions; a++) {
+            if (this.engine.isOver()) {
+                return EXTRA_ACTIONS;
+            }
+            if (!Replay.apply(this.engine, journal, this.types[a], this.cells[a])) {
+                return BAD_ACTION;
+            }
+        }
+        if (this.engine.getGameStatus() != MinesweeperEngine.WON) {
+            return NOT_WON;
+        }
+        if (this.times[numActions - 1] != claimedTime) {
+            return WRONG_TIME;
+        }
+        return VALID;
+    }
+}
@@ -0,0 +1,293 @@
+package com.thwamster.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/*
+ * Finishing times for one board configuration, kept as an append-only log of longs.
+ * The log starts with an 8 byte header, then holds one 8 byte record per score:
+ * the time in milliseconds in the low 48 bits and a check of that time in the high 16 bits.
+ * A score may be followed by a second record holding its BoardMetrics, packed the same way but with a salted
+ * check, so it can never pass for a time and logs from before it still read. Metrics only count straight after a
+ * valid time, so an orphan whose time was damaged is dropped with it.
+ * Records that fail the check, or a torn record at the end, are dropped on load and the log is compacted.
+ * A log that starts with a valid record rather than the header lost it, and keeps that record.
+ * Only the fastest times are kept in memory, sorted, so drawing the scoreboard never touches the disk.
+ */
+public class ScoreStore {
+    /* Format */
+    private static final long HEADER = 0x4D53_5343_4F52_4531L; // "MSSCORE1"
+    private static final int RECORD_SIZE = 8;
+    private static final long TIME_MASK = 0xFFFF_FFFF_FFFFL;
+    private static final long METRICS_SALT = 0xB3B5L; // flips the check of a metrics record
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /* Instance Variables */
+    private final Path path; // binary log file
+    private final long[] top; // fastest times, ascending
+    private final long[] topMetrics; // packed BoardMetrics of each, -1 where the score was saved without them
+    private int numTop; // how much of top is filled
+    private int numScores; // every valid score in the log, not just the fastest
+
+    /* Constructor */
+    public ScoreStore(Path newPath, int topSize) {
+        this.path = newPath;
+        this.top = new long[topSize];
+        this.topMetrics = new long[topSize];
+    }
+
+    /* Helper Methods */
+    public Path getPath() { return this.path; }
+    public int getNumScores() { return this.numScores; }
+    public int getNumTop() { return this.numTop; }
+    public long getTop(int i) { return this.top[i]; }
+    public long getTopMetrics(int i) { return this.topMetrics[i]; }
+    public boolean isEmpty() { return this.numScores == 0; }
+
+    /* Loading */
+    // Reads the log, or imports the old text score file the first time. Returns the number of records that were dropped.
+    public int load(Path legacyPath) throws IOException {
+        this.numTop = 0;
+        this.numScores = 0;
+
+        if (!Files.exists(this.path)) {
+            if (legacyPath != null && Files.exists(legacyPath)) {
+                this.importLegacy(legacyPath);
+            }
+            return 0;
+        }
+
+        int dropped = 0;
+        boolean headerless = false; // the log starts with a record, compacting writes the header back
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            boolean header = true;
+            boolean afterTime = false; // the record before was a valid time, so metrics belong to it
+            int last = -1; // where the last time went in the top, -1 when it was too slow to keep
+            int read;
+
+            do {
+                read = channel.read(buffer);
+                buffer.flip();
+                while (buffer.remaining() >= RECORD_SIZE) {
+                    long record = buffer.getLong();
+                    if (header) {
+                        header = false;
+                        if (record == HEADER) {
+                            continue;
+                        }
+                        else if (!isRecord(record)) {
+                            // a damaged header still leaves the records after it worth saving
+                            dropped++;
+                            continue;
+                        }
+                        headerless = true;
+                    }
+
+                    long time = decode(record);
+                    long metrics = decodeMetrics(record);
+                    if (time >= 0) {
+                        last = this.insert(time, -1);
+                    }
+                    else if (metrics >= 0 && afterTime) {
+                        if (last >= 0) {
+                            this.topMetrics[last] = metrics;
+                        }
+                    }
+                    else {
+                        dropped++; // damaged, or metrics whose time was
+                    }
+                    afterTime = time >= 0;
+                }
+                buffer.compact();
+            } while (read >= 0);
+
+            // whatever is left over is a record that was only partly written
+            if (buffer.position() > 0) {
+                dropped++;
+            }
+        }
+
+        if (dropped > 0 || headerless) {
+            this.compact();
+        }
+        return dropped;
+    }
+
+    private void importLegacy(Path legacyPath) throws IOException {
+        String scoreString = new String(Files.readAllBytes(legacyPath), StandardCharsets.UTF_8);
+        String[] scoreArray = scoreString.split(", ");
+
+        ByteBuffer buffer = ByteBuffer.allocate((scoreArray.length + 1) * RECORD_SIZE);
+        buffer.putLong(HEADER);
+        for (String score : scoreArray) {
+            try {
+                long time = Long.parseLong(score.trim());
+                if (time >= 0 && time <= TIME_MASK) {
+                    buffer.putLong(encode(time));
+                    this.insert(time, -1);
+                }
+            }
+            catch (NumberFormatException ignored) { }
+        }
+        buffer.flip();
+        this.replaceLog(buffer);
+    }
+
+    // Hands every valid time in the log to action, oldest first, skipping metrics
+    public void forEach(LongConsumer action) throws IOException {
+        if (!Files.exists(this.path)) {
+            return;
+        }
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(this.path));
+        skipHeader(in);
+        while (in.remaining() >= RECORD_SIZE) {
+            long time = decode(in.getLong());
+            if (time >= 0) {
+                action.accept(time);
+            }
+        }
+    }
+
+    /* Saving */
+    public void add(long time) throws IOException { this.add(time, -1); }
+
+    // Appends a time with the packed BoardMetrics of its board, or none when metrics is negative
+    public void add(long time, long metrics) throws IOException {
+        if (time < 0 || time > TIME_MASK) {
+            return;
+        }
+
+        boolean fresh = !Files.exists(this.path) || Files.size(this.path) == 0;
+        ByteBuffer buffer = ByteBuffer.allocate(3 * RECORD_SIZE);
+        if (fresh) {
+            buffer.putLong(HEADER);
+        }
+        buffer.putLong(encode(time));
+        if (metrics >= 0 && metrics <= TIME_MASK) {
+            buffer.putLong(encodeMetrics(metrics));
+        }
+        else {
+            metrics = -1;
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        this.insert(time, metrics);
+    }
+
+    // Rewrites the log with only the records load keeps, swapping the new file in once it is complete
+    public void compact() throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.exists(this.path) ? Files.readAllBytes(this.path) : new byte[0]);
+        skipHeader(in);
+        int start = in.position();
+        int kept = keep(in, null);
+
+        ByteBuffer out = ByteBuffer.allocate((kept + 1) * RECORD_SIZE);
+        out.putLong(HEADER);
+        in.position(start);
+        keep(in, out);
+        out.flip();
+        this.replaceLog(out);
+    }
+
+    // Goes through the records left in a log, keeping every valid time and any metrics straight after one, the same
+    // pairing load makes. Copies them into out unless it is null, and returns how many there were.
+    private static int keep(ByteBuffer in, ByteBuffer out) {
+        int kept = 0;
+        boolean afterTime = false;
+        while (in.remaining() >= RECORD_SIZE) {
+            long record = in.getLong();
+            boolean time = decode(record) >= 0;
+            if (time || (afterTime && decodeMetrics(record) >= 0)) {
+                if (out != null) {
+                    out.putLong(record);
+                }
+                kept++;
+            }
+            afterTime = time;
+        }
+        return kept;
+    }
+
+    private void replaceLog(ByteBuffer contents) throws IOException {
+        Path temp = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (contents.hasRemaining()) {
+                channel.write(contents);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /* Sorting */
+    // Keeps the fastest times in order with a binary search and a shift, dropping the slowest when full.
+    // Returns where the time went, or -1 when it was too slow to keep.
+    private int insert(long time, long metrics) {
+        this.numScores++;
+        if (this.numTop == this.top.length && (this.numTop == 0 || time >= this.top[this.numTop - 1])) {
+            return -1;
+        }
+
+        int position = Arrays.binarySearch(this.top, 0, this.numTop, time);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        int end = Math.min(this.numTop, this.top.length - 1);
+        System.arraycopy(this.top, position, this.top, position + 1, end - position);
+        System.arraycopy(this.topMetrics, position, this.topMetrics, position + 1, end - position);
+        this.top[position] = time;
+        this.topMetrics[position] = metrics;
+        if (this.numTop < this.top.length) {
+            this.numTop++;
+        }
+        return position;
+    }
+
+    /* Records */
+    // Steps over the header, or over whatever damaged it. A valid record where the header belongs is left to be read.
+    private static void skipHeader(ByteBuffer in) {
+        if (in.remaining() >= RECORD_SIZE && (in.getLong(in.position()) == HEADER || !isRecord(in.getLong(in.position())))) {
+            in.position(in.position() + RECORD_SIZE);
+        }
+    }
+
+    private static boolean isRecord(long record) { return decode(record) >= 0 || decodeMetrics(record) >= 0; }
+
+    private static long check(long time) {
+        return (((time ^ 0x5DEECE66DL) * 0x9E37_79B9_7F4A_7C15L) >>> 48);
+    }
+
+    private static long encode(long time) {
+        return (check(time) << 48) | time;
+    }
+
+    // Returns the time held by a record, or -1 if the record is damaged
+    private static long decode(long record) {
+        long time = record & TIME_MASK;
+        return (record >>> 48) == check(time) ? time : -1;
+    }
+
+    private static long encodeMetrics(long metrics) {
+        return ((check(metrics) ^ METRICS_SALT) << 48) | metrics;
+    }
+
+    // Returns the packed metrics held by a record, or -1 if it is not a metrics record
+    private static long decodeMetrics(long record) {
+        long metrics = record & TIME_MASK;
+        return (record >>> 48) == (check(metrics) ^ METRICS_SALT) ? metrics : -1;
+    }
+}
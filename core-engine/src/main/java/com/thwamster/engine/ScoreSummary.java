@@ -0,0 +1,211 @@
+package com.thwamster.engine;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/*
+ * What the leaderboards need to know about one board configuration's wins, in a file small enough to rewrite on
+ * every win: a QuantileSketch of every time, for how a time ranks among all of them, and the TOP_SIZE fastest
+ * times with the dates they were set. Summaries of the same configuration from different machines merge into one
+ * for the whole fleet, though merging the same file twice counts its wins twice.
+ *
+ * The ScoreStore log stays the record of every score. A summary that is missing, damaged or behind its log is
+ * rebuilt from it, and since the log holds only times those wins come back with a date of 0.
+ * The file is a header, the top times and the sketch, then a CRC32 of everything before it.
+ */
+public class ScoreSummary {
+    /* Format */
+    private static final long HEADER = 0x4D53_5355_4D52_5931L; // "MSSUMRY1"
+    public static final int TOP_SIZE = 100;
+
+    /* Instance Variables */
+    private final int numRows;
+    private final int numCols;
+    private final int numBombs;
+    private final QuantileSketch sketch;
+    private final long[] topTimes = new long[TOP_SIZE]; // fastest first
+    private final long[] topDates = new long[TOP_SIZE]; // epoch milliseconds, 0 when not known
+    private int numTop;
+
+    /* Constructor */
+    public ScoreSummary(int newNumRows, int newNumCols, int newNumBombs) {
+        this(newNumRows, newNumCols, newNumBombs, new QuantileSketch(QuantileSketch.DEFAULT_K));
+    }
+
+    private ScoreSummary(int newNumRows, int newNumCols, int newNumBombs, QuantileSketch newSketch) {
+        this.numRows = newNumRows;
+        this.numCols = newNumCols;
+        this.numBombs = newNumBombs;
+        this.sketch = newSketch;
+    }
+
+    /* Helper Methods */
+    public int getNumRows() { return this.numRows; }
+    public int getNumCols() { return this.numCols; }
+    public int getNumBombs() { return this.numBombs; }
+    public long getCount() { return this.sketch.getCount(); }
+    public boolean isEmpty() { return this.sketch.isEmpty(); }
+    public int getNumTop() { return this.numTop; }
+    public long getTopTime(int i) { return this.topTimes[i]; }
+    public long getTopDate(int i) { return this.topDates[i]; }
+    public QuantileSketch getSketch() { return this.sketch; }
+
+    public boolean sameConfig(ScoreSummary other) {
+        return this.numRows == other.numRows && this.numCols == other.numCols && this.numBombs == other.numBombs;
+    }
+
+    /* Query Methods */
+    // Share of every win that was slower than time, from 0 to 1
+    public double fractionSlower(long time) {
+        long count = this.sketch.getCount();
+        return count == 0 ? 0 : (double) (count - this.sketch.countAtMost(time)) / count;
+    }
+
+    // A time with at least fraction of the wins at or below it, 0.5 for the median
+    public long quantile(double fraction) { return this.sketch.quantile(fraction); }
+
+    // Place time holds among the fastest, from 1 and shared with equal times, or 0 when it is too slow for them
+    public int placeOf(long time) {
+        int place = this.upperBound(time - 1); // the times strictly faster
+        return place < TOP_SIZE ? place + 1 : 0;
+    }
+
+    /* Counting Methods */
+    public void add(long time, long date) {
+        this.sketch.update(time);
+        this.insertTop(time, date);
+    }
+
+    public void merge(ScoreSummary other) {
+        if (!this.sameConfig(other)) {
+            throw new IllegalArgumentException("Cannot merge " + other.numRows + "x" + other.numCols + "-" + other.numBombs
+                + " scores into " + this.numRows + "x" + this.numCols + "-" + this.numBombs);
+        }
+        this.sketch.merge(other.sketch);
+        for (int i = 0; i < other.numTop; i++) {
+            this.insertTop(other.topTimes[i], other.topDates[i]);
+        }
+    }
+
+    // Keeps the fastest in order with a binary search and a shift, like ScoreStore. A merged win that is already
+    // there, the same time on the same date, is not counted again.
+    private void insertTop(long time, long date) {
+        int position = this.upperBound(time);
+        for (int i = position - 1; i >= 0 && this.topTimes[i] == time; i--) {
+            if (date != 0 && this.topDates[i] == date) {
+                return;
+            }
+        }
+        if (position == TOP_SIZE) {
+            return;
+        }
+        int end = Math.min(this.numTop, TOP_SIZE - 1);
+        System.arraycopy(this.topTimes, position, this.topTimes, position + 1, end - position);
+        System.arraycopy(this.topDates, position, this.topDates, position + 1, end - position);
+        this.topTimes[position] = time;
+        this.topDates[position] = date;
+        if (this.numTop < TOP_SIZE) {
+            this.numTop++;
+        }
+    }
+
+    // First place in the top whose time is slower than time
+    private int upperBound(long time) {
+        int low = 0;
+        int high = this.numTop;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.topTimes[middle] <= time) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /* Saving */
+    // Writes to a temporary file and moves it over the old one, so a crash leaves one or the other whole
+    public void save(Path path) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(8 + 4 * 4 + this.numTop * 16 + this.sketch.getSerializedSize() + 8);
+        out.putLong(HEADER);
+        out.putInt(this.numRows);
+        out.putInt(this.numCols);
+        out.putInt(this.numBombs);
+        out.putInt(this.numTop);
+        for (int i = 0; i < this.numTop; i++) {
+            out.putLong(this.topTimes[i]);
+            out.putLong(this.topDates[i]);
+        }
+        this.sketch.write(out);
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), 0, out.position());
+        out.putLong(crc.getValue());
+        out.flip();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static ScoreSummary load(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length < 8 + 4 * 4 + 8) {
+            throw new IOException(path + " is too short for a score summary");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (in.getLong() != HEADER) {
+            throw new IOException(path + " is not a score summary");
+        }
+        if (in.getLong(bytes.length - 8) != crc.getValue()) {
+            throw new IOException(path + " is damaged");
+        }
+        in.limit(bytes.length - 8);
+
+        try {
+            int numRows = in.getInt();
+            int numCols = in.getInt();
+            int numBombs = in.getInt();
+            int numTop = in.getInt();
+            if (numTop < 0 || numTop > TOP_SIZE) {
+                throw new IOException(path + " holds " + numTop + " top times");
+            }
+            long[] times = new long[numTop];
+            long[] dates = new long[numTop];
+            for (int i = 0; i < numTop; i++) {
+                times[i] = in.getLong();
+                dates[i] = in.getLong();
+            }
+            ScoreSummary summary = new ScoreSummary(numRows, numCols, numBombs, QuantileSketch.read(in));
+            for (int i = 0; i < numTop; i++) {
+                summary.insertTop(times[i], dates[i]);
+            }
+            return summary;
+        }
+        catch (BufferUnderflowException e) {
+            throw new IOException(path + " ends early", e);
+        }
+    }
+
+    // Builds the summary again from every score in a log
+    public static ScoreSummary rebuild(ScoreStore log, int numRows, int numCols, int numBombs) throws IOException {
+        ScoreSummary summary = new ScoreSummary(numRows, numCols, numBombs);
+        log.forEach(time -> summary.add(time, 0));
+        return summary;
+    }
+}
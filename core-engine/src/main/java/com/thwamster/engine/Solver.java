@@ -0,0 +1,870 @@
+package com.thwamster.engine;
+
+import java.util.Arrays;
+
+/*
+ * Works out what the player can know from the numbers on screen. It never looks at hidden bombs.
+ *
+ * Cheap rules run first, on the frontier of revealed numbers that still touch unknown cells:
+ * a number whose bombs are all accounted for clears its other neighbors, and a number with exactly as many
+ * unknown neighbors as missing bombs marks them all. Pairs of overlapping numbers are then compared as bitsets
+ * (the 1-2 pattern and its relatives). When that runs dry the frontier is split into independent components,
+ * each one is enumerated exactly, and the bomb count left on the board weights the components together into a
+ * mine probability for every unknown cell.
+ *
+ * The frontier is kept up to date from the engine's cell changes, so each reveal only re-examines the numbers
+ * around it instead of the whole board. Its arrays cost about 36 bytes a cell, so they are only built when the
+ * first question is asked, and a board nobody asks about never pays for them. Once built they follow every game
+ * of the same size, and a new size lets them go until it is asked about in turn.
+ */
+public class Solver implements CellListener {
+    /* Knowledge */
+    private static final byte UNKNOWN = 0;
+    private static final byte SAFE = 1; // revealed, or proven safe
+    private static final byte MINE = 2; // proven to be a bomb
+
+    /* Limits */
+    private static final int MAX_EXACT_VARS = 128; // larger components are estimated instead of enumerated
+    private static final long NODE_BUDGET = 1 << 16; // search steps allowed per component before giving up on it
+    private static final double EPSILON = 1e-9;
+    private static final float UNSURE = 0.001F; // closest to 0 or 1 a probability gets when part of it was estimated
+
+    /* Instance Variables */
+    private final MinesweeperEngine engine;
+    private BoardStorage board;
+    private int numRows;
+    private int numCols;
+    private final int[] neighborOffsets = new int[8];
+    private boolean ready; // the knowledge below follows the board, false until prepare is called
+
+    // Knowledge
+    private byte[] known; // UNKNOWN, SAFE or MINE for every cell
+    private int numUnknown; // cells still UNKNOWN
+    private int numKnownMines; // cells proven to be bombs
+    private int[] safeCells; // cells proven safe, the unrevealed ones are the safe moves
+    private int numSafeCells;
+
+    // Frontier
+    private int[] pending; // revealed cells to look at again
+    private int numPending;
+    private boolean[] isPending;
+    private int[] frontier; // revealed numbers that still have unknown neighbors
+    private int[] frontierPos; // where each cell sits in frontier, -1 when it is not there
+    private int numFrontier;
+
+    // Components, rebuilt from the frontier whenever the cheap rules run out
+    private int stamp; // marks which cells belong to the current analysis
+    private int[] varStamp; // stamp of the analysis that made a cell a variable
+    private int[] varIdOf; // variable id of each cell in the current analysis
+    private int[] consStamp;
+    private int[] varCells = new int[16]; // cell of each variable, grouped by component
+    private int numVars;
+    private int[] consCells = new int[16]; // cell of each constraint, grouped by component
+    private int[] consNeed = new int[16]; // bombs still missing around each constraint
+    private int numCons;
+    private int[] compVarStart = new int[4]; // first variable of each component, plus one past the end
+    private int[] compConsStart = new int[4];
+    private int numComps;
+    private int[] consVarStart = new int[17]; // variables around each constraint, as start offsets into consVarList
+    private int[] consVarList = new int[64];
+    private int[] varConsStart = new int[17]; // constraints touching each variable
+    private int[] varConsList = new int[64];
+    private long[] bits = new long[16]; // each constraint of one component as a bitset over its variables
+
+    // Enumeration
+    private int[] consMines = new int[16]; // bombs placed around each constraint so far
+    private int[] consOpen = new int[16]; // variables around each constraint not yet assigned
+    private boolean[] assigned = new boolean[16];
+    private double[] solutions = new double[16]; // per component, solutions by bomb count
+    private int[] solutionStart = new int[5];
+    private double[] counts = new double[64]; // per component, times each variable is a bomb, by bomb count
+    private int[] countStart = new int[5];
+    private boolean[] exact = new boolean[4]; // false when a component was estimated
+    private long nodes;
+    private int placed;
+    private int remainingMines;
+
+    // Results
+    private float[] probabilities; // mine probability of each variable from the last analysis
+    private int probabilityStamp; // stamp of the analysis the probabilities belong to
+    private float outsideProbability; // mine probability of any unknown cell away from the frontier
+    private int numOutside; // unknown cells away from the frontier
+    private double[] logFactorial;
+
+    /* Constructor */
+    public Solver(MinesweeperEngine newEngine) {
+        this.engine = newEngine;
+        this.engine.addListener(this);
+        this.boardReset();
+    }
+
+    /* Helper Methods */
+    public MinesweeperEngine getEngine() { return this.engine; }
+    public boolean isKnownMine(int index) { return this.ready && this.known[index] == MINE; }
+    public boolean isKnownSafe(int index) { return this.ready && this.known[index] == SAFE; }
+    public int getNumKnownMines() { return this.ready ? this.numKnownMines : 0; }
+    public int getNumFrontier() { return this.ready ? this.numFrontier : 0; }
+
+    // Mine probability of a cell. The probabilities are worked out again first if anything has rebuilt the
+    // components since the last call to computeProbabilities, such as findSafe or process.
+    public float getProbability(int index) {
+        if (!this.ready) { return 0; }
+        else if (this.known[index] == MINE) { return 1; }
+        else if (this.known[index] == SAFE) { return 0; }
+        if (this.probabilityStamp != this.stamp) {
+            this.computeProbabilities();
+            if (this.known[index] != UNKNOWN) {
+                return this.known[index] == MINE ? 1 : 0;
+            }
+        }
+        if (this.varStamp[index] == this.stamp) { return this.probabilities[this.varIdOf[index]]; }
+        else { return this.outsideProbability; }
+    }
+
+    public void detach() { this.engine.removeListener(this); }
+
+    /* Engine Events */
+    @Override
+    public void cellChanged(int index) {
+        if (!this.ready || !this.board.isRevealed(index) || this.board.isMine(index)) {
+            return; // flags are the player's guesses, the solver keeps its own
+        }
+        if (this.known[index] == UNKNOWN) {
+            this.known[index] = SAFE;
+            this.numUnknown--;
+        }
+        this.touch(index);
+        this.touchNeighbors(index);
+    }
+
+    @Override
+    public void boardReset() {
+        this.board = this.engine.getBoard();
+        this.numRows = this.board.getNumRows();
+        this.numCols = this.board.getNumCols();
+        for (int n = 0; n < 8; n++) {
+            this.neighborOffsets[n] = MinesweeperEngine.NEIGHBOR_ROWS[n] * this.numCols + MinesweeperEngine.NEIGHBOR_COLS[n];
+        }
+        this.ready = false;
+        if (this.known != null && this.known.length == this.board.getNumCells()) {
+            this.prepare();
+        }
+        else {
+            this.known = null;
+            this.safeCells = null;
+            this.pending = null;
+            this.isPending = null;
+            this.frontier = null;
+            this.frontierPos = null;
+            this.varStamp = null;
+            this.varIdOf = null;
+            this.consStamp = null;
+            this.logFactorial = null;
+        }
+    }
+
+    // Builds the knowledge of the current board, if it is not built already
+    private void prepare() {
+        if (this.ready) {
+            return;
+        }
+        int numCells = this.board.getNumCells();
+        if (this.known == null) {
+            this.known = new byte[numCells];
+            this.safeCells = new int[numCells];
+            this.pending = new int[numCells];
+            this.isPending = new boolean[numCells];
+            this.frontier = new int[numCells];
+            this.frontierPos = new int[numCells];
+            this.varStamp = new int[numCells];
+            this.varIdOf = new int[numCells];
+            this.consStamp = new int[numCells];
+            this.logFactorial = new double[numCells + 1];
+            for (int i = 1; i <= numCells; i++) {
+                this.logFactorial[i] = this.logFactorial[i - 1] + Math.log(i);
+            }
+        }
+        else {
+            Arrays.fill(this.known, UNKNOWN);
+            Arrays.fill(this.isPending, false);
+        }
+        Arrays.fill(this.frontierPos, -1);
+        this.numUnknown = numCells;
+        this.numKnownMines = 0;
+        this.numSafeCells = 0;
+        this.numPending = 0;
+        this.numFrontier = 0;
+        this.numVars = 0;
+        this.numComps = 0;
+        this.stamp++;
+        this.outsideProbability = 0;
+        this.ready = true;
+
+        // pick up anything already on the board, such as a game loaded part way through
+        for (int i = 0; i < numCells; i++) {
+            if (this.board.isRevealed(i)) {
+                this.cellChanged(i);
+            }
+        }
+    }
+
+    /* Solving Methods */
+    // Returns an unrevealed cell that is certainly safe, or -1 if the numbers on screen do not prove one
+    public int findSafe() {
+        if (this.engine.getGameStatus() != MinesweeperEngine.PLAYING) {
+            return -1;
+        }
+        this.prepare();
+        while (true) {
+            this.process();
+            int safe = this.peekSafe();
+            if (safe >= 0) {
+                return safe;
+            }
+            if (this.applyPairRules()) {
+                continue;
+            }
+            if (!this.computeProbabilities()) {
+                return -1;
+            }
+        }
+    }
+
+    // The move to make: a certainly safe cell if there is one, otherwise the cell least likely to be a bomb
+    public int hint() {
+        this.prepare(); // before the first click, so the reveals that follow arrive in order
+        if (this.engine.getGameStatus() == MinesweeperEngine.READY) {
+            return this.engine.index(this.numRows / 2, this.numCols / 2);
+        }
+        int safe = this.findSafe();
+        if (safe >= 0 || this.engine.getGameStatus() != MinesweeperEngine.PLAYING) {
+            return safe;
+        }
+
+        int best = -1;
+        float bestProbability = 2;
+        for (int v = 0; v < this.numVars; v++) {
+            if (this.known[this.varCells[v]] == UNKNOWN && this.probabilities[v] < bestProbability) {
+                best = this.varCells[v];
+                bestProbability = this.probabilities[v];
+            }
+        }
+        if (this.numOutside > 0 && (best < 0 || this.outsideProbability < bestProbability)) {
+            best = this.findOutside();
+        }
+        return best;
+    }
+
+    // Auto-play: reveals the hinted cell. Returns the cell played, or -1 once the game is over.
+    public int step() {
+        int cell = this.hint();
+        if (cell >= 0) {
+            this.engine.reveal(cell);
+        }
+        return cell;
+    }
+
+    // Runs the cheap rules over every waiting cell until nothing new follows
+    public void process() {
+        this.prepare();
+        while (this.numPending > 0) {
+            int cell = this.pending[--this.numPending];
+            this.isPending[cell] = false;
+            this.evaluate(cell);
+        }
+    }
+
+    private int peekSafe() {
+        while (this.numSafeCells > 0) {
+            int cell = this.safeCells[this.numSafeCells - 1];
+            if (!this.board.isRevealed(cell)) {
+                return cell;
+            }
+            this.numSafeCells--;
+        }
+        return -1;
+    }
+
+    // Single number rules
+    private void evaluate(int cell) {
+        if (!this.board.isRevealed(cell) || this.board.isMine(cell)) {
+            this.removeFrontier(cell);
+            return;
+        }
+
+        int row = cell / this.numCols;
+        int col = cell - row * this.numCols;
+        int unknown = 0;
+        int mines = 0;
+        for (int n = 0; n < 8; n++) {
+            int neighbor = this.neighbor(row, col, n, cell);
+            if (neighbor >= 0) {
+                if (this.known[neighbor] == MINE) {
+                    mines++;
+                }
+                else if (this.known[neighbor] == UNKNOWN) {
+                    unknown++;
+                }
+            }
+        }
+
+        int need = this.board.getNumber(cell) - mines;
+        if (unknown == 0) {
+            this.removeFrontier(cell);
+        }
+        else if (need == 0 || need == unknown) {
+            this.removeFrontier(cell);
+            byte value = need == 0 ? SAFE : MINE;
+            for (int n = 0; n < 8; n++) {
+                int neighbor = this.neighbor(row, col, n, cell);
+                if (neighbor >= 0 && this.known[neighbor] == UNKNOWN) {
+                    this.mark(neighbor, value);
+                }
+            }
+        }
+        else {
+            this.addFrontier(cell);
+        }
+    }
+
+    private void mark(int cell, byte value) {
+        if (this.known[cell] != UNKNOWN) {
+            return;
+        }
+        this.known[cell] = value;
+        this.numUnknown--;
+        if (value == SAFE) {
+            this.safeCells[this.numSafeCells++] = cell;
+        }
+        else {
+            this.numKnownMines++;
+        }
+        this.touchNeighbors(cell);
+    }
+
+    private void touch(int cell) {
+        if (!this.isPending[cell]) {
+            this.isPending[cell] = true;
+            this.pending[this.numPending++] = cell;
+        }
+    }
+
+    private void touchNeighbors(int cell) {
+        int row = cell / this.numCols;
+        int col = cell - row * this.numCols;
+        for (int n = 0; n < 8; n++) {
+            int neighbor = this.neighbor(row, col, n, cell);
+            if (neighbor >= 0 && this.board.isRevealed(neighbor)) {
+                this.touch(neighbor);
+            }
+        }
+    }
+
+    private int neighbor(int row, int col, int n, int cell) {
+        int r = row + MinesweeperEngine.NEIGHBOR_ROWS[n];
+        int c = col + MinesweeperEngine.NEIGHBOR_COLS[n];
+        return r >= 0 && r < this.numRows && c >= 0 && c < this.numCols ? cell + this.neighborOffsets[n] : -1;
+    }
+
+    private void addFrontier(int cell) {
+        if (this.frontierPos[cell] < 0) {
+            this.frontierPos[cell] = this.numFrontier;
+            this.frontier[this.numFrontier++] = cell;
+        }
+    }
+
+    private void removeFrontier(int cell) {
+        int position = this.frontierPos[cell];
+        if (position >= 0) {
+            int last = this.frontier[--this.numFrontier];
+            this.frontier[position] = last;
+            this.frontierPos[last] = position;
+            this.frontierPos[cell] = -1;
+        }
+    }
+
+    // Pair rules
+    // For two overlapping numbers A and B: if the bombs B needs beyond A's fill every cell of B outside A,
+    // those cells are bombs and A's cells outside B are safe. A subset is the special case of an empty A outside B.
+    private boolean applyPairRules() {
+        this.buildComponents();
+        boolean changed = false;
+
+        for (int comp = 0; comp < this.numComps; comp++) {
+            int firstVar = this.compVarStart[comp];
+            int size = this.compVarStart[comp + 1] - firstVar;
+            int words = (size + 63) >>> 6;
+            int firstCons = this.compConsStart[comp];
+            int endCons = this.compConsStart[comp + 1];
+
+            this.bits = ensure(this.bits, (endCons - firstCons) * words);
+            Arrays.fill(this.bits, 0, (endCons - firstCons) * words, 0L);
+            for (int a = firstCons; a < endCons; a++) {
+                int base = (a - firstCons) * words;
+                for (int i = this.consVarStart[a]; i < this.consVarStart[a + 1]; i++) {
+                    int local = this.consVarList[i] - firstVar;
+                    this.bits[base + (local >>> 6)] |= 1L << local;
+                }
+            }
+
+            for (int a = firstCons; a < endCons; a++) {
+                for (int i = this.consVarStart[a]; i < this.consVarStart[a + 1]; i++) {
+                    int v = this.consVarList[i];
+                    for (int j = this.varConsStart[v]; j < this.varConsStart[v + 1]; j++) {
+                        int b = this.varConsList[j];
+                        if (b != a && this.comparePair(a - firstCons, b - firstCons, words, firstVar, this.consNeed[b] - this.consNeed[a])) {
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    private boolean comparePair(int a, int b, int words, int firstVar, int extra) {
+        int baseA = a * words;
+        int baseB = b * words;
+        int onlyB = 0;
+        for (int w = 0; w < words; w++) {
+            onlyB += Long.bitCount(this.bits[baseB + w] & ~this.bits[baseA + w]);
+        }
+        if (extra != onlyB) {
+            return false;
+        }
+
+        boolean changed = false;
+        for (int w = 0; w < words; w++) {
+            long mines = this.bits[baseB + w] & ~this.bits[baseA + w];
+            long safe = this.bits[baseA + w] & ~this.bits[baseB + w];
+            changed |= this.markBits(mines, w, firstVar, MINE);
+            changed |= this.markBits(safe, w, firstVar, SAFE);
+        }
+        return changed;
+    }
+
+    private boolean markBits(long word, int w, int firstVar, byte value) {
+        boolean changed = false;
+        while (word != 0) {
+            int local = (w << 6) + Long.numberOfTrailingZeros(word);
+            int cell = this.varCells[firstVar + local];
+            if (this.known[cell] == UNKNOWN) {
+                this.mark(cell, value);
+                changed = true;
+            }
+            word &= word - 1;
+        }
+        return changed;
+    }
+
+    // Components
+    // Groups the frontier into sets of numbers linked by shared unknown cells. Each set can be solved on its own.
+    private void buildComponents() {
+        this.process();
+        this.stamp++;
+        this.numVars = 0;
+        this.numCons = 0;
+        this.numComps = 0;
+
+        for (int f = 0; f < this.numFrontier; f++) {
+            int seed = this.frontier[f];
+            if (this.consStamp[seed] == this.stamp) {
+                continue;
+            }
+
+            this.compVarStart = ensure(this.compVarStart, this.numComps + 2);
+            this.compConsStart = ensure(this.compConsStart, this.numComps + 2);
+            this.compVarStart[this.numComps] = this.numVars;
+            this.compConsStart[this.numComps] = this.numCons;
+            this.addConstraint(seed);
+
+            for (int q = this.compConsStart[this.numComps]; q < this.numCons; q++) {
+                int cell = this.consCells[q];
+                int row = cell / this.numCols;
+                int col = cell - row * this.numCols;
+                for (int n = 0; n < 8; n++) {
+                    int v = this.neighbor(row, col, n, cell);
+                    if (v < 0 || this.known[v] != UNKNOWN || this.varStamp[v] == this.stamp) {
+                        continue;
+                    }
+                    this.varStamp[v] = this.stamp;
+                    this.varCells = ensure(this.varCells, this.numVars + 1);
+                    this.varIdOf[v] = this.numVars;
+                    this.varCells[this.numVars++] = v;
+
+                    int vRow = v / this.numCols;
+                    int vCol = v - vRow * this.numCols;
+                    for (int m = 0; m < 8; m++) {
+                        int u = this.neighbor(vRow, vCol, m, v);
+                        if (u >= 0 && this.frontierPos[u] >= 0 && this.consStamp[u] != this.stamp) {
+                            this.addConstraint(u);
+                        }
+                    }
+                }
+            }
+            this.numComps++;
+        }
+        this.compVarStart[this.numComps] = this.numVars;
+        this.compConsStart[this.numComps] = this.numCons;
+
+        // constraint -> variables
+        this.consVarStart = ensure(this.consVarStart, this.numCons + 1);
+        int total = 0;
+        for (int c = 0; c < this.numCons; c++) {
+            this.consVarStart[c] = total;
+            int cell = this.consCells[c];
+            int row = cell / this.numCols;
+            int col = cell - row * this.numCols;
+            int mines = 0;
+            for (int n = 0; n < 8; n++) {
+                int v = this.neighbor(row, col, n, cell);
+                if (v < 0) {
+                    continue;
+                }
+                if (this.known[v] == MINE) {
+                    mines++;
+                }
+                else if (this.known[v] == UNKNOWN) {
+                    this.consVarList = ensure(this.consVarList, total + 1);
+                    this.consVarList[total++] = this.varIdOf[v];
+                }
+            }
+            this.consNeed[c] = this.board.getNumber(cell) - mines;
+        }
+        this.consVarStart[this.numCons] = total;
+
+        // variable -> constraints
+        this.varConsStart = ensure(this.varConsStart, this.numVars + 1);
+        this.varConsList = ensure(this.varConsList, total);
+        Arrays.fill(this.varConsStart, 0, this.numVars + 1, 0);
+        for (int i = 0; i < total; i++) {
+            this.varConsStart[this.consVarList[i] + 1]++;
+        }
+        for (int v = 0; v < this.numVars; v++) {
+            this.varConsStart[v + 1] += this.varConsStart[v];
+        }
+        this.consOpen = ensure(this.consOpen, this.numVars + 1);
+        System.arraycopy(this.varConsStart, 0, this.consOpen, 0, this.numVars);
+        for (int c = 0; c < this.numCons; c++) {
+            for (int i = this.consVarStart[c]; i < this.consVarStart[c + 1]; i++) {
+                this.varConsList[this.consOpen[this.consVarList[i]]++] = c;
+            }
+        }
+    }
+
+    private void addConstraint(int cell) {
+        this.consStamp[cell] = this.stamp;
+        this.consCells = ensure(this.consCells, this.numCons + 1);
+        this.consNeed = ensure(this.consNeed, this.numCons + 1);
+        this.consCells[this.numCons++] = cell;
+    }
+
+    // Probabilities
+    // Enumerates every component and fills in mine probabilities. Cells found to be certain are marked,
+    // and the return value says whether any were.
+    public boolean computeProbabilities() {
+        this.prepare();
+        this.buildComponents();
+        this.remainingMines = this.engine.getNumBombs() - this.numKnownMines;
+        this.numOutside = this.numUnknown - this.numVars;
+        this.probabilities = ensure(this.probabilities, this.numVars);
+        this.exact = ensure(this.exact, this.numComps);
+        this.solutionStart = ensure(this.solutionStart, this.numComps + 1);
+        this.countStart = ensure(this.countStart, this.numComps + 1);
+
+        // enumerate each component on its own
+        int solutionTotal = 0;
+        int countTotal = 0;
+        for (int comp = 0; comp < this.numComps; comp++) {
+            int size = this.compVarStart[comp + 1] - this.compVarStart[comp];
+            this.solutionStart[comp] = solutionTotal;
+            this.countStart[comp] = countTotal;
+            if (size <= MAX_EXACT_VARS) {
+                solutionTotal += size + 1;
+                countTotal += (size + 1) * size;
+            }
+        }
+        this.solutionStart[this.numComps] = solutionTotal;
+        this.countStart[this.numComps] = countTotal;
+        this.solutions = ensure(this.solutions, solutionTotal);
+        this.counts = ensure(this.counts, countTotal);
+        Arrays.fill(this.solutions, 0, solutionTotal, 0);
+        Arrays.fill(this.counts, 0, countTotal, 0);
+
+        int estimatedMines = 0;
+        boolean estimated = false;
+        for (int comp = 0; comp < this.numComps; comp++) {
+            this.exact[comp] = this.enumerate(comp);
+            if (!this.exact[comp]) {
+                estimatedMines += this.estimate(comp);
+                estimated = true;
+            }
+        }
+
+        this.combine(Math.max(0, this.remainingMines - estimatedMines));
+        this.probabilityStamp = this.stamp;
+        if (estimated) {
+            // the bombs left for everything else rest on a guess, so none of it is certain: only the cheap rules
+            // may mark cells, and no probability claims a cell is surely safe or surely a bomb
+            this.hedge();
+            return false;
+        }
+        return this.markCertain();
+    }
+
+    private boolean enumerate(int comp) {
+        int first = this.compVarStart[comp];
+        int end = this.compVarStart[comp + 1];
+        if (end - first > MAX_EXACT_VARS) {
+            return false;
+        }
+
+        this.consMines = ensure(this.consMines, this.numCons);
+        this.consOpen = ensure(this.consOpen, this.numCons);
+        this.assigned = ensure(this.assigned, this.numVars);
+        for (int c = this.compConsStart[comp]; c < this.compConsStart[comp + 1]; c++) {
+            this.consMines[c] = 0;
+            this.consOpen[c] = this.consVarStart[c + 1] - this.consVarStart[c];
+        }
+        this.nodes = 0;
+        this.placed = 0;
+        this.search(first, first, end, comp);
+
+        if (this.nodes > NODE_BUDGET) {
+            Arrays.fill(this.solutions, this.solutionStart[comp], this.solutionStart[comp + 1], 0);
+            return false;
+        }
+        return true;
+    }
+
+    // Tries every bomb layout of the component's variables that agrees with its numbers, depth first
+    private void search(int v, int first, int end, int comp) {
+        if (++this.nodes > NODE_BUDGET) {
+            return;
+        }
+        if (v == end) {
+            int size = end - first;
+            this.solutions[this.solutionStart[comp] + this.placed]++;
+            int base = this.countStart[comp] + this.placed * size;
+            for (int i = first; i < end; i++) {
+                if (this.assigned[i]) {
+                    this.counts[base + i - first]++;
+                }
+            }
+            return;
+        }
+
+        for (int value = 0; value <= 1; value++) {
+            if (value == 1 && this.placed >= this.remainingMines) {
+                break;
+            }
+            boolean fits = true;
+            for (int j = this.varConsStart[v]; j < this.varConsStart[v + 1]; j++) {
+                int c = this.varConsList[j];
+                this.consOpen[c]--;
+                this.consMines[c] += value;
+                if (this.consMines[c] > this.consNeed[c] || this.consMines[c] + this.consOpen[c] < this.consNeed[c]) {
+                    fits = false;
+                }
+            }
+            if (fits) {
+                this.assigned[v] = value == 1;
+                this.placed += value;
+                this.search(v + 1, first, end, comp);
+                this.placed -= value;
+            }
+            for (int j = this.varConsStart[v]; j < this.varConsStart[v + 1]; j++) {
+                int c = this.varConsList[j];
+                this.consOpen[c]++;
+                this.consMines[c] -= value;
+            }
+            if (this.nodes > NODE_BUDGET) {
+                return;
+            }
+        }
+        this.assigned[v] = false;
+    }
+
+    // Rough probabilities for a component too big to enumerate: each cell takes the worst share among its numbers
+    private int estimate(int comp) {
+        double expected = 0;
+        for (int v = this.compVarStart[comp]; v < this.compVarStart[comp + 1]; v++) {
+            float probability = 0;
+            for (int j = this.varConsStart[v]; j < this.varConsStart[v + 1]; j++) {
+                int c = this.varConsList[j];
+                int size = this.consVarStart[c + 1] - this.consVarStart[c];
+                probability = Math.max(probability, (float) this.consNeed[c] / size);
+            }
+            this.probabilities[v] = probability;
+            expected += probability;
+        }
+        return (int) Math.round(expected);
+    }
+
+    // Weights every exact component's solutions by how many ways the leftover bombs fit in the cells away from
+    // the frontier, C(outside, mines - used), then turns the weighted counts into probabilities
+    private void combine(int mines) {
+        // dist[s]: weighted ways for all exact components together to use s bombs
+        double[] dist = {1};
+        for (int comp = 0; comp < this.numComps; comp++) {
+            if (this.exact[comp]) {
+                dist = convolve(dist, this.solutions, this.solutionStart[comp], this.solutionStart[comp + 1]);
+            }
+        }
+
+        double logMax = Double.NEGATIVE_INFINITY;
+        for (int s = 0; s < dist.length; s++) {
+            if (dist[s] > 0) {
+                logMax = Math.max(logMax, this.logChoose(this.numOutside, mines - s));
+            }
+        }
+        if (logMax == Double.NEGATIVE_INFINITY) {
+            // nothing fits the bomb count, which only happens on boards with impossible flags or estimates
+            logMax = 0;
+        }
+
+        double total = 0;
+        double outside = 0;
+        for (int s = 0; s < dist.length; s++) {
+            double weight = dist[s] * this.ways(mines - s, logMax);
+            total += weight;
+            if (this.numOutside > 0) {
+                outside += weight * (mines - s) / this.numOutside;
+            }
+        }
+        if (total == 0) {
+            total = 1; // leaves every probability at zero rather than dividing by nothing
+        }
+        this.outsideProbability = (float) (outside / total);
+
+        for (int comp = 0; comp < this.numComps; comp++) {
+            if (!this.exact[comp]) {
+                continue;
+            }
+            // the other components' distribution, to weight this one's bomb counts against
+            double[] others = {1};
+            for (int other = 0; other < this.numComps; other++) {
+                if (other != comp && this.exact[other]) {
+                    others = convolve(others, this.solutions, this.solutionStart[other], this.solutionStart[other + 1]);
+                }
+            }
+
+            int first = this.compVarStart[comp];
+            int size = this.compVarStart[comp + 1] - first;
+            for (int i = 0; i < size; i++) {
+                this.probabilities[first + i] = 0;
+            }
+            for (int k = 0; k <= size; k++) {
+                if (this.solutions[this.solutionStart[comp] + k] == 0) {
+                    continue;
+                }
+                double weight = 0;
+                for (int s = 0; s < others.length; s++) {
+                    weight += others[s] * this.ways(mines - k - s, logMax);
+                }
+                int base = this.countStart[comp] + k * size;
+                for (int i = 0; i < size; i++) {
+                    this.probabilities[first + i] += (float) (this.counts[base + i] * weight / total);
+                }
+            }
+        }
+    }
+
+    private double ways(int mines, double logMax) {
+        double log = this.logChoose(this.numOutside, mines);
+        return log == Double.NEGATIVE_INFINITY ? 0 : Math.exp(log - logMax);
+    }
+
+    private double logChoose(int n, int k) {
+        if (k < 0 || k > n) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return this.logFactorial[n] - this.logFactorial[k] - this.logFactorial[n - k];
+    }
+
+    private static double[] convolve(double[] left, double[] right, int start, int end) {
+        double[] result = new double[left.length + (end - start) - 1];
+        for (int i = 0; i < left.length; i++) {
+            if (left[i] == 0) {
+                continue;
+            }
+            for (int j = start; j < end; j++) {
+                result[i + j - start] += left[i] * right[j];
+            }
+        }
+        return result;
+    }
+
+    private void hedge() {
+        for (int v = 0; v < this.numVars; v++) {
+            this.probabilities[v] = Math.min(Math.max(this.probabilities[v], UNSURE), 1 - UNSURE);
+        }
+        this.outsideProbability = Math.min(Math.max(this.outsideProbability, UNSURE), 1 - UNSURE);
+    }
+
+    private boolean markCertain() {
+        boolean changed = false;
+        for (int comp = 0; comp < this.numComps; comp++) {
+            if (!this.exact[comp]) {
+                continue;
+            }
+            for (int v = this.compVarStart[comp]; v < this.compVarStart[comp + 1]; v++) {
+                int cell = this.varCells[v];
+                if (this.known[cell] != UNKNOWN) {
+                    continue;
+                }
+                if (this.probabilities[v] < EPSILON) {
+                    this.mark(cell, SAFE);
+                    changed = true;
+                }
+                else if (this.probabilities[v] > 1 - EPSILON) {
+                    this.mark(cell, MINE);
+                    changed = true;
+                }
+            }
+        }
+
+        // when the bomb count is used up by the frontier, or needs every other cell, the rest of the board follows
+        if (this.numOutside > 0 && (this.outsideProbability < EPSILON || this.outsideProbability > 1 - EPSILON)) {
+            byte value = this.outsideProbability < EPSILON ? SAFE : MINE;
+            int lastStamp = this.stamp;
+            for (int cell = 0; cell < this.known.length; cell++) {
+                if (this.known[cell] == UNKNOWN && this.varStamp[cell] != lastStamp) {
+                    this.mark(cell, value);
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    private int findOutside() {
+        for (int cell = 0; cell < this.known.length; cell++) {
+            if (this.known[cell] == UNKNOWN && this.varStamp[cell] != this.stamp) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    /* Arrays */
+    private static int[] ensure(int[] array, int size) {
+        return array != null && array.length >= size ? array : Arrays.copyOf(array == null ? new int[0] : array, Math.max(size, array == null ? 16 : array.length * 2));
+    }
+
+    private static long[] ensure(long[] array, int size) {
+        return array.length >= size ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+
+    private static double[] ensure(double[] array, int size) {
+        return array.length >= size ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+
+    private static float[] ensure(float[] array, int size) {
+        return array != null && array.length >= size ? array : new float[Math.max(size, array == null ? 16 : array.length * 2)];
+    }
+
+    private static boolean[] ensure(boolean[] array, int size) {
+        return array.length >= size ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+}
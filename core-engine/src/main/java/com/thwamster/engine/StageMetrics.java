@@ -0,0 +1,156 @@
+package com.thwamster.engine;
+
+import java.lang.management.ManagementFactory;
+
+/*
+ * Time and allocation spent in each named stage of a loop, such as the parts of a frame, plus per-loop counters,
+ * each kept in a LogHistogram.
+ *
+ * Stages are numbered by their place in the names given to the constructor, and begin and end only read the
+ * clock and the thread's allocated bytes, so they can wrap every frame. The histograms fill for an interval
+ * and roll then hands them over as the last interval, which is what readers see, while a cleared set starts
+ * filling. Allocation and CPU time need HotSpot's com.sun.management extension and are left empty without it.
+ * Use from a single thread.
+ */
+public class StageMetrics {
+    /* Instance Variables */
+    private final String[] stages;
+    private final String[] counters;
+    private LogHistogram[] times; // filling, nanoseconds per stage
+    private LogHistogram[] allocations; // filling, bytes per stage
+    private LogHistogram[] values; // filling, one value per counter per loop
+    private LogHistogram[] lastTimes; // the last whole interval, read by the overlay and the writers
+    private LogHistogram[] lastAllocations;
+    private LogHistogram[] lastValues;
+    private final long[] beginNanos;
+    private final long[] beginBytes;
+    private final com.sun.management.ThreadMXBean allocationCounter; // null where the JVM cannot count allocation
+    private final com.sun.management.OperatingSystemMXBean cpuCounter; // null where the JVM cannot read process CPU time
+    private long lastCpuNanos = -1;
+    private final long threadId;
+    private long intervalStart; // when the filling set started
+    private long lastIntervalNanos; // how long the last interval ran
+
+    /* Constructor */
+    public StageMetrics(String[] newStages, String[] newCounters) {
+        this.stages = newStages.clone();
+        this.counters = newCounters.clone();
+        this.times = histograms(newStages.length);
+        this.allocations = histograms(newStages.length);
+        this.values = histograms(newCounters.length);
+        this.lastTimes = histograms(newStages.length);
+        this.lastAllocations = histograms(newStages.length);
+        this.lastValues = histograms(newCounters.length);
+        this.beginNanos = new long[newStages.length];
+        this.beginBytes = new long[newStages.length];
+        this.allocationCounter = findAllocationCounter();
+        this.cpuCounter = findCpuCounter();
+        this.threadId = Thread.currentThread().getId();
+        this.intervalStart = System.nanoTime();
+    }
+
+    /* Helper Methods */
+    public int getNumStages() { return this.stages.length; }
+    public String getStage(int stage) { return this.stages[stage]; }
+    public int getNumCounters() { return this.counters.length; }
+    public String getCounter(int counter) { return this.counters[counter]; }
+    public boolean isAllocationCounted() { return this.allocationCounter != null; }
+    public long getIntervalNanos() { return this.lastIntervalNanos; }
+
+    // The last whole interval
+    public LogHistogram getTimes(int stage) { return this.lastTimes[stage]; }
+    public LogHistogram getAllocations(int stage) { return this.lastAllocations[stage]; }
+    public LogHistogram getValues(int counter) { return this.lastValues[counter]; }
+
+    private static LogHistogram[] histograms(int count) {
+        LogHistogram[] histograms = new LogHistogram[count];
+        for (int i = 0; i < count; i++) {
+            histograms[i] = new LogHistogram();
+        }
+        return histograms;
+    }
+
+    private static com.sun.management.ThreadMXBean findAllocationCounter() {
+        try {
+            java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+                if (counter.isThreadAllocatedMemorySupported()) {
+                    counter.setThreadAllocatedMemoryEnabled(true);
+                    return counter;
+                }
+            }
+        }
+        catch (LinkageError | UnsupportedOperationException | SecurityException e) {
+            // no management extension on this JVM, time only
+        }
+        return null;
+    }
+
+    private static com.sun.management.OperatingSystemMXBean findCpuCounter() {
+        try {
+            java.lang.management.OperatingSystemMXBean system = ManagementFactory.getOperatingSystemMXBean();
+            if (system instanceof com.sun.management.OperatingSystemMXBean && ((com.sun.management.OperatingSystemMXBean) system).getProcessCpuTime() >= 0) {
+                return (com.sun.management.OperatingSystemMXBean) system;
+            }
+        }
+        catch (LinkageError | UnsupportedOperationException | SecurityException e) {
+            // no management extension on this JVM
+        }
+        return null;
+    }
+
+    /* Recording Methods */
+    public void begin(int stage) {
+        if (this.allocationCounter != null) {
+            this.beginBytes[stage] = this.allocationCounter.getThreadAllocatedBytes(this.threadId);
+        }
+        this.beginNanos[stage] = System.nanoTime();
+    }
+
+    public void end(int stage) {
+        this.times[stage].record(System.nanoTime() - this.beginNanos[stage]);
+        if (this.allocationCounter != null) {
+            this.allocations[stage].record(this.allocationCounter.getThreadAllocatedBytes(this.threadId) - this.beginBytes[stage]);
+        }
+    }
+
+    public void count(int counter, long value) { this.values[counter].record(value); }
+
+    // Counts the CPU time the whole process used since the last call, every thread and the time between loops
+    // included, so the counter's sum over the interval divided by its length is the process's CPU load
+    public void countCpu(int counter) {
+        if (this.cpuCounter == null) {
+            return;
+        }
+        long cpu = this.cpuCounter.getProcessCpuTime();
+        if (this.lastCpuNanos >= 0) {
+            this.values[counter].record(cpu - this.lastCpuNanos);
+        }
+        this.lastCpuNanos = cpu;
+    }
+
+    // Hands the filling histograms over once they have run for intervalNanos. Returns whether they did.
+    public boolean roll(long intervalNanos) {
+        long now = System.nanoTime();
+        if (now - this.intervalStart < intervalNanos) {
+            return false;
+        }
+        LogHistogram[] swap = this.lastTimes;
+        this.lastTimes = this.times;
+        this.times = swap;
+        swap = this.lastAllocations;
+        this.lastAllocations = this.allocations;
+        this.allocations = swap;
+        swap = this.lastValues;
+        this.lastValues = this.values;
+        this.values = swap;
+        for (LogHistogram histogram : this.times) { histogram.clear(); }
+        for (LogHistogram histogram : this.allocations) { histogram.clear(); }
+        for (LogHistogram histogram : this.values) { histogram.clear(); }
+
+        this.lastIntervalNanos = now - this.intervalStart;
+        this.intervalStart = now;
+        return true;
+    }
+}
@@ -0,0 +1,218 @@
+package com.thwamster.engine;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Lays and numbers very large boards on a ForkJoinPool, a stripe of STRIPE_ROWS rows per task.
+ *
+ * The mines are split between stripes by halving: each half of a run of stripes draws its share from a
+ * hypergeometric distribution, how many of the run's mines land in that half when they are spread uniformly,
+ * so the stripes' counts follow the multivariate hypergeometric and always add up to the whole. Each half also
+ * takes its own stream split from its parent's, and each stripe lays its share with a BombPlacer seeded from its
+ * stream. Stripes and streams depend only on the board and the seed, never on the threads, so a seed gives the
+ * same board on any machine.
+ *
+ * Numbering waits for every stripe to be laid, then numbers each stripe again in parallel. A stripe reads the
+ * mines of the row above and below it straight from its neighbors' bytes, which nothing writes by then.
+ */
+public class StripeGenerator {
+    /* Size */
+    public static final int STRIPE_ROWS = 64;
+    public static final int MIN_CELLS = 2048 * 2048; // below this one thread is quicker than the handoff
+
+    // log(n!) up to here is summed exactly, past it Stirling's series is good to the last digit
+    private static final int LOG_FACTORIAL_TABLE = 256;
+    private static final double[] LOG_FACTORIALS = new double[LOG_FACTORIAL_TABLE];
+    static {
+        for (int n = 2; n < LOG_FACTORIAL_TABLE; n++) {
+            LOG_FACTORIALS[n] = LOG_FACTORIALS[n - 1] + Math.log(n);
+        }
+    }
+
+    /* Instance Variables */
+    private final ForkJoinPool pool;
+    private final AtomicInteger numDone = new AtomicInteger(); // stripes laid plus stripes numbered
+    private volatile int numSteps = 1; // twice the stripes of the board being generated
+
+    // The board being generated, set before the tasks start
+    private FlatBoardStorage board;
+    private int safeIndex;
+    private int[] layout;
+
+    /* Constructor */
+    public StripeGenerator(ForkJoinPool newPool) {
+        this.pool = newPool;
+    }
+
+    /* Helper Methods */
+    public ForkJoinPool getPool() { return this.pool; }
+
+    // How far along the current or last board is, from 0 to 1, safe to read from any thread
+    public float getProgress() { return Math.min(1, (float) this.numDone.get() / this.numSteps); }
+
+    public static int numStripes(int numRows) { return (numRows + STRIPE_ROWS - 1) / STRIPE_ROWS; }
+
+    // Cells in the stripes from firstStripe up to endStripe that can take a mine
+    private int candidates(int firstStripe, int endStripe) {
+        int first = firstStripe * STRIPE_ROWS * this.board.getNumCols();
+        int end = Math.min(endStripe * STRIPE_ROWS, this.board.getNumRows()) * this.board.getNumCols();
+        return end - first - (this.safeIndex >= first && this.safeIndex < end ? 1 : 0);
+    }
+
+    /* Generating Methods */
+    // Lays numBombs mines on a cleared board, keeping safeIndex clear, and numbers it. Returns the mine cells,
+    // stripe by stripe. Not for use by two threads at once.
+    public int[] generate(FlatBoardStorage newBoard, int numBombs, int newSafeIndex, long seed) {
+        int numStripes = numStripes(newBoard.getNumRows());
+        this.board = newBoard;
+        this.safeIndex = newSafeIndex >= 0 && newSafeIndex < newBoard.getNumCells() ? newSafeIndex : -1;
+        int count = Math.max(0, Math.min(numBombs, this.candidates(0, numStripes)));
+        this.layout = new int[count];
+        this.numDone.set(0);
+        this.numSteps = 2 * numStripes;
+
+        this.pool.invoke(new LayTask(0, numStripes, count, 0, new SplittableRandom(seed)));
+        this.pool.invoke(new NumberTask(0, numStripes));
+
+        int[] result = this.layout;
+        this.board = null;
+        this.layout = null;
+        return result;
+    }
+
+    // Splits a run of stripes and its mines in two until each task holds one stripe, then lays its mines
+    private final class LayTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int firstStripe;
+        private final int endStripe;
+        private final int numBombs;
+        private final int offset; // where the run's mines start in the layout
+        private final SplittableRandom random;
+
+        private LayTask(int newFirstStripe, int newEndStripe, int newNumBombs, int newOffset, SplittableRandom newRandom) {
+            this.firstStripe = newFirstStripe;
+            this.endStripe = newEndStripe;
+            this.numBombs = newNumBombs;
+            this.offset = newOffset;
+            this.random = newRandom;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.endStripe - this.firstStripe == 1) {
+                this.layStripe();
+                return;
+            }
+            int middle = (this.firstStripe + this.endStripe) >>> 1;
+            int leftBombs = hypergeometric(candidates(this.firstStripe, this.endStripe), this.numBombs,
+                candidates(this.firstStripe, middle), this.random);
+            // split in a fixed order, so each half gets the same stream whichever thread runs it
+            SplittableRandom leftRandom = this.random.split();
+            SplittableRandom rightRandom = this.random.split();
+            invokeAll(new LayTask(this.firstStripe, middle, leftBombs, this.offset, leftRandom),
+                new LayTask(middle, this.endStripe, this.numBombs - leftBombs, this.offset + leftBombs, rightRandom));
+        }
+
+        private void layStripe() {
+            int numCols = board.getNumCols();
+            int first = this.firstStripe * STRIPE_ROWS * numCols;
+            int numCells = Math.min(this.endStripe * STRIPE_ROWS, board.getNumRows()) * numCols - first;
+            int safe = safeIndex >= first && safeIndex < first + numCells ? safeIndex - first : -1;
+
+            BombPlacer placer = new BombPlacer(new Random(this.random.nextLong()));
+            int[] bombs = placer.place(numCells, this.numBombs, safe);
+            for (int i = 0; i < bombs.length; i++) {
+                int index = first + bombs[i];
+                board.setMine(index);
+                layout[this.offset + i] = index;
+            }
+            numDone.incrementAndGet();
+        }
+    }
+
+    private final class NumberTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int firstStripe;
+        private final int endStripe;
+
+        private NumberTask(int newFirstStripe, int newEndStripe) {
+            this.firstStripe = newFirstStripe;
+            this.endStripe = newEndStripe;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.endStripe - this.firstStripe == 1) {
+                board.numberRows(this.firstStripe * STRIPE_ROWS, Math.min(this.endStripe * STRIPE_ROWS, board.getNumRows()));
+                numDone.incrementAndGet();
+                return;
+            }
+            int middle = (this.firstStripe + this.endStripe) >>> 1;
+            invokeAll(new NumberTask(this.firstStripe, middle), new NumberTask(middle, this.endStripe));
+        }
+    }
+
+    /* Sampling */
+    // How many of draws cells picked at random from population hold a mine, when successes of them do.
+    // Inverts the distribution from its mode outward, taking the likelier side each step, so it takes about as
+    // many steps as the standard deviation.
+    public static int hypergeometric(int population, int successes, int draws, SplittableRandom random) {
+        int low = Math.max(0, draws - (population - successes));
+        int high = Math.min(draws, successes);
+        if (low >= high) {
+            return low;
+        }
+        int failures = population - successes;
+        int mode = (int) Math.min(high, Math.max(low, ((long) draws + 1) * ((long) successes + 1) / ((long) population + 2)));
+        double modeChance = Math.exp(logChoose(successes, mode) + logChoose(failures, draws - mode) - logChoose(population, draws));
+
+        double u = random.nextDouble() - modeChance;
+        int down = mode;
+        int up = mode;
+        double downChance = modeChance;
+        double upChance = modeChance;
+        while (u > 0 && (down > low || up < high)) {
+            // the chance of k + 1 over the chance of k is (K - k)(n - k) / ((k + 1)(N - K - n + k + 1))
+            double nextUp = up < high ? upChance * ((double) (successes - up) * (draws - up))
+                / ((double) (up + 1) * (failures - draws + up + 1)) : -1;
+            double nextDown = down > low ? downChance * ((double) down * (failures - draws + down))
+                / ((double) (successes - down + 1) * (draws - down + 1)) : -1;
+            if (nextUp >= nextDown) {
+                upChance = nextUp;
+                u -= nextUp;
+                up++;
+                if (u <= 0) {
+                    return up;
+                }
+            }
+            else {
+                downChance = nextDown;
+                u -= nextDown;
+                down--;
+                if (u <= 0) {
+                    return down;
+                }
+            }
+        }
+        return mode; // only rounding leaves anything over
+    }
+
+    private static double logChoose(int n, int k) { return logFactorial(n) - logFactorial(k) - logFactorial(n - k); }
+
+    private static double logFactorial(int n) {
+        if (n < LOG_FACTORIAL_TABLE) {
+            return LOG_FACTORIALS[n];
+        }
+        double x = n;
+        double inverse = 1 / x;
+        double inverse2 = inverse * inverse;
+        return x * Math.log(x) - x + 0.5 * Math.log(2 * Math.PI * x)
+            + inverse * (1.0 / 12 - inverse2 * (1.0 / 360 - inverse2 / 1260));
+    }
+}
@@ -0,0 +1,37 @@
+package com.thwamster.engine;
+
+/*
+ * Writes times into a StringBuilder the caller keeps, for text that is rebuilt every frame.
+ * StringBuilder.append(int) and append(long) write digits straight into the builder's array, so once the builder
+ * has grown to fit nothing is allocated.
+ */
+public final class TimeFormat {
+    private TimeFormat() { }
+
+    // Minutes and seconds, as in 12:05
+    public static StringBuilder appendClock(StringBuilder out, long millis) {
+        long minutes = millis / (60 * 1000);
+        int seconds = (int) ((millis / 1000) % 60);
+        out.append(minutes).append(':');
+        if (seconds < 10) {
+            out.append('0');
+        }
+        return out.append(seconds);
+    }
+
+    public static String clock(long millis) { return appendClock(new StringBuilder(8), millis).toString(); }
+
+    // Nanoseconds as milliseconds with three decimals, as in 16.667
+    public static StringBuilder appendMillis(StringBuilder out, long nanos) {
+        long micros = nanos / 1000;
+        out.append(micros / 1000).append('.');
+        int fraction = (int) (micros % 1000);
+        if (fraction < 100) {
+            out.append('0');
+        }
+        if (fraction < 10) {
+            out.append('0');
+        }
+        return out.append(fraction);
+    }
+}
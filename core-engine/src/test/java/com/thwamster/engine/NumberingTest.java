@@ -0,0 +1,176 @@
+package com.thwamster.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/*
+ * Checks the engine's numbering from its bomb list, and the sweeps, against a plain count of each cell's eight
+ * neighbors, the way the board was numbered before, byte for byte.
+ */
+class NumberingTest {
+    private static final int BOARDS = 3000;
+
+    @Test
+    void numberAllMatchesNeighborCount() {
+        Random random = new Random(1);
+        for (int i = 0; i < BOARDS; i++) {
+            FlatBoardStorage board = randomBoard(random);
+            byte[] expected = reference(board);
+            board.numberAll();
+            assertEquals(toString(expected, board), toString(board.getCells(), board));
+        }
+    }
+
+    @Test
+    void numberRowsInStripesMatchesNeighborCount() {
+        Random random = new Random(2);
+        for (int i = 0; i < BOARDS; i++) {
+            FlatBoardStorage board = randomBoard(random);
+            byte[] expected = reference(board);
+            int stripe = 1 + random.nextInt(board.getNumRows());
+            for (int row = 0; row < board.getNumRows(); row += stripe) {
+                board.numberRows(row, Math.min(row + stripe, board.getNumRows()));
+            }
+            assertEquals(toString(expected, board), toString(board.getCells(), board));
+        }
+    }
+
+    @Test
+    void defaultNumberAllMatchesNeighborCount() {
+        Random random = new Random(3);
+        for (int i = 0; i < BOARDS; i++) {
+            FlatBoardStorage flat = randomBoard(random);
+            byte[] expected = reference(flat);
+            BoardStorage board = new ByteStorage(flat.copy());
+            board.numberAll();
+            assertEquals(toString(expected, flat), toString(((ByteStorage) board).board.getCells(), flat));
+        }
+    }
+
+    @Test
+    void singleRowsAndColumns() {
+        Random random = new Random(4);
+        for (int length = 1; length <= 64; length++) {
+            for (FlatBoardStorage board : new FlatBoardStorage[] { new FlatBoardStorage(1, length), new FlatBoardStorage(length, 1) }) {
+                fill(board, random, random.nextDouble());
+                byte[] expected = reference(board);
+                board.numberAll();
+                assertEquals(toString(expected, board), toString(board.getCells(), board));
+            }
+        }
+    }
+
+    // The engine numbers a new board from its bomb list, adding one around each bomb
+    @Test
+    void engineNumbersFromTheBombList() {
+        Random random = new Random(5);
+        for (int i = 0; i < BOARDS; i++) {
+            int rows = i % 8 == 0 ? 1 : 1 + random.nextInt(40);
+            int cols = i % 8 == 1 ? 1 : 1 + random.nextInt(40);
+            int numCells = rows * cols;
+            int numBombs = random.nextInt(numCells); // leaves room for the first click
+            MinesweeperEngine engine = new MinesweeperEngine(rows, cols, numBombs, new Random(i));
+            if (random.nextBoolean()) {
+                engine.start(random.nextInt(numCells), random.nextLong());
+            }
+            else {
+                engine.start(randomLayout(random, numCells, numBombs));
+            }
+
+            FlatBoardStorage board = (FlatBoardStorage) engine.getBoard();
+            assertEquals(toString(reference(board), board), toString(board.getCells(), board));
+        }
+    }
+
+    private static int[] randomLayout(Random random, int numCells, int numBombs) {
+        int[] cells = new int[numCells];
+        for (int i = 0; i < numCells; i++) {
+            cells[i] = i;
+        }
+        for (int i = 0; i < numBombs; i++) {
+            int j = i + random.nextInt(numCells - i);
+            int swap = cells[i];
+            cells[i] = cells[j];
+            cells[j] = swap;
+        }
+        return Arrays.copyOf(cells, numBombs);
+    }
+
+    // Random sizes from 1x1 up, with every density from empty to full, and stale numbers and player bits left on the cells
+    private static FlatBoardStorage randomBoard(Random random) {
+        int rows = random.nextInt(4) == 0 ? 1 : 1 + random.nextInt(40);
+        int cols = random.nextInt(4) == 0 ? 1 : 1 + random.nextInt(40);
+        FlatBoardStorage board = new FlatBoardStorage(rows, cols);
+        fill(board, random, random.nextDouble());
+        return board;
+    }
+
+    private static void fill(FlatBoardStorage board, Random random, double density) {
+        for (int i = 0; i < board.getNumCells(); i++) {
+            board.setRevealed(i, random.nextBoolean());
+            board.setFlagged(i, random.nextInt(8) == 0);
+            if (random.nextDouble() < density) {
+                board.setMine(i); // mines go onto a cleared board, so they never carry a number
+            }
+            else {
+                board.setNumber(i, random.nextInt(9));
+            }
+        }
+    }
+
+    // Counts the mines among the eight neighbors of each safe cell, leaving every other bit alone
+    private static byte[] reference(FlatBoardStorage board) {
+        int rows = board.getNumRows();
+        int cols = board.getNumCols();
+        byte[] cells = board.getCells().clone();
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int index = row * cols + col;
+                int count = 0;
+                if (!board.isMine(index)) {
+                    for (int r = row - 1; r <= row + 1; r++) {
+                        for (int c = col - 1; c <= col + 1; c++) {
+                            if (r >= 0 && r < rows && c >= 0 && c < cols && (r != row || c != col) && board.isMine(r * cols + c)) {
+                                count++;
+                            }
+                        }
+                    }
+                }
+                cells[index] = (byte) ((cells[index] & ~FlatBoardStorage.NUMBER_MASK) | count);
+            }
+        }
+        return cells;
+    }
+
+    private static String toString(byte[] cells, BoardStorage board) {
+        StringBuilder text = new StringBuilder(board.getNumRows() + "x" + board.getNumCols() + "\n");
+        for (int i = 0; i < cells.length; i++) {
+            text.append(Integer.toHexString(cells[i] & 0xFF)).append(i % board.getNumCols() == board.getNumCols() - 1 ? '\n' : ' ');
+        }
+        return text.toString();
+    }
+
+    // Goes through BoardStorage's own sweep instead of the branch-free one FlatBoardStorage overrides it with
+    private static class ByteStorage implements BoardStorage {
+        private final FlatBoardStorage board;
+
+        ByteStorage(FlatBoardStorage newBoard) { this.board = newBoard; }
+
+        @Override public int getNumRows() { return this.board.getNumRows(); }
+        @Override public int getNumCols() { return this.board.getNumCols(); }
+        @Override public int getNumCells() { return this.board.getNumCells(); }
+        @Override public boolean isMine(int index) { return this.board.isMine(index); }
+        @Override public int getNumber(int index) { return this.board.getNumber(index); }
+        @Override public boolean isRevealed(int index) { return this.board.isRevealed(index); }
+        @Override public boolean isFlagged(int index) { return this.board.isFlagged(index); }
+        @Override public void setMine(int index) { this.board.setMine(index); }
+        @Override public void setNumber(int index, int number) { this.board.setNumber(index, number); }
+        @Override public void incrementNumber(int index) { this.board.incrementNumber(index); }
+        @Override public void setRevealed(int index, boolean revealed) { this.board.setRevealed(index, revealed); }
+        @Override public void setFlagged(int index, boolean flagged) { this.board.setFlagged(index, flagged); }
+        @Override public void clear() { this.board.clear(); }
+    }
+}
@@ -0,0 +1,87 @@
+package com.thwamster.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScoreStoreTest {
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 8;
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void scoresAndMetricsSurviveAReload() throws IOException {
+        Path path = this.folder.resolve("scores.bin");
+        ScoreStore store = new ScoreStore(path, 10);
+        store.add(2000, 6);
+        store.add(1000);
+        store.add(3000, 7);
+
+        ScoreStore loaded = load(path, 0);
+        assertEquals(3, loaded.getNumScores());
+        assertEquals(1000, loaded.getTop(0));
+        assertEquals(-1, loaded.getTopMetrics(0));
+        assertEquals(2000, loaded.getTop(1));
+        assertEquals(6, loaded.getTopMetrics(1));
+        assertEquals(3000, loaded.getTop(2));
+        assertEquals(7, loaded.getTopMetrics(2));
+    }
+
+    // A damaged time takes its metrics with it, and compacting must not keep the orphans in place of the good scores
+    @Test
+    void metricsOfADamagedTimeAreDroppedWithIt() throws IOException {
+        Path path = this.folder.resolve("scores.bin");
+        ScoreStore store = new ScoreStore(path, 10);
+        store.add(1000, 5);
+        store.add(2000, 6);
+        store.add(3000, 7);
+        flipBit(path, HEADER_SIZE); // the first time
+        flipBit(path, HEADER_SIZE + 2 * RECORD_SIZE); // the second time
+
+        ScoreStore loaded = load(path, 4);
+        assertEquals(1, loaded.getNumScores());
+        assertEquals(3000, loaded.getTop(0));
+        assertEquals(7, loaded.getTopMetrics(0));
+        assertEquals(HEADER_SIZE + 2 * RECORD_SIZE, Files.size(path));
+
+        ScoreStore reloaded = load(path, 0);
+        assertEquals(1, reloaded.getNumScores());
+        assertEquals(3000, reloaded.getTop(0));
+        assertEquals(7, reloaded.getTopMetrics(0));
+    }
+
+    // Metrics only belong to the time right before them, not to one further back past a damaged record
+    @Test
+    void metricsAfterADamagedRecordAreDropped() throws IOException {
+        Path path = this.folder.resolve("scores.bin");
+        ScoreStore store = new ScoreStore(path, 10);
+        store.add(1000);
+        store.add(2000, 6);
+        flipBit(path, HEADER_SIZE + RECORD_SIZE); // the second time
+
+        ScoreStore loaded = load(path, 2);
+        assertEquals(1, loaded.getNumScores());
+        assertEquals(1000, loaded.getTop(0));
+        assertEquals(-1, loaded.getTopMetrics(0));
+        assertEquals(HEADER_SIZE + RECORD_SIZE, Files.size(path));
+    }
+
+    private static ScoreStore load(Path path, int dropped) throws IOException {
+        ScoreStore store = new ScoreStore(path, 10);
+        assertEquals(dropped, store.load(null));
+        return store;
+    }
+
+    // Flips the lowest bit of the record at offset, which sits in the time and so fails its check
+    private static void flipBit(Path path, int offset) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[offset + RECORD_SIZE - 1] ^= 1;
+        Files.write(path, bytes);
+    }
+}
@@ -0,0 +1,83 @@
+package com.thwamster.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SolverTest {
+    private static final int GAMES = 500;
+
+    // findSafe, hint and process rebuild the components without working the probabilities out again, so reading a
+    // probability straight after them has to catch up first rather than read another analysis's variables
+    @Test
+    void probabilityAfterFindSafe() {
+        for (int game = 0; game < GAMES; game++) {
+            MinesweeperEngine engine = new MinesweeperEngine(16, 30, 99, new Random(game));
+            Solver solver = new Solver(engine);
+            int first = engine.index(8, 15);
+            engine.start(first);
+            engine.reveal(first);
+
+            while (engine.getGameStatus() == MinesweeperEngine.PLAYING) {
+                int safe = solver.findSafe();
+                if (safe >= 0) {
+                    assertEquals(0, solver.getProbability(safe), 0);
+                }
+                for (int i = 0; i < engine.getNumCells(); i++) {
+                    if (engine.getBoard().isRevealed(i)) {
+                        continue;
+                    }
+                    float probability = solver.getProbability(i);
+                    assertTrue(probability >= 0 && probability <= 1, "probability " + probability);
+                    // the solver never looks at the bombs, so anything it is sure of has to be right
+                    if (probability == 0 || probability == 1) {
+                        assertEquals(probability == 1, engine.getBoard().isMine(i));
+                    }
+                }
+                engine.reveal(solver.hint());
+            }
+        }
+    }
+
+    @Test
+    void probabilityAfterHintBeforeFirstClick() {
+        MinesweeperEngine engine = new MinesweeperEngine(9, 9, 10, new Random(1));
+        Solver solver = new Solver(engine);
+        int hint = solver.hint();
+        assertEquals(10 / 81f, solver.getProbability(hint), 1e-6);
+    }
+
+    // Dense boards grow frontier components too large to enumerate, whose bomb counts are only estimated. Nothing
+    // worked out from an estimate may be taken as certain, so every safe cell findSafe proves has to be safe.
+    // A guess that would hit a bomb opens a safe cell instead, so games last long enough to reach the late stage
+    // where the estimates use up the bomb count.
+    @Test
+    void findSafeNeverReturnsAMineOnDenseBoards() {
+        for (int game = 0; game < 150; game++) {
+            MinesweeperEngine engine = new MinesweeperEngine(40, 40, 400, new Random(game));
+            BoardStorage board = engine.getBoard();
+            Solver solver = new Solver(engine);
+            int first = engine.index(20, 20);
+            engine.start(first);
+            engine.reveal(first);
+
+            while (engine.getGameStatus() == MinesweeperEngine.PLAYING) {
+                int safe = solver.findSafe();
+                if (safe >= 0) {
+                    assertTrue(!board.isMine(safe), "game " + game + ": findSafe returned the bomb at " + safe);
+                }
+                else {
+                    safe = solver.hint();
+                    for (int i = 0; board.isMine(safe) && i < engine.getNumCells(); i++) {
+                        if (!board.isMine(i) && !board.isRevealed(i)) {
+                            safe = i;
+                        }
+                    }
+                }
+                engine.reveal(safe);
+            }
+        }
+    }
+}
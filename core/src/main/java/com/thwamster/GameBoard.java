@@ -1,182 +1,170 @@
 package com.thwamster;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.Preferences;
 import com.badlogic.gdx.files.FileHandle;
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.Json;
-import com.badlogic.gdx.utils.JsonWriter;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.thwamster.engine.BoardMetrics;
+import com.thwamster.engine.BoardPool;
+import com.thwamster.engine.BoardStorage;
+import com.thwamster.engine.FlatBoardStorage;
+import com.thwamster.engine.GameJournal;
+import com.thwamster.engine.GameSnapshot;
+import com.thwamster.engine.MinesweeperEngine;
+import com.thwamster.engine.ReplayVerifier;
+import com.thwamster.engine.ScoreStore;
+import com.thwamster.engine.ScoreSummary;
+import com.thwamster.engine.Solver;
+import com.thwamster.engine.StripeGenerator;
+import com.thwamster.engine.TimeFormat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/*
+ * Puts a MinesweeperEngine on screen: maps board-space positions to cells, picks the tile for each cell
+ * and saves finishing times. The rules themselves live in the engine.
+ * Every click that reaches the engine is recorded in a GameJournal, and a time only reaches the scoreboard once
+ * its journal replays to the same win.
+ */
+public class GameBoard {
+    /* Scores */
+    public static final int SCOREBOARD_SIZE = 24; // fastest times kept in memory and shown on screen
 
+    /* Saves */
+    public static final String SAVE_FILE = "save.msnap"; // the game in progress, kept between runs
+    public static final String SAVE_JOURNAL_FILE = "save.msjr"; // the actions of the game in progress
+    public static final String REPLAY_FOLDER = "replays"; // journals of won games, and of the last game played
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
+    /* Layout */
+    public static final float TILE_SIZE = 25; // width of one tile in board space, the size of the tile images
 
-public class GameBoard {
     /* Instance Variables */
     // Elements
-    private int[][] board; // the data structure as described above
-    private int numBombs; // the number of bombs in the grid
-    private int numFlags; // the number of flags that still have to be placed by the player
-    private int gameStatus; // status of game ending
-    private long startTime; // beginning timer
-    private long finishTime; // end timer
+    private final MinesweeperEngine engine; // the game itself
+    private ScoreStore scores; // saved times for the current board size
+    private ScoreSummary summary; // sketch and fastest times of the same scores, saved next to them
+    private Path summaryPath;
+    private GameJournal journal; // the actions of the current game
+    private final BoardMetrics metrics = new BoardMetrics(); // 3BV and openings of the current layout, measured when it is laid
+    private final ReplayVerifier verifier = new ReplayVerifier(); // checks a win before its time is saved
+    private final Solver solver; // follows the engine, used for hints
+    private boolean noGuess; // start from layouts that can be solved without guessing
+    private BoardPool pool; // no-guess layouts made in the background, created when first needed
+    private Future<int[]> starting; // the first click of a very large board, being laid on the engine's stripe pool
+    private FlatBoardStorage laid; // the board it is laid on, away from the engine until update hands it over
+    private int startIndex; // the cell that click was on
+    private long startSeed; // the seed it is laid from
+    private Future<Integer> checking; // the replay of a very large board's win, being checked on the stripe pool
+    private long checkingTime; // the time that win claims
+    private ScoreStore checkingScores; // where it goes once it passes, even if the board size has changed since
+    private ScoreSummary checkingSummary;
+    private Path checkingSummaryPath;
 
     // Textures
-    private Texture emptyTile;
-    private Texture emptyFloorTile;
-    private Texture oneTile;
-    private Texture twoTile;
-    private Texture threeTile;
-    private Texture fourTile;
-    private Texture fiveTile;
-    private Texture sixTile;
-    private Texture sevenTile;
-    private Texture eightTile;
-    private Texture bombTile;
-    private Texture flagTile;
+    private final TileAssets tiles; // shared tile atlas, owned by the screen
 
     /* Constructors */
-    public GameBoard() {
-        this(1, 2, 1);
+    public GameBoard(TileAssets newTiles) {
+        this(newTiles, 1, 2, 1);
     }
 
-    public GameBoard(int newNumRows, int newNumCols, int newNumBombs) {
-        initialize(newNumRows, newNumCols, newNumBombs);
+    public GameBoard(TileAssets newTiles, int newNumRows, int newNumCols, int newNumBombs) {
+        this.tiles = newTiles;
+        this.engine = new MinesweeperEngine(newNumRows, newNumCols, newNumBombs);
+        this.solver = new Solver(this.engine);
+        this.journal = new GameJournal(newNumRows, newNumCols, newNumBombs);
+        this.loadScores();
     }
 
     /* Helper Methods */
     // Get Methods
-    public int[][] getBoard() { return this.board; }
-    public int getNumCols() { return this.board[0].length; }
-    public int getNumRows() { return this.board.length; }
-    public int getNumBombs() { return this.numBombs; }
-    public int getNumFlags() { return this.numFlags; }
-
-    public String getTime() {
-        long time;
-        if (this.gameStatus == -1 || this.gameStatus == 2) {
-            time = this.finishTime;
-        }
-        else if (this.gameStatus == 1) {
-            time = System.currentTimeMillis() - this.startTime;
-        }
-        else {
-            time = 0;
-        }
-        return this.formatTime(time);
-    }
-
-    public int getGameStatus() {
-        if (this.numFlags == this.numBombs) {
-            boolean finish = true;
-
-            outerloop:
-            for (int r = 0; r < this.getNumRows(); r++) {
-                for (int c = 0; c < this.getNumCols(); c++) {
-                    int value = this.board[r][c];
-                    if (value >= 0 && value <= 8) {
-                        finish = false;
-                        break outerloop;
-                    }
-                    else if (value >= 19 && value <= 28) {
-                        value -= 20;
-                        if (value != -1) {
-                            finish = false;
-                            break outerloop;
-                        }
-                    }
-                }
-            }
-            if (finish) {
-                this.finish(2);
+    public MinesweeperEngine getEngine() { return this.engine; }
+    public BoardStorage getBoard() { return this.engine.getBoard(); }
+    public int getNumCols() { return this.engine.getNumCols(); }
+    public int getNumRows() { return this.engine.getNumRows(); }
+    public int getNumBombs() { return this.engine.getNumBombs(); }
+    public int getNumFlags() { return this.engine.getNumFlags(); }
+    public int getGameStatus() { return this.engine.getGameStatus(); }
+    public ScoreStore getScoreBoard() { return this.scores; }
+    public ScoreSummary getScoreSummary() { return this.summary; }
+    public Solver getSolver() { return this.solver; }
+
+    // A striped board is too big for the solver's arrays, so it gets no hints and the solver never builds them
+    public boolean hasHints() { return !this.engine.isStriped(); }
+    public GameJournal getJournal() { return this.journal; }
+    public BoardMetrics getBoardMetrics() { return this.metrics; }
+    public boolean isNoGuess() { return this.noGuess; }
+    // No-guess layouts are only searched for on boards small and sparse enough to find them quickly
+    public boolean hasNoGuess() { return BoardPool.supports(this.getNumRows(), this.getNumCols(), this.getNumBombs()); }
+    public boolean isStarting() { return this.starting != null; }
+    public boolean isChecking() { return this.checking != null; }
+    public float getStartProgress() { return this.engine.getStripeGenerator().getProgress(); }
+
+    // Set Methods
+    public void setRandom(Random random) { this.engine.setRandom(random); }
+    public void setSeed(long seed) { this.engine.setSeed(seed); }
+
+    public void setNoGuess(boolean newNoGuess) {
+        this.noGuess = newNoGuess;
+        if (newNoGuess) {
+            if (this.pool == null) {
+                this.pool = new BoardPool();
             }
+            this.pool.prepare(this.getNumRows(), this.getNumCols(), this.getNumBombs());
         }
-        return this.gameStatus;
     }
 
-    public ArrayList<Long> getScoreBoard() {
-        String fileName = "scores-" + this.getNumRows() + "x" + this.getNumCols() + "-" + this.getNumBombs();
-        ArrayList<Long> scoreBoard;
+    public long getElapsed() { return this.engine.getElapsed(); }
+    public String getTime() { return this.formatTime(this.engine.getElapsed()); }
 
-        if (Gdx.files.local(fileName).exists()) {
-            FileHandle file = Gdx.files.local(fileName);
-            String scoreString = file.readString();
-            String[] scoreArray = scoreString.split(", ");
-
-            scoreBoard = new ArrayList<Long>();
-            for (String score : scoreArray) {
-                try {
-                    scoreBoard.add(Long.parseLong(score));
-                }
-                catch (NumberFormatException ignored) { }
-            }
-        }
-        else {
-            scoreBoard = null;
-        }
-
-        return scoreBoard;
-    }
+    // Changed Cells
+    public int[] getDirty() { return this.engine.getDirty(); }
+    public int getNumDirty() { return this.engine.getNumDirty(); }
+    public boolean isAllDirty() { return this.engine.isAllDirty(); }
+    public void clearDirty() { this.engine.clearDirty(); }
 
     // Location
+    // Maps a point in board space, where each tile is TILE_SIZE wide and row 0 sits at the bottom, to a cell
     public Location positionToLocation(float x, float y) {
-        float margin = 80;
-        float gameWidth = GameplayScreen.getWorldWidth() - 2 * margin;
-        float gameHeight = GameplayScreen.getWorldHeight() - 2 * margin;
-
-        float scale = Math.min(gameWidth / this.getNumCols(), gameHeight / this.getNumRows());
-        float xIndent = (gameWidth - (scale * this.getNumCols())) / 2;
-        float yIndent = (gameHeight - (scale * this.getNumRows())) / 2;
-
-        return new Location((int) ((GameplayScreen.reverseHeight(y) - yIndent - margin) / scale),
-                (int) ((x - xIndent - margin) / scale));
+        return new Location((int) Math.floor(y / TILE_SIZE), (int) Math.floor(x / TILE_SIZE));
     }
 
     public boolean validLocation(Location location) {
-        return location != null && location.getRow() >= 0 && location.getRow() < this.getNumRows() &&
-                location.getCol() >= 0 && location.getCol() < this.getNumCols();
+        return location != null && this.engine.validCell(location.getRow(), location.getCol());
     }
 
     // Time
-    public String formatTime(Long time) {
-        int minutes = (int) (time / (60 * 1000));
-        int seconds = (int) ((time / 1000) % 60);
-        return String.format("%d:%02d", minutes, seconds);
-    }
+    // Allocates a new String, text drawn every frame goes through TimeFormat.appendClock instead
+    public String formatTime(long time) { return TimeFormat.clock(time); }
 
     /* Initialization Methods */
     public void initialize(int newNumRows, int newNumCols, int newNumBombs) {
-        this.board = new int[newNumRows][newNumCols];
-        this.numBombs = newNumBombs;
-        this.reset();
-        this.loadGraphics();
-    }
-
-    public void start(Location startLocation) {
-        this.gameStatus = 1;
-        this.startTime = System.currentTimeMillis();
-
-        this.placeBombs(startLocation);
-        this.numberBoard();
+        this.dropStart();
+        this.engine.initialize(newNumRows, newNumCols, newNumBombs);
+        this.journal = new GameJournal(newNumRows, newNumCols, newNumBombs);
+        this.loadScores();
+        if (this.noGuess) {
+            this.pool.prepare(newNumRows, newNumCols, newNumBombs);
+        }
     }
 
-    public void finish(int finishStatus) {
-        this.finishTime = System.currentTimeMillis() - this.startTime;
-        if (gameStatus == 1 && finishStatus == 2) {
-            saveScore();
+    public void dispose() {
+        if (this.pool != null) {
+            this.pool.shutdown();
         }
-        this.gameStatus = finishStatus;
     }
 
     public void reset() {
-        for (int[] values : this.board) {
-            Arrays.fill(values, 0);
-        }
-        this.numFlags = 0;
-        this.gameStatus = 0;
+        this.dropStart();
+        this.engine.reset();
+        this.journal = new GameJournal(this.getNumRows(), this.getNumCols(), this.getNumBombs());
+        this.saveGame(); // nothing in progress, so this clears the old save
     }
+
     // Difficulty
     public void setDifficulty(int difficulty) {
         switch (difficulty) {
@@ -193,184 +181,365 @@ public class GameBoard {
     }
 
     // Score
+    // Only a win whose replay checks out is saved. Checking replays lay the board again, which takes seconds on a
+    // striped board, so those are checked on the stripe pool and finishCheck saves them once they pass.
     public void saveScore() {
-        String fileName = "scores-" + this.getNumRows() + "x" + this.getNumCols() + "-" + this.getNumBombs();
-
-        FileHandle file = Gdx.files.local(fileName);
-        file.writeString(this.finishTime + ", ", true);
+        long time = this.engine.getElapsed();
+        if (this.engine.isStriped()) {
+            this.waitForCheck();
+            GameJournal journal = this.journal; // never written again, a new game gets a new journal
+            this.checking = this.engine.getStripeGenerator().getPool().submit(() -> new ReplayVerifier().verify(journal, time));
+            this.checkingTime = time;
+            this.checkingScores = this.scores;
+            this.checkingSummary = this.summary;
+            this.checkingSummaryPath = this.summaryPath;
+            return;
+        }
+        long packed = this.metrics.getNumCells() > 0 ? this.metrics.pack() : -1;
+        this.addScore(this.scores, this.summary, this.summaryPath, time, packed, this.verifier.verify(this.journal, time));
     }
 
-    // Textures
-    private void loadGraphics() {
-        this.emptyTile = new Texture("emptyTile.jpg");
-        this.emptyFloorTile = new Texture("empty floor.jpg");
-        this.oneTile = new Texture("oneTile.jpg");
-        this.twoTile = new Texture("twoTile.jpg");
-        this.threeTile = new Texture("threeTile.jpg");
-        this.fourTile = new Texture("fourTile.jpg");
-        this.fiveTile = new Texture("fiveTile.jpg");
-        this.sixTile = new Texture("sixTile.jpg");
-        this.sevenTile = new Texture("sevenTile.jpg");
-        this.eightTile = new Texture("eightTile.jpg");
-        this.bombTile = new Texture("bomb.jpg");
-        this.flagTile = new Texture("flagTile.jpg");
+    // Saves a striped win once its replay has been checked, on the render thread. Returns whether the check is over.
+    public boolean finishCheck() {
+        if (this.checking == null || !this.checking.isDone()) {
+            return this.checking == null;
+        }
+        this.waitForCheck();
+        return true;
     }
 
-    // Bombs
-    private void placeBombs(Location startLocation) {
-        int count = 0;
-        for (int i = 0; i < this.numBombs; i++) {
-            Location location = this.getEmptyLocation(startLocation);
-            if (this.validLocation(location)) {
-                this.board[location.getRow()][location.getCol()] = -1;
-                count++;
-            }
+    // Waits for the check of a striped win, if there is one, and saves the win if it passed
+    private void waitForCheck() {
+        if (this.checking == null) {
+            return;
+        }
+        Future<Integer> checked = this.checking;
+        this.checking = null;
+        try {
+            // striped boards are left unmeasured, so their wins carry no metrics
+            this.addScore(this.checkingScores, this.checkingSummary, this.checkingSummaryPath, this.checkingTime, -1, checked.get());
         }
-        this.numBombs = count;
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            Gdx.app.error("GameBoard", "Did not save time " + this.checkingTime + ", its replay could not be checked", e);
+        }
+        this.checkingScores = null;
+        this.checkingSummary = null;
+        this.checkingSummaryPath = null;
     }
 
-    private Location getEmptyLocation(Location startLocation) {
-        ArrayList<Location> allEmpty = new ArrayList<Location>();
+    private void addScore(ScoreStore scores, ScoreSummary summary, Path summaryPath, long time, long packed, int verdict) {
+        if (verdict != ReplayVerifier.VALID) {
+            Gdx.app.error("GameBoard", "Did not save time " + time + ", its replay failed: " + ReplayVerifier.describe(verdict));
+            return;
+        }
+        try {
+            scores.add(time, packed);
+        }
+        catch (IOException e) {
+            Gdx.app.error("GameBoard", "Could not save score to " + scores.getPath(), e);
+            return;
+        }
+        try {
+            summary.add(time, System.currentTimeMillis());
+            summary.save(summaryPath);
+        }
+        catch (IOException e) {
+            Gdx.app.error("GameBoard", "Could not save the score summary to " + summaryPath, e);
+        }
+    }
 
-        for (int r = 0; r < this.getNumRows(); r++) {
-            for (int c = 0; c < this.getNumCols(); c++) {
-                if (this.board[r][c] == 0 && !(new Location(r,c).equals(startLocation))) {
-                    allEmpty.add(new Location(r, c));
+    // Save
+    // Keeps the game in progress so it can be picked up next time. A finished or unstarted game has nothing to keep.
+    public void saveGame() {
+        if (this.starting != null) {
+            return; // the board is still being laid, and the last save was cleared when it was reset
+        }
+        FileHandle file = Gdx.files.local(SAVE_FILE);
+        FileHandle journalFile = Gdx.files.local(SAVE_JOURNAL_FILE);
+        try {
+            if (this.engine.getGameStatus() == MinesweeperEngine.PLAYING) {
+                GameSnapshot.save(this.engine, file.file().toPath(), true);
+                this.journal.save(journalFile.file().toPath());
+            }
+            else {
+                if (file.exists()) {
+                    file.delete();
+                }
+                if (journalFile.exists()) {
+                    journalFile.delete();
                 }
             }
         }
-
-        Collections.shuffle(allEmpty);
-
-        if (!allEmpty.isEmpty()) { return allEmpty.get(0); }
-        else { return null; }
+        catch (IOException e) {
+            Gdx.app.error("GameBoard", "Could not save the game to " + file.name(), e);
+        }
     }
 
-    // Numbers
-    private void numberBoard() {
-        for (int r = 0; r < this.getNumRows(); r++) {
-            for (int c = 0; c < this.getNumCols(); c++) {
-                if (this.board[r][c] != -1) {
-                    ArrayList<Location> allNeighbors = this.getNeighbors(new Location(r, c));
-                    int number = 0;
-
-                    for (Location neighbor : allNeighbors) {
-                        if (this.board[neighbor.getRow()][neighbor.getCol()] == -1) {
-                            number++;
-                        }
-                    }
-
-                    this.board[r][c] = number;
-                }
+    // Picks up the saved game, if there is one. Returns whether a game was resumed.
+    public boolean resumeGame() {
+        FileHandle file = Gdx.files.local(SAVE_FILE);
+        if (!file.exists()) {
+            return false;
+        }
+        int numRows = this.getNumRows();
+        int numCols = this.getNumCols();
+        int numBombs = this.getNumBombs();
+        try {
+            GameSnapshot.load(this.engine, file.file().toPath());
+            // without its journal the game plays on as normal, but a win cannot be verified
+            FileHandle journalFile = Gdx.files.local(SAVE_JOURNAL_FILE);
+            if (journalFile.exists()) {
+                this.journal = GameJournal.load(journalFile.file().toPath());
             }
+            else {
+                this.journal = new GameJournal(this.getNumRows(), this.getNumCols(), this.getNumBombs());
+            }
+            this.measure();
+            this.loadScores();
+            return true;
+        }
+        catch (IOException e) {
+            Gdx.app.error("GameBoard", "Could not resume the game from " + file.name(), e);
+            // the snapshot may have sized the engine before it failed, so everything goes back to the old size together
+            this.initialize(numRows, numCols, numBombs);
+            return false;
         }
     }
 
-    private ArrayList<Location> getNeighbors(Location location) {
-        ArrayList<Location> allNeighbors = new ArrayList<Location>();
+    // Replay
+    private void saveJournal(FileHandle file) {
+        try {
+            file.parent().mkdirs();
+            this.journal.save(file.file().toPath());
+        }
+        catch (IOException e) {
+            Gdx.app.error("GameBoard", "Could not save the replay to " + file.name(), e);
+        }
+    }
 
-        for (int r = -1; r <= 1; r++) {
-            for (int c = -1; c <= 1; c++) {
-                Location neighbor = new Location(location.getRow() + r, location.getCol() + c);
+    private void loadScores() {
+        String fileName = "scores-" + this.getNumRows() + "x" + this.getNumCols() + "-" + this.getNumBombs();
+        FileHandle file = Gdx.files.local(fileName + ".bin");
 
-                if (this.validLocation(neighbor) && !location.equals(neighbor)) {
-                    allNeighbors.add(neighbor);
-                }
+        this.scores = new ScoreStore(file.file().toPath(), SCOREBOARD_SIZE);
+        try {
+            int dropped = this.scores.load(Gdx.files.local(fileName).file().toPath());
+            if (dropped > 0) {
+                Gdx.app.log("GameBoard", "Dropped " + dropped + " damaged records from " + file.name());
             }
         }
+        catch (IOException e) {
+            Gdx.app.error("GameBoard", "Could not load scores from " + file.name(), e);
+        }
+        this.loadSummary(Gdx.files.local(fileName + ".summary").file().toPath());
+    }
 
-        return allNeighbors;
+    // Reads the summary kept next to the scores, building it again from them if it is missing, damaged or behind
+    private void loadSummary(Path path) {
+        this.summaryPath = path;
+        this.summary = null;
+        try {
+            if (Files.exists(path)) {
+                this.summary = ScoreSummary.load(path);
+            }
+        }
+        catch (IOException e) {
+            Gdx.app.log("GameBoard", "Rebuilding " + path.getFileName() + ", " + e.getMessage());
+        }
+        if (this.summary != null && this.summary.getCount() == this.scores.getNumScores()) {
+            return;
+        }
+        try {
+            this.summary = ScoreSummary.rebuild(this.scores, this.getNumRows(), this.getNumCols(), this.getNumBombs());
+            if (!this.summary.isEmpty()) {
+                this.summary.save(path);
+            }
+        }
+        catch (IOException e) {
+            Gdx.app.error("GameBoard", "Could not rebuild the score summary " + path.getFileName(), e);
+            this.summary = new ScoreSummary(this.getNumRows(), this.getNumCols(), this.getNumBombs());
+        }
     }
 
     /* Drawing Methods */
-    public Texture drawTile(int value) {
-        if (value < 9) { return this.emptyTile; }
-        else if (value == 9) { return this.bombTile; }
-        else if (value == 10) { return this.emptyFloorTile; }
-        else if (value == 11) { return this.oneTile; }
-        else if (value == 12) { return this.twoTile; }
-        else if (value == 13) { return this.threeTile; }
-        else if (value == 14) { return this.fourTile; }
-        else if (value == 15) { return this.fiveTile; }
-        else if (value == 16) { return this.sixTile; }
-        else if (value == 17) { return this.sevenTile; }
-        else if (value == 18) { return this.eightTile; }
-        else if (value <= 28) { return this.flagTile; }
-        else { return this.emptyTile; }
+    public TextureRegion drawTile(int index) {
+        BoardStorage board = this.engine.getBoard();
+        if (board.isFlagged(index)) { return this.tiles.get(TileAssets.FLAG); }
+        else if (!board.isRevealed(index)) { return this.tiles.get(TileAssets.EMPTY); }
+        else if (board.isMine(index)) { return this.tiles.get(TileAssets.BOMB); }
+        else { return this.tiles.get(TileAssets.FLOOR + board.getNumber(index)); }
+    }
+
+    // The tile for a cell's bits as FlatBoardStorage packs them, such as a cell of an InfiniteEngine
+    public TextureRegion drawCell(int cell) {
+        if ((cell & FlatBoardStorage.FLAGGED) != 0) { return this.tiles.get(TileAssets.FLAG); }
+        else if ((cell & FlatBoardStorage.REVEALED) == 0) { return this.tiles.get(TileAssets.EMPTY); }
+        else if ((cell & FlatBoardStorage.MINE) != 0) { return this.tiles.get(TileAssets.BOMB); }
+        else { return this.tiles.get(TileAssets.FLOOR + (cell & FlatBoardStorage.NUMBER_MASK)); }
     }
 
     /* Clicking Methods */
     public void leftMouse(float x, float y) {
-        Location location = this.positionToLocation(x, y);
-
-        if (this.getGameStatus() == 0) {
-            this.start(location);
+        if (this.starting != null) {
+            return;
         }
-
-        if (this.validLocation(location)) {
-            int value = this.board[location.getRow()][location.getCol()];
-            if (value == 0) {
-                this.uncoverLocation(location);
-            }
-            else if (value == -1) {
-                this.finish(-1);
-                this.uncoverAllLocations();
-            }
-            else if (value >= -1 && value <= 8) {
-                this.board[location.getRow()][location.getCol()] += 10;
+        int index = this.positionToIndex(x, y);
+        int gameStatus = this.engine.getGameStatus();
+
+        // a first click off the board still starts the game, just without a safe cell
+        if (gameStatus == MinesweeperEngine.READY) {
+            if (this.engine.isStriped()) {
+                this.startStriped(index);
+                return;
             }
+            this.start(index);
+        }
+        this.finishClick(index, gameStatus);
+    }
+
+    // Laying a board this large takes long enough to freeze a frame, so it is laid on a copy of the board on the
+    // stripe pool and update finishes the click. The engine is not touched until then: the copy carries the flags
+    // placed so far, and while the board is laid nothing else may change them.
+    private void startStriped(int index) {
+        FlatBoardStorage board = (FlatBoardStorage) this.engine.getBoard();
+        StripeGenerator generator = this.engine.getStripeGenerator();
+        int numBombs = this.getNumBombs();
+        long seed = this.engine.nextSeed();
+        this.startIndex = index;
+        this.startSeed = seed;
+        this.starting = generator.getPool().submit(() -> {
+            FlatBoardStorage copy = board.copy();
+            this.laid = copy; // read once the future is done, which orders the write before it
+            return generator.generate(copy, numBombs, index, seed);
+        });
+    }
 
+    // Hands a very large board to the engine once it is laid and finishes its first click, on the render thread.
+    // The board is taken whole rather than through start(int[]), which would number it again on one thread.
+    // Returns whether it did this frame.
+    public boolean update() {
+        if (this.starting == null || !this.starting.isDone()) {
+            return false;
+        }
+        Future<int[]> started = this.starting;
+        this.starting = null;
+        int[] layout;
+        try {
+            layout = started.get();
         }
+        catch (InterruptedException | ExecutionException e) {
+            Gdx.app.error("GameBoard", "Could not lay the board", e);
+            this.laid = null;
+            return false;
+        }
+        this.engine.start(this.laid, layout, this.startSeed);
+        this.laid = null;
+        this.journal.setSeed(this.startSeed);
+        this.measure();
+        this.finishClick(this.startIndex, MinesweeperEngine.READY);
+        return true;
     }
 
-    public void rightMouse(float x, float y) {
-        Location location = this.positionToLocation(x, y);
-        if (this.validLocation(location)) {
-            int value = this.board[location.getRow()][location.getCol()];
+    // Waits out a board still being laid and throws it away, so the generator is free for the next one
+    private void dropStart() {
+        if (this.starting == null) {
+            return;
+        }
+        try {
+            this.starting.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            Gdx.app.error("GameBoard", "Could not lay the board", e);
+        }
+        this.starting = null;
+        this.laid = null;
+    }
 
-            if (value >= -1 && value <= 8) {
-                this.board[location.getRow()][location.getCol()] += 20;
-                this.numFlags++;
+    private void finishClick(int index, int gameStatus) {
+        if (index >= 0) {
+            this.engine.reveal(index);
+        }
+        if (gameStatus == MinesweeperEngine.READY || (gameStatus == MinesweeperEngine.PLAYING && index >= 0)) {
+            this.journal.record(GameJournal.REVEAL, index, this.engine.getElapsed());
+        }
+        this.checkFinish(gameStatus);
+    }
 
-            }
-            else if (value >= 19 && value <= 28) {
-                this.board[location.getRow()][location.getCol()] -= 20;
-                this.numFlags--;
-            }
+    public void rightMouse(float x, float y) {
+        if (this.starting != null) {
+            return;
+        }
+        int index = this.positionToIndex(x, y);
+        if (index >= 0 && this.engine.flag(index)) {
+            this.journal.record(GameJournal.FLAG, index, this.engine.getElapsed());
         }
     }
 
-    // Uncovering
-    private void uncoverLocation(Location location) {
-        ArrayList<Location> allNeighbors = this.getNeighbors(location);
-        int value = this.board[location.getRow()][location.getCol()];
-        if (value >= 0 && value <= 8) {
-            this.board[location.getRow()][location.getCol()] += 10;
+    public void middleMouse(float x, float y) {
+        if (this.starting != null) {
+            return;
+        }
+        int index = this.positionToIndex(x, y);
+        int gameStatus = this.engine.getGameStatus();
+        if (index >= 0 && gameStatus == MinesweeperEngine.PLAYING) {
+            this.engine.chord(index);
+            this.journal.record(GameJournal.CHORD, index, this.engine.getElapsed());
         }
+        this.checkFinish(gameStatus);
+    }
 
-        for (Location neighbor : allNeighbors) {
-            value = this.board[neighbor.getRow()][neighbor.getCol()];
-            if (this.board[neighbor.getRow()][neighbor.getCol()] == 0) {
-                this.uncoverLocation(neighbor);
+    // No-guess layouts come ready-made from the pool, so the first click costs the same as a random layout.
+    // A miss is searched for on the spot for a moment, and boards where none turns up in time, or too large or
+    // dense to search at all, start as normal.
+    private void start(int index) {
+        int[] layout = null;
+        if (this.noGuess && index >= 0 && this.hasNoGuess()) {
+            layout = this.pool.take(this.getNumRows(), this.getNumCols(), this.getNumBombs(), index);
+            if (layout == null) {
+                layout = BoardPool.generateNow(this.getNumRows(), this.getNumCols(), this.getNumBombs(), index);
             }
+        }
 
-            if (value >= 1 && value <= 8) {
-                this.board[neighbor.getRow()][neighbor.getCol()] += 10;
-            }
+        if (layout != null) {
+            this.journal.setLayout(layout);
+            this.engine.start(layout);
         }
+        else {
+            this.engine.start(index);
+            this.journal.setSeed(this.engine.getGameSeed());
+        }
+        this.measure();
     }
 
-    private void uncoverAllLocations() {
-        for (int r = 0; r < this.getNumRows(); r++) {
-            for (int c = 0; c < this.getNumCols(); c++) {
-                int value = this.board[r][c];
-                if (value >= -1 && value <= 8) {
-                    this.board[r][c] += 10;
-                }
-                else if (value >= 19 && value <= 28) {
-                    this.board[r][c] -= 10;
-                }
-            }
+    // Boards laid in stripes are left unmeasured, the buffers would outweigh the board several times over
+    private void measure() {
+        if (this.engine.isStriped()) {
+            this.metrics.clear();
+        }
+        else {
+            this.metrics.measure(this.engine.getBoard());
+        }
+    }
+
+    private int positionToIndex(float x, float y) {
+        Location location = this.positionToLocation(x, y);
+        return this.validLocation(location) ? this.engine.index(location.getRow(), location.getCol()) : -1;
+    }
+
+    private void checkFinish(int previousStatus) {
+        if (previousStatus != MinesweeperEngine.WON && this.engine.getGameStatus() == MinesweeperEngine.WON) {
+            this.saveScore();
+            this.saveJournal(Gdx.files.local(REPLAY_FOLDER + "/" + this.getNumRows() + "x" + this.getNumCols() + "-" + this.getNumBombs()
+                + "-" + System.currentTimeMillis() + ".msjr"));
+        }
+        if ((previousStatus == MinesweeperEngine.READY || previousStatus == MinesweeperEngine.PLAYING) && this.engine.isOver()) {
+            this.saveJournal(Gdx.files.local(REPLAY_FOLDER + "/last.msjr"));
         }
     }
 }
@@ -6,29 +6,106 @@ import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.profiling.GLProfiler;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Timer;
 import com.badlogic.gdx.utils.viewport.FitViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
+import com.thwamster.engine.BoardMetrics;
+import com.thwamster.engine.InfiniteEngine;
+import com.thwamster.engine.LogHistogram;
+import com.thwamster.engine.MetricsWriter;
+import com.thwamster.engine.ScoreStore;
+import com.thwamster.engine.ScoreSummary;
+import com.thwamster.engine.Solver;
+import com.thwamster.engine.StageMetrics;
+import com.thwamster.engine.TimeFormat;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.IOException;
 
 public class GameplayScreen implements Screen {
     /* Display Characteristics */
     private static final float worldWidth = 1280;
     private static final float worldHeight = 728;
+    private static final float margin = 80; // space around the board when it is zoomed to fit
+    private static final float panSpeed = 800; // world units per second at zoom 1
+    private static final float minZoom = 1 / 32F; // closest zoom, enough for a single tile to fill the screen
+    private static final float maxZoom = GameBoard.TILE_SIZE / 4; // furthest zoom, tiles four pixels wide
+    private static final float maxPanDelta = 1 / 30F; // longest step a held arrow key pans in, after an idle gap between frames
+    private static final String CHUNK_FOLDER = "chunks"; // infinite board chunks spilled out of memory
 
     /* Objects */
     private SpriteBatch spriteBatch; // object that allows us to draw all our graphics
     private ShapeRenderer shapeRenderer; // object that allows us to draw shapes
     private Camera camera; // camera to view our virtual world
     private Viewport viewport; // control how the camera views the world, zooms and scales.
+    private OrthographicCamera boardCamera; // camera over the board, panned and zoomed by the player
+    private Viewport boardViewport; // same screen area as viewport, looking through boardCamera
+    private final Vector2 touch = new Vector2(); // reused when turning screen positions into board positions
     private BitmapFont font; // custom font
+    private HudText hud; // every line of text over the board, reused from frame to frame
+    private TileAssets tiles; // every tile texture, packed into one atlas
+
+    /* Board Layer */
+    private FrameBuffer boardLayer; // the visible tiles drawn once, only changed tiles are drawn again
+    private TextureRegion boardLayerRegion; // the layer's texture, flipped the right way up
+    private boolean layerStale; // the camera moved, so every visible tile needs drawing again
+    private int fittedRows; // board size the camera was last fitted to
+    private int fittedCols;
+    private int firstRow; // visible cells, updated whenever the camera moves
+    private int lastRow;
+    private int firstCol;
+    private int lastCol;
+
+    /* Debug Overlay */
+    private boolean showDebug; // toggled with F3
+    private long layerNanos; // time spent updating the board layer last frame
+    private int layerCells; // tiles drawn into the board layer last frame
+    private long fullRedrawNanos; // time spent on the last full redraw of the board
+    private int fullRedrawCells; // tiles drawn by the last full redraw
+
+    /* Frame Metrics */
+    private static final int STAGE_FRAME = 0; // the whole of render
+    private static final int STAGE_INPUT = 1; // camera, mouse and keyboard, including the moves they make
+    private static final int STAGE_TILES = 2; // board layer and hint
+    private static final int STAGE_TEXT = 3; // everything on top of the board layer
+    private static final int STAGE_SCORES = 4; // the scoreboard, inside text
+    private static final String[] STAGES = {"frame", "input", "tiles", "text", "scores"};
+    private static final int COUNTER_RENDER_CALLS = 0; // sprite batch flushes
+    private static final int COUNTER_DRAW_CALLS = 1; // every GL draw, counted while the profiler is on
+    private static final int COUNTER_TEXTURE_BINDS = 2;
+    private static final int COUNTER_INPUT_LATENCY = 3; // nanoseconds from an event arriving to the end of the frame that showed it
+    private static final int COUNTER_CPU = 4; // process CPU nanoseconds since the last frame, idle time between frames included
+    private static final String[] COUNTERS = {"render_calls", "draw_calls", "texture_binds", "input_latency_ns", "cpu_ns"};
+    private static final long METRICS_INTERVAL = 2_000_000_000L; // nanoseconds each overlay reading and dump covers
+    private static final String METRICS_CSV = "metrics.csv";
+    private static final String METRICS_JSON = "metrics.json";
+    private StageMetrics metrics;
+    private GLProfiler profiler; // counts draws and binds, only enabled while someone is looking
+    private boolean recordMetrics; // toggled with F4, writes every interval to METRICS_CSV and METRICS_JSON
+    private int lastRenderCalls; // the sprite batch's running total at the end of the last frame
+
+    /* Input and Rendering */
+    private InputQueue input; // events since the last frame, drained in order at the start of the next
+    private boolean continuous; // toggled with F5, otherwise frames are only drawn when something changed
+    private final Timer.Task tick = new Timer.Task() { // asks for a frame when the clock's seconds turn over
+        @Override
+        public void run() { Gdx.graphics.requestRendering(); }
+    };
+
+    /* Hint */
+    private int hintCell = -1; // cell suggested by the solver, -1 when no hint is showing
+    private float hintProbability; // chance the hinted cell is a bomb
 
     /* Game Mechanics */
+    private static final String BOARD_PROPERTY = "minesweeper.board"; // a custom board, rows x cols x bombs
     private GameBoard board;
+    private InfiniteEngine infinite; // the board with no edges, null while playing a normal board
 
     /* Runs one time, at the very beginning. All setup should happen here. */
     @Override
@@ -39,90 +116,476 @@ public class GameplayScreen implements Screen {
 
         // freeze my view2, to 1280 x 720, no matter the window size
         this.viewport = new FitViewport(worldWidth, worldHeight, this.camera);
+        this.boardCamera = new OrthographicCamera();
+        this.boardViewport = new FitViewport(worldWidth, worldHeight, this.boardCamera);
+
+        // input arrives as events, and frames are only drawn when they or the clock change something
+        this.input = new InputQueue();
+        Gdx.input.setInputProcessor(this.input);
+        Gdx.graphics.setContinuousRendering(false);
 
         // empty instantiation of objects that will draw graphics for us
-        this.spriteBatch = new SpriteBatch();
+        this.spriteBatch = new SpriteBatch(8191); // the largest batch, so a full board goes out in one flush
         this.shapeRenderer = new ShapeRenderer();
         this.shapeRenderer.setAutoShapeType(true); // solution to an annoying problem
 
+        // tile images are decoded in the background while the first frames show a loading message
+        this.tiles = new TileAssets();
+
         // game mechanics
-        this.board = new GameBoard();
-        this.board = new GameBoard();
+        this.board = new GameBoard(this.tiles);
+        String custom = System.getProperty(BOARD_PROPERTY);
+        if (custom != null) {
+            this.startCustom(custom);
+        }
+        else {
+            this.board.resumeGame();
+        }
 
-        // fonts
-        FreeTypeFontGenerator importFont = new FreeTypeFontGenerator(Gdx.files.internal("mine-sweeper.ttf"));
-        FreeTypeFontGenerator.FreeTypeFontParameter parameter = new FreeTypeFontGenerator.FreeTypeFontParameter();
-        parameter.size = 10;
+        // fonts, baked at build time
+        this.font = HudFont.load();
+        this.hud = new HudText(this.font);
 
-        this.font = importFont.generateFont(parameter);
+        // metrics
+        this.metrics = new StageMetrics(STAGES, COUNTERS);
+        this.profiler = new GLProfiler(Gdx.graphics);
+        StartupReport.mark(StartupReport.SHOW);
     }
 
     /*
-     * This method runs as fast as it can, repeatedly, constantly looped.
-     * 1. Process user input
+     * Runs whenever a frame is asked for: on input, on the clock's tick, or every frame with F5.
+     * 1. Process user input, in the order it arrived
      * 2. AI
      * 3. Draw all graphics
      */
     @Override
     public void render(float delta) {
+        StartupReport.mark(StartupReport.FIRST_FRAME);
         clearScreen();
 
-        int gameStatus = this.board.getGameStatus();
-        if (gameStatus == 0 || gameStatus == 1) {
-            checkMouseInput();
+        if (!this.tiles.update()) {
+            this.spriteBatch.begin();
+            this.font.draw(this.spriteBatch, "Loading... " + (int) (this.tiles.getProgress() * 100) + "%", 80, 80);
+            this.spriteBatch.end();
+            this.input.clear(); // nothing to click on yet
+            Gdx.graphics.requestRendering(); // keep drawing until the tiles are in
+            return;
         }
-        else {
-            checkKeyboardInput();
+        this.metrics.begin(STAGE_FRAME);
+        this.metrics.begin(STAGE_INPUT);
+
+        if (this.infinite == null && (this.fittedRows != this.board.getNumRows() || this.fittedCols != this.board.getNumCols())) {
+            fitCamera();
+        }
+        // the first click of a very large board is laid on other threads, and input waits until it is
+        if (this.infinite == null && this.board.isStarting() && !this.board.update()) {
+            this.input.clear();
+            Gdx.graphics.requestRendering(); // keep the progress moving
         }
+        // a win on a very large board is saved once its replay is checked on other threads
+        if (this.infinite == null && !this.board.finishCheck()) {
+            Gdx.graphics.requestRendering();
+        }
+        for (int i = 0; i < this.input.size(); i++) {
+            int type = this.input.getType(i);
+            if (type == InputQueue.KEY_DOWN) {
+                this.handleKey(this.input.getCode(i));
+            }
+            else if (type == InputQueue.TOUCH_DOWN) {
+                this.handleClick(this.input.getCode(i), this.input.getScreenX(i), this.input.getScreenY(i));
+            }
+            else {
+                this.zoom(this.input.getAmount(i), this.input.getScreenX(i), this.input.getScreenY(i));
+            }
+        }
+        checkCameraInput(delta);
+        this.metrics.end(STAGE_INPUT);
+
+        // read after the input, so a frame drawn for a click already shows what it did
+        int gameStatus = this.getGameStatus();
         draw(gameStatus);
+        this.endFrame(gameStatus);
+        StartupReport.report();
+    }
+
+    // Records the frame's counters and, every METRICS_INTERVAL, hands the readings to the overlay and the dump
+    private void endFrame(int gameStatus) {
+        this.metrics.end(STAGE_FRAME);
+        long frameEnd = System.nanoTime();
+        for (int i = 0; i < this.input.size(); i++) {
+            this.metrics.count(COUNTER_INPUT_LATENCY, frameEnd - this.input.getTime(i));
+        }
+        this.input.clear();
+        this.metrics.countCpu(COUNTER_CPU);
+        this.metrics.count(COUNTER_RENDER_CALLS, this.spriteBatch.totalRenderCalls - this.lastRenderCalls);
+        this.lastRenderCalls = this.spriteBatch.totalRenderCalls;
+        if (this.profiler.isEnabled()) {
+            this.metrics.count(COUNTER_DRAW_CALLS, this.profiler.getDrawCalls());
+            this.metrics.count(COUNTER_TEXTURE_BINDS, this.profiler.getTextureBindings());
+            this.profiler.reset();
+        }
+
+        if (this.metrics.roll(METRICS_INTERVAL) && this.recordMetrics) {
+            long now = System.currentTimeMillis();
+            try {
+                MetricsWriter.appendCsv(Gdx.files.local(METRICS_CSV).file().toPath(), this.metrics, now);
+                MetricsWriter.writeJson(Gdx.files.local(METRICS_JSON).file().toPath(), this.metrics, now);
+            }
+            catch (IOException e) {
+                Gdx.app.error("GameplayScreen", "Could not write metrics to " + METRICS_CSV, e);
+                this.recordMetrics = false;
+                this.updateProfiler();
+            }
+        }
+        this.scheduleTick(gameStatus);
+    }
+
+    // With no input the only thing that changes is the clock, so the next frame is asked for just after its seconds
+    // turn over. The overlay and the dump also tick, once a second, to keep their readings coming.
+    private void scheduleTick(int gameStatus) {
+        if (this.continuous || this.tick.isScheduled()) {
+            return;
+        }
+        long delay;
+        if (gameStatus == 1) {
+            long elapsed = this.infinite != null ? this.infinite.getElapsed() : this.board.getElapsed();
+            delay = 1000 - elapsed % 1000 + 1;
+        }
+        else if (this.showDebug || this.recordMetrics) {
+            delay = 1000;
+        }
+        else {
+            return;
+        }
+        Timer.schedule(this.tick, delay / 1000F);
+    }
+
+    // The profiler wraps every GL call, so it only runs while the overlay or the dump needs it
+    private void updateProfiler() {
+        if (this.showDebug || this.recordMetrics) {
+            this.profiler.enable();
+            this.profiler.reset();
+        }
+        else {
+            this.profiler.disable();
+        }
     }
 
     public void draw(int gameStatus) {
-        float margin = 80;
         float gameWidth = GameplayScreen.getWorldWidth() - 2 * margin;
         float gameHeight = GameplayScreen.getWorldHeight() - 2 * margin;
 
+        // the text is laid out around where the board sits when zoomed to fit
         float scale = Math.min(gameWidth / this.board.getNumCols(), gameHeight / this.board.getNumRows());
         float xIndent = (gameWidth - (scale * this.board.getNumCols())) / 2;
         float yIndent = (gameHeight - (scale * this.board.getNumRows())) / 2;
 
+        this.metrics.begin(STAGE_TILES);
+        this.drawBoardLayer();
+        this.metrics.end(STAGE_TILES);
+
+        this.metrics.begin(STAGE_TEXT);
+
+        this.viewport.apply();
+        this.shapeRenderer.setProjectionMatrix(this.camera.combined);
         this.shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
         this.shapeRenderer.setColor(0.5F, 0.5F, 0.5F, 0);
         this.shapeRenderer.rect(xIndent, yIndent, GameplayScreen.reverse2xWidth(xIndent), GameplayScreen.reverse2xHeight(yIndent));
         this.shapeRenderer.end();
 
+        this.spriteBatch.setProjectionMatrix(this.camera.combined);
         this.spriteBatch.begin();
-        for (int r = 0; r < this.board.getNumRows(); r++) {
-            for (int c = 0; c < this.board.getNumCols(); c++) {
-                this.spriteBatch.draw(this.board.drawTile(this.board.getBoard()[r][c]), c * scale + xIndent + margin, r * scale + yIndent + margin, scale, scale);
+        if (this.boardLayerRegion != null) {
+            this.spriteBatch.draw(this.boardLayerRegion, 0, 0, worldWidth, worldHeight);
+        }
+        if (this.hintCell >= 0) {
+            // the outline goes over the board layer just drawn, and the text after it over both
+            this.spriteBatch.end();
+            this.drawHint();
+            this.viewport.apply();
+            this.spriteBatch.begin();
+        }
+        this.hud.begin();
+        if (this.infinite != null) {
+            this.drawInfiniteText(gameStatus, xIndent, yIndent);
+            this.spriteBatch.end();
+            this.metrics.end(STAGE_TEXT);
+            return;
+        }
+        this.hud.line().append("Flags Remaining: ").append(this.board.getNumBombs() - this.board.getNumFlags());
+        this.hud.draw(this.spriteBatch, xIndent + 80, reverseHeight(yIndent + 40));
+        TimeFormat.appendClock(this.hud.line().append("Time Elapsed:  "), this.board.getElapsed());
+        this.hud.draw(this.spriteBatch, reverseWidth(xIndent + 250), reverseHeight(yIndent + 40));
+
+        this.metrics.begin(STAGE_SCORES);
+        ScoreStore scoreboard = this.board.getScoreBoard();
+        if (!scoreboard.isEmpty()) {
+            this.hud.draw(this.spriteBatch, "Scores: ", xIndent + 7, reverseHeight(110));
+            for (int i = 0; i < scoreboard.getNumTop(); i++) {
+                StringBuilder line = TimeFormat.appendClock(this.hud.line().append(i + 1).append(". "), scoreboard.getTop(i));
+                long scoreMetrics = scoreboard.getTopMetrics(i);
+                if (scoreMetrics >= 0) {
+                    line.append(", 3BV ").append(BoardMetrics.threeBVOf(scoreMetrics));
+                }
+                this.hud.draw(this.spriteBatch, xIndent + 7, reverseHeight(110 + (i + 1) * 20));
+            }
+        }
+        this.metrics.end(STAGE_SCORES);
+
+        if (gameStatus == -1) {
+            this.hud.draw(this.spriteBatch, "Game over. Loss.", xIndent + 80, yIndent + 40);
+            this.hud.draw(this.spriteBatch, "R to restart.", reverseWidth(xIndent + 195), yIndent + 40);
+        }
+        else if (gameStatus == 0 && this.board.isStarting()) {
+            this.hud.line().append("Laying mines... ").append((int) (this.board.getStartProgress() * 100)).append('%');
+            this.hud.draw(this.spriteBatch, xIndent + 80, yIndent + 40);
+        }
+        else if (gameStatus == 0) {
+            this.hud.draw(this.spriteBatch, "Left mouse to start.", reverseWidth(xIndent + 265), yIndent + 40);
+            if (!this.board.hasNoGuess()) {
+                this.hud.draw(this.spriteBatch, "No guessing: board too big or dense.", xIndent + 80, yIndent + 40);
+            }
+            else {
+                this.hud.draw(this.spriteBatch, this.board.isNoGuess() ? "No guessing: on. G to change." : "No guessing: off. G to change.", xIndent + 80, yIndent + 40);
+            }
+            this.hud.draw(this.spriteBatch, "I for an infinite board.", xIndent + 80, yIndent + 20);
+        }
+        else if (gameStatus == 2) {
+            this.hud.draw(this.spriteBatch, "Game over. Victory.", xIndent + 80, yIndent + 40);
+            this.hud.draw(this.spriteBatch, "R to restart.", reverseWidth(xIndent + 195), yIndent + 40);
+            if (this.board.isChecking()) {
+                this.hud.draw(this.spriteBatch, "Checking the replay before saving.", xIndent + 80, yIndent + 20);
+            }
+            else {
+                this.drawRank(xIndent + 80, yIndent + 20);
             }
         }
-        this.font.draw(this.spriteBatch, "Flags Remaining: " + (this.board.getNumBombs() - this.board.getNumFlags()), xIndent + 80, reverseHeight(yIndent + 40));
-        this.font.draw(this.spriteBatch, "Time Elapsed:  " + (this.board.getTime()), reverseWidth(xIndent + 250), reverseHeight(yIndent + 40));
+        else if (this.hintCell >= 0) {
+            if (this.hintProbability == 0) {
+                this.hud.line().append("Hint: safe.");
+            }
+            else {
+                this.hud.line().append("Hint: ").append(Math.round(this.hintProbability * 100)).append("% bomb.");
+            }
+            this.hud.draw(this.spriteBatch, xIndent + 80, yIndent + 40);
+        }
+        else if (this.board.hasHints()) {
+            this.hud.draw(this.spriteBatch, "H for a hint.", xIndent + 80, yIndent + 40);
+        }
+        if (gameStatus != 0) {
+            this.drawBoardMetrics(gameStatus, reverseWidth(xIndent + 265), yIndent + 20);
+        }
+
+        if (this.showDebug) {
+            this.drawLayerDebug();
+            TimeFormat.appendMillis(this.hud.line().append("Full redraw: "), this.fullRedrawNanos).append(" ms, ").append(this.fullRedrawCells).append(" tiles");
+            this.hud.draw(this.spriteBatch, reverseWidth(250), reverseHeight(60));
+            this.hud.line().append("Visible: ").append(this.lastRow - this.firstRow + 1).append(" x ").append(this.lastCol - this.firstCol + 1).append(" tiles");
+            this.hud.draw(this.spriteBatch, reverseWidth(250), reverseHeight(80));
+            this.drawMetrics(100);
+        }
+
+        this.spriteBatch.end();
+        this.metrics.end(STAGE_TEXT);
+    }
+
+    // Where the winning time stands among every win on this board size
+    private void drawRank(float x, float y) {
+        ScoreSummary summary = this.board.getScoreSummary();
+        if (summary == null || summary.getCount() < 2) {
+            return;
+        }
+        long time = this.board.getElapsed();
+        StringBuilder line = this.hud.line().append("Faster than ").append(Math.round(summary.fractionSlower(time) * 100)).append("% of ")
+            .append(summary.getCount()).append(" wins.");
+        int place = summary.placeOf(time);
+        if (place > 0) {
+            line.append(" Place ").append(place).append('.');
+        }
+        this.hud.draw(this.spriteBatch, x, y);
+    }
+
+    // How much clicking the layout takes, and on a win how fast it was done
+    private void drawBoardMetrics(int gameStatus, float x, float y) {
+        BoardMetrics boardMetrics = this.board.getBoardMetrics();
+        StringBuilder line = this.hud.line().append("3BV: ").append(boardMetrics.getThreeBV());
+        long elapsed = this.board.getElapsed();
+        if (gameStatus == 2 && elapsed > 0) {
+            long hundredths = boardMetrics.getThreeBV() * 100_000L / elapsed;
+            line.append(", ").append(hundredths / 100).append('.').append(hundredths % 100 / 10).append(hundredths % 10).append(" per second");
+        }
+        else {
+            line.append(", ").append(boardMetrics.getNumOpenings()).append(" openings");
+        }
+        this.hud.draw(this.spriteBatch, x, y);
+    }
 
-        ArrayList<Long> scoreboard = this.board.getScoreBoard();
-        if (scoreboard != null && !scoreboard.isEmpty()) {
-            Collections.sort(scoreboard);
+    // The first two overlay lines, shared by both boards
+    private void drawLayerDebug() {
+        this.hud.line().append("FPS: ").append(Gdx.graphics.getFramesPerSecond());
+        this.hud.draw(this.spriteBatch, reverseWidth(250), reverseHeight(20));
+        TimeFormat.appendMillis(this.hud.line().append("Board layer: "), this.layerNanos).append(" ms, ").append(this.layerCells).append(" tiles");
+        this.hud.draw(this.spriteBatch, reverseWidth(250), reverseHeight(40));
+    }
 
-            this.font.draw(this.spriteBatch, "Scores: ", xIndent + 7, reverseHeight(110));
-            for (int i = 0; i < scoreboard.size() && i < 24; i++) {
-                this.font.draw(this.spriteBatch, (i + 1) + ". " + this.board.formatTime(scoreboard.get(i)), xIndent + 7, reverseHeight(110 + (i + 1) * 20));
+    // Percentiles over the last METRICS_INTERVAL, one line per stage and counter starting y down from the top
+    private void drawMetrics(float y) {
+        for (int s = 0; s < this.metrics.getNumStages(); s++) {
+            LogHistogram times = this.metrics.getTimes(s);
+            StringBuilder line = this.hud.line().append(this.metrics.getStage(s)).append(": p50 ");
+            TimeFormat.appendMillis(line, times.percentile(0.5)).append(", p99 ");
+            TimeFormat.appendMillis(line, times.percentile(0.99)).append(" ms");
+            if (this.metrics.isAllocationCounted()) {
+                line.append(", ").append(this.metrics.getAllocations(s).percentile(0.99)).append(" B");
             }
+            this.hud.draw(this.spriteBatch, reverseWidth(250), reverseHeight(y));
+            y += 20;
+        }
+        for (int c = 0; c < this.metrics.getNumCounters(); c++) {
+            LogHistogram values = this.metrics.getValues(c);
+            this.hud.line().append(this.metrics.getCounter(c)).append(": ").append(values.percentile(0.5)).append(", max ").append(values.getMax());
+            this.hud.draw(this.spriteBatch, reverseWidth(250), reverseHeight(y));
+            y += 20;
+        }
+        long cpu = this.metrics.getValues(COUNTER_CPU).getSum() * 100 / Math.max(1, this.metrics.getIntervalNanos());
+        this.hud.line().append("CPU: ").append(cpu).append("%, ").append(this.continuous ? "every frame" : "on demand").append(". F5 to change.");
+        this.hud.draw(this.spriteBatch, reverseWidth(250), reverseHeight(y));
+        y += 20;
+        if (this.recordMetrics) {
+            this.hud.line().append("Writing ").append(METRICS_CSV).append(". F4 to stop.");
+            this.hud.draw(this.spriteBatch, reverseWidth(250), reverseHeight(y));
         }
+    }
 
+    private void drawInfiniteText(int gameStatus, float xIndent, float yIndent) {
+        this.hud.line().append("Cells Revealed: ").append(this.infinite.getNumRevealed());
+        this.hud.draw(this.spriteBatch, xIndent + 80, reverseHeight(yIndent + 40));
+        TimeFormat.appendClock(this.hud.line().append("Time Elapsed:  "), this.infinite.getElapsed());
+        this.hud.draw(this.spriteBatch, reverseWidth(xIndent + 250), reverseHeight(yIndent + 40));
         if (gameStatus == -1) {
-            this.font.draw(this.spriteBatch, "Game over. Loss.", xIndent + 80, yIndent + 40);
-            this.font.draw(this.spriteBatch, "R to restart.", reverseWidth(xIndent + 195), yIndent + 40);
+            this.hud.line().append("Game over. ").append(this.infinite.getNumRevealed()).append(" cells.");
+            this.hud.draw(this.spriteBatch, xIndent + 80, yIndent + 40);
+            this.hud.draw(this.spriteBatch, "R to restart.", reverseWidth(xIndent + 195), yIndent + 40);
         }
         else if (gameStatus == 0) {
-            this.font.draw(this.spriteBatch, "Left mouse to start.", reverseWidth(xIndent + 265), yIndent + 40);
+            this.hud.draw(this.spriteBatch, "Left mouse to start.", reverseWidth(xIndent + 265), yIndent + 40);
         }
-        else if (gameStatus == 2) {
-            this.font.draw(this.spriteBatch, "Game over. Victory.", xIndent + 80, yIndent + 40);
-            this.font.draw(this.spriteBatch, "R to restart.", reverseWidth(xIndent + 195), yIndent + 40);
+        if (gameStatus != 1) {
+            this.hud.draw(this.spriteBatch, "I to leave the infinite board.", xIndent + 80, yIndent + 20);
+        }
+
+        if (this.showDebug) {
+            this.drawLayerDebug();
+            this.hud.line().append("Chunks: ").append(this.infinite.getNumResident()).append(" in memory, ").append(this.infinite.getNumSpilled()).append(" spilled");
+            this.hud.draw(this.spriteBatch, reverseWidth(250), reverseHeight(60));
+            this.hud.line().append("Built ").append(this.infinite.getNumGenerated()).append(", loaded ").append(this.infinite.getNumLoads());
+            this.hud.draw(this.spriteBatch, reverseWidth(250), reverseHeight(80));
+            this.drawMetrics(100);
+        }
+    }
+
+    // Brings the cached board layer up to date. Only tiles inside the camera are drawn, every one of them when the
+    // camera moved or the board was reset, otherwise just the ones that changed.
+    private void drawBoardLayer() {
+        long begin = System.nanoTime();
+        int width = this.boardViewport.getScreenWidth();
+        int height = this.boardViewport.getScreenHeight();
+        if (width == 0 || height == 0) {
+            return; // minimized
         }
 
+        boolean rebuild = this.boardLayer == null || this.boardLayer.getWidth() != width || this.boardLayer.getHeight() != height;
+        if (rebuild) {
+            if (this.boardLayer != null) {
+                this.boardLayer.dispose();
+            }
+            this.boardLayer = new FrameBuffer(Pixmap.Format.RGBA8888, width, height, false);
+            this.boardLayerRegion = new TextureRegion(this.boardLayer.getColorBufferTexture());
+            this.boardLayerRegion.flip(false, true); // frame buffers are stored upside down
+        }
+
+        boolean full = rebuild || this.layerStale || (this.infinite != null ? this.infinite.isAllDirty() : this.board.isAllDirty());
+        int numDirty = this.infinite != null ? this.infinite.getNumDirty() : this.board.getNumDirty();
+        if (!full && numDirty == 0) {
+            this.layerNanos = System.nanoTime() - begin;
+            this.layerCells = 0;
+            return;
+        }
+
+        int numCols = this.board.getNumCols();
+        float tileSize = GameBoard.TILE_SIZE;
+        int drawn = 0;
+
+        this.boardLayer.begin();
+        this.spriteBatch.setProjectionMatrix(this.boardCamera.combined);
+        this.spriteBatch.begin();
+        if (full) {
+            Gdx.gl.glClearColor(0, 0, 0, 0);
+            Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+            for (int r = this.firstRow; r <= this.lastRow; r++) {
+                int index = r * numCols + this.firstCol;
+                for (int c = this.firstCol; c <= this.lastCol; c++) {
+                    TextureRegion tile = this.infinite != null ? this.board.drawCell(this.infinite.getCell(c, r)) : this.board.drawTile(index++);
+                    this.spriteBatch.draw(tile, c * tileSize, r * tileSize, tileSize, tileSize);
+                    drawn++;
+                }
+            }
+        }
+        else if (this.infinite != null) {
+            long[] dirty = this.infinite.getDirty();
+            for (int i = 0; i < numDirty; i++) {
+                int r = InfiniteEngine.unpackY(dirty[i]);
+                int c = InfiniteEngine.unpackX(dirty[i]);
+                if (r >= this.firstRow && r <= this.lastRow && c >= this.firstCol && c <= this.lastCol) {
+                    this.spriteBatch.draw(this.board.drawCell(this.infinite.getCell(c, r)), c * tileSize, r * tileSize, tileSize, tileSize);
+                    drawn++;
+                }
+            }
+        }
+        else {
+            int[] dirty = this.board.getDirty();
+            for (int i = 0; i < numDirty; i++) {
+                int r = dirty[i] / numCols;
+                int c = dirty[i] - r * numCols;
+                // tiles off screen are picked up by the full redraw when the camera reaches them
+                if (r >= this.firstRow && r <= this.lastRow && c >= this.firstCol && c <= this.lastCol) {
+                    this.spriteBatch.draw(this.board.drawTile(dirty[i]), c * tileSize, r * tileSize, tileSize, tileSize);
+                    drawn++;
+                }
+            }
+        }
         this.spriteBatch.end();
+        this.boardLayer.end();
+        if (this.infinite != null) {
+            this.infinite.clearDirty();
+        }
+        else {
+            this.board.clearDirty();
+        }
+        this.layerStale = false;
+
+        this.layerNanos = System.nanoTime() - begin;
+        this.layerCells = drawn;
+        if (full) {
+            this.fullRedrawNanos = this.layerNanos;
+            this.fullRedrawCells = drawn;
+        }
+    }
+
+    // Outlines the hinted cell on top of the board
+    private void drawHint() {
+        if (this.hintCell < 0) {
+            return;
+        }
+        int row = this.hintCell / this.board.getNumCols();
+        int col = this.hintCell - row * this.board.getNumCols();
+
+        this.boardViewport.apply();
+        this.shapeRenderer.setProjectionMatrix(this.boardCamera.combined);
+        this.shapeRenderer.begin(ShapeRenderer.ShapeType.Line);
+        this.shapeRenderer.setColor(this.hintProbability == 0 ? 0 : 1, this.hintProbability == 0 ? 1 : 0.6F, 0, 1);
+        this.shapeRenderer.rect(col * GameBoard.TILE_SIZE, row * GameBoard.TILE_SIZE, GameBoard.TILE_SIZE, GameBoard.TILE_SIZE);
+        this.shapeRenderer.end();
     }
 
     public void clearScreen() {
@@ -131,35 +594,211 @@ public class GameplayScreen implements Screen {
     }
 
     // Inputs
-    private void checkMouseInput() {
-        if (Gdx.input.isButtonJustPressed(Input.Buttons.LEFT)) {
-            this.board.leftMouse(Gdx.input.getX(), Gdx.input.getY());
+    // Sets up a board given as rows x cols x bombs, such as 10000x10000x20000000
+    private void startCustom(String custom) {
+        String[] parts = custom.split("x");
+        try {
+            if (parts.length != 3) {
+                throw new NumberFormatException("expected rows x cols x bombs");
+            }
+            this.board.initialize(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()), Integer.parseInt(parts[2].trim()));
+        }
+        catch (NumberFormatException e) {
+            Gdx.app.error("GameplayScreen", "Ignoring -D" + BOARD_PROPERTY + "=" + custom, e);
+        }
+    }
+
+    private int getGameStatus() { return this.infinite != null ? this.infinite.getGameStatus() : this.board.getGameStatus(); }
+
+    private void handleKey(int keycode) {
+        int gameStatus = this.getGameStatus();
+        if (keycode == Input.Keys.F3) {
+            this.showDebug = !this.showDebug;
+            this.updateProfiler();
+        }
+        else if (keycode == Input.Keys.F4) {
+            this.recordMetrics = !this.recordMetrics;
+            this.updateProfiler();
+        }
+        else if (keycode == Input.Keys.F5) {
+            this.continuous = !this.continuous;
+            Gdx.graphics.setContinuousRendering(this.continuous);
+        }
+        else if (keycode == Input.Keys.HOME) {
+            this.fitCamera();
+        }
+        else if (keycode == Input.Keys.H && this.infinite == null && this.board.hasHints() && (gameStatus == 0 || gameStatus == 1)) {
+            // the solver's next move
+            Solver solver = this.board.getSolver();
+            this.hintCell = solver.hint();
+            this.hintProbability = this.hintCell >= 0 ? solver.getProbability(this.hintCell) : 0;
+        }
+        else if (keycode == Input.Keys.G && gameStatus == 0 && this.infinite == null) {
+            this.board.setNoGuess(!this.board.isNoGuess());
+        }
+        else if (keycode == Input.Keys.I && gameStatus != 1) {
+            this.toggleInfinite();
+        }
+        else if (keycode == Input.Keys.R && (gameStatus == -1 || gameStatus == 2) && (this.infinite != null || !this.board.isStarting())) {
+            // only a finished game restarts, as it always has and as the HUD says, and never while a very large
+            // board is still being laid, which would hold the render thread until the stripes were done
+            this.hintCell = -1;
+            if (this.infinite != null) {
+                this.infinite.reset(MathUtils.random.nextLong());
+                this.fitCamera();
+            }
+            else {
+                this.board.reset();
+            }
+        }
+    }
+
+    private void handleClick(int button, int screenX, int screenY) {
+        int gameStatus = this.getGameStatus();
+        if (gameStatus != 0 && gameStatus != 1) {
+            return;
+        }
+        this.hintCell = -1;
+        this.boardViewport.unproject(this.touch.set(screenX, screenY));
+        if (this.infinite != null) {
+            int col = (int) Math.floor(this.touch.x / GameBoard.TILE_SIZE);
+            int row = (int) Math.floor(this.touch.y / GameBoard.TILE_SIZE);
+            if (button == Input.Buttons.LEFT) { this.infinite.reveal(col, row); }
+            else if (button == Input.Buttons.RIGHT) { this.infinite.flag(col, row); }
+            else if (button == Input.Buttons.MIDDLE) { this.infinite.chord(col, row); }
+        }
+        else if (button == Input.Buttons.LEFT) {
+            this.board.leftMouse(this.touch.x, this.touch.y);
+        }
+        else if (button == Input.Buttons.RIGHT) {
+            this.board.rightMouse(this.touch.x, this.touch.y);
+        }
+        else if (button == Input.Buttons.MIDDLE) {
+            this.board.middleMouse(this.touch.x, this.touch.y);
+        }
+    }
+
+    // Held arrow keys pan, and keep frames coming until they are let go
+    private void checkCameraInput(float delta) {
+        float pan = panSpeed * this.boardCamera.zoom * Math.min(delta, maxPanDelta);
+        float x = 0;
+        float y = 0;
+        if (Gdx.input.isKeyPressed(Input.Keys.LEFT)) { x -= pan; }
+        if (Gdx.input.isKeyPressed(Input.Keys.RIGHT)) { x += pan; }
+        if (Gdx.input.isKeyPressed(Input.Keys.DOWN)) { y -= pan; }
+        if (Gdx.input.isKeyPressed(Input.Keys.UP)) { y += pan; }
+        if (x != 0 || y != 0) {
+            this.boardCamera.translate(x, y);
+            this.updateCamera();
+            Gdx.graphics.requestRendering();
         }
-        if (Gdx.input.isButtonJustPressed(Input.Buttons.RIGHT)) {
-            this.board.rightMouse(Gdx.input.getX(), Gdx.input.getY());
+    }
+
+    // The mouse wheel zooms around the cursor, keeping the point under it in place
+    private void zoom(float amount, int screenX, int screenY) {
+        this.boardViewport.unproject(this.touch.set(screenX, screenY));
+        float pointX = this.touch.x;
+        float pointY = this.touch.y;
+        this.boardCamera.zoom = MathUtils.clamp(this.boardCamera.zoom * (float) Math.pow(1.1, amount), minZoom, maxZoom);
+        this.boardCamera.update();
+        this.boardViewport.unproject(this.touch.set(screenX, screenY));
+        this.boardCamera.translate(pointX - this.touch.x, pointY - this.touch.y);
+        this.updateCamera();
+    }
+
+    // Zooms out until the whole board fits between the margins, as far as maxZoom allows.
+    // An infinite board has nothing to fit, so the camera goes back to its middle at zoom 1.
+    private void fitCamera() {
+        if (this.infinite != null) {
+            this.boardCamera.zoom = 1;
+            this.boardCamera.position.set(0, 0, 0);
+            this.updateCamera();
+            return;
         }
+        float boardWidth = this.board.getNumCols() * GameBoard.TILE_SIZE;
+        float boardHeight = this.board.getNumRows() * GameBoard.TILE_SIZE;
+        float fit = Math.max(boardWidth / (worldWidth - 2 * margin), boardHeight / (worldHeight - 2 * margin));
+
+        this.boardCamera.zoom = MathUtils.clamp(fit, minZoom, maxZoom);
+        this.boardCamera.position.set(boardWidth / 2, boardHeight / 2, 0);
+        this.fittedRows = this.board.getNumRows();
+        this.fittedCols = this.board.getNumCols();
+        this.updateCamera();
     }
 
-    private void checkKeyboardInput() {
-        if (Gdx.input.isKeyJustPressed(Input.Keys.R)) {
-            this.board.reset();
+    // Keeps the camera over the board and works out which cells it can see
+    private void updateCamera() {
+        if (this.infinite == null) {
+            float boardWidth = this.board.getNumCols() * GameBoard.TILE_SIZE;
+            float boardHeight = this.board.getNumRows() * GameBoard.TILE_SIZE;
+            this.boardCamera.position.x = MathUtils.clamp(this.boardCamera.position.x, 0, boardWidth);
+            this.boardCamera.position.y = MathUtils.clamp(this.boardCamera.position.y, 0, boardHeight);
         }
+        this.boardCamera.update();
+
+        float halfWidth = this.boardCamera.viewportWidth * this.boardCamera.zoom / 2;
+        float halfHeight = this.boardCamera.viewportHeight * this.boardCamera.zoom / 2;
+        this.firstCol = (int) Math.floor((this.boardCamera.position.x - halfWidth) / GameBoard.TILE_SIZE);
+        this.lastCol = (int) Math.floor((this.boardCamera.position.x + halfWidth) / GameBoard.TILE_SIZE);
+        this.firstRow = (int) Math.floor((this.boardCamera.position.y - halfHeight) / GameBoard.TILE_SIZE);
+        this.lastRow = (int) Math.floor((this.boardCamera.position.y + halfHeight) / GameBoard.TILE_SIZE);
+        if (this.infinite != null) {
+            // the chunks come into being as the camera reaches them
+            this.infinite.touch(this.firstCol, this.firstRow, this.lastCol, this.lastRow);
+        }
+        else {
+            this.firstCol = Math.max(0, this.firstCol);
+            this.lastCol = Math.min(this.board.getNumCols() - 1, this.lastCol);
+            this.firstRow = Math.max(0, this.firstRow);
+            this.lastRow = Math.min(this.board.getNumRows() - 1, this.lastRow);
+        }
+        this.layerStale = true;
+    }
+
+    // I swaps between the normal board and an infinite one, whose evicted chunks spill into a local folder
+    private void toggleInfinite() {
+        this.hintCell = -1;
+        if (this.infinite == null) {
+            this.infinite = new InfiniteEngine(MathUtils.random.nextLong(), InfiniteEngine.DEFAULT_DENSITY, InfiniteEngine.CHUNK_LIMIT,
+                Gdx.files.local(CHUNK_FOLDER).file().toPath());
+        }
+        else {
+            this.infinite.reset(0); // clears the spilled chunks
+            this.infinite = null;
+        }
+        this.fitCamera();
     }
 
     /* Camera Methods */
     @Override
-    public void resize(int width, int height) { this.viewport.update(width,height); }
+    public void resize(int width, int height) {
+        this.viewport.update(width,height);
+        this.boardViewport.update(width, height);
+        this.updateCamera();
+        Gdx.graphics.requestRendering();
+    }
     @Override
-    public void pause() { }
+    public void pause() { this.board.saveGame(); }
     @Override
     public void resume() { }
     @Override
     public void hide() { }
     @Override
     public void dispose() {
+        this.tick.cancel();
+        this.profiler.disable();
         this.spriteBatch.dispose();
         this.shapeRenderer.dispose();
         this.font.dispose();
+        this.tiles.dispose();
+        this.board.saveGame();
+        this.board.dispose();
+        if (this.infinite != null) {
+            this.infinite.reset(0);
+        }
+        if (this.boardLayer != null) {
+            this.boardLayer.dispose();
+        }
     }
 
     /* Helper Methods */
@@ -0,0 +1,42 @@
+package com.thwamster;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
+
+/*
+ * The font every piece of text is drawn in. The build bakes it into a bitmap font ahead of time, see bakeFont in
+ * lwjgl3/build.gradle, so starting the game only reads a small PNG from the classpath. Without the baked files, as
+ * when running straight from an IDE, it is rendered from the TrueType file with FreeType instead.
+ */
+public final class HudFont {
+    public static final String SOURCE = "mine-sweeper.ttf";
+    public static final int SIZE = 10;
+    public static final String FOLDER = "fonts";
+    public static final String NAME = "mine-sweeper-" + SIZE;
+    public static final String BAKED = FOLDER + "/" + NAME + ".fnt";
+
+    private HudFont() { }
+
+    // Shared with the baker, so the baked font and the fallback come out the same
+    public static FreeTypeFontGenerator.FreeTypeFontParameter parameter() {
+        FreeTypeFontGenerator.FreeTypeFontParameter parameter = new FreeTypeFontGenerator.FreeTypeFontParameter();
+        parameter.size = SIZE;
+        return parameter;
+    }
+
+    public static BitmapFont load() {
+        FileHandle baked = Gdx.files.internal(BAKED);
+        if (baked.exists()) {
+            return new BitmapFont(baked);
+        }
+        FreeTypeFontGenerator generator = new FreeTypeFontGenerator(Gdx.files.internal(SOURCE));
+        try {
+            return generator.generateFont(parameter());
+        }
+        finally {
+            generator.dispose(); // the font keeps its own pages
+        }
+    }
+}
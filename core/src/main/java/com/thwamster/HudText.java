@@ -0,0 +1,84 @@
+package com.thwamster;
+
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.utils.Array;
+
+/*
+ * Text drawn on top of the board, written into reused StringBuilders rather than built from new Strings.
+ * Each frame begin is called, then line hands out the next builder in order and draw puts it on screen. A line
+ * keeps its glyphs in a BitmapFontCache and is only laid out again when its characters or position differ from
+ * what the same line held last frame, so text that holds still costs a compare and a copy of its vertices.
+ * Lines are created the first time a frame draws that many, after which a frame allocates nothing.
+ */
+public class HudText {
+    /* Instance Variables */
+    private final BitmapFont font;
+    private final Array<Line> lines = new Array<>();
+    private int numUsed; // lines handed out since begin
+    private Line current; // the line last handed out, which draw puts on screen
+
+    /* Constructor */
+    public HudText(BitmapFont newFont) {
+        this.font = newFont;
+    }
+
+    /* Drawing Methods */
+    public void begin() { this.numUsed = 0; }
+
+    // An empty builder for the next line, valid until draw
+    public StringBuilder line() {
+        if (this.numUsed == this.lines.size) {
+            this.lines.add(new Line(this.font));
+        }
+        this.current = this.lines.get(this.numUsed++);
+        this.current.text.setLength(0);
+        return this.current.text;
+    }
+
+    public void draw(Batch batch, float x, float y) { this.current.draw(batch, x, y); }
+
+    public void draw(Batch batch, CharSequence text, float x, float y) {
+        this.line().append(text);
+        this.draw(batch, x, y);
+    }
+
+    private static class Line {
+        private final StringBuilder text = new StringBuilder(64); // written this frame
+        private final StringBuilder shown = new StringBuilder(64); // what the cache holds
+        private final GlyphLayout layout = new GlyphLayout();
+        private final BitmapFontCache cache;
+        private float shownX = Float.NaN; // NaN never matches, so the first draw always lays out
+        private float shownY;
+
+        private Line(BitmapFont font) {
+            this.cache = font.newFontCache();
+        }
+
+        private void draw(Batch batch, float x, float y) {
+            if (x != this.shownX || y != this.shownY || !this.sameText()) {
+                this.shown.setLength(0);
+                this.shown.append(this.text);
+                this.layout.setText(this.cache.getFont(), this.shown);
+                this.cache.setText(this.layout, x, y);
+                this.shownX = x;
+                this.shownY = y;
+            }
+            this.cache.draw(batch);
+        }
+
+        private boolean sameText() {
+            if (this.text.length() != this.shown.length()) {
+                return false;
+            }
+            for (int i = 0; i < this.text.length(); i++) {
+                if (this.text.charAt(i) != this.shown.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
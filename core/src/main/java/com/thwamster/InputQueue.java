@@ -0,0 +1,77 @@
+package com.thwamster;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.InputAdapter;
+
+import java.util.Arrays;
+
+/*
+ * Input events in the order they arrived, each stamped with System.nanoTime, for the screen to drain at the start
+ * of its next frame. Polling isButtonJustPressed only sees what is down when a frame starts and gives every event
+ * the frame's order, the queue keeps each press with its own position and time. Events are held in parallel
+ * arrays that grow as needed, so steady play allocates nothing. The backend delivers events on the render thread,
+ * so there is no locking.
+ */
+public class InputQueue extends InputAdapter {
+    /* Event Types */
+    public static final int KEY_DOWN = 0; // code is the key
+    public static final int TOUCH_DOWN = 1; // code is the mouse button
+    public static final int SCROLLED = 2; // amount is the wheel movement, at the cursor's position
+
+    /* Instance Variables */
+    private int[] types = new int[16];
+    private int[] codes = new int[16];
+    private int[] screenXs = new int[16];
+    private int[] screenYs = new int[16];
+    private float[] amounts = new float[16];
+    private long[] times = new long[16];
+    private int size;
+
+    /* Helper Methods */
+    public int size() { return this.size; }
+    public int getType(int i) { return this.types[i]; }
+    public int getCode(int i) { return this.codes[i]; }
+    public int getScreenX(int i) { return this.screenXs[i]; }
+    public int getScreenY(int i) { return this.screenYs[i]; }
+    public float getAmount(int i) { return this.amounts[i]; }
+    public long getTime(int i) { return this.times[i]; }
+    public void clear() { this.size = 0; }
+
+    private void add(int type, int code, int screenX, int screenY, float amount) {
+        if (this.size == this.types.length) {
+            int capacity = this.size * 2;
+            this.types = Arrays.copyOf(this.types, capacity);
+            this.codes = Arrays.copyOf(this.codes, capacity);
+            this.screenXs = Arrays.copyOf(this.screenXs, capacity);
+            this.screenYs = Arrays.copyOf(this.screenYs, capacity);
+            this.amounts = Arrays.copyOf(this.amounts, capacity);
+            this.times = Arrays.copyOf(this.times, capacity);
+        }
+        this.types[this.size] = type;
+        this.codes[this.size] = code;
+        this.screenXs[this.size] = screenX;
+        this.screenYs[this.size] = screenY;
+        this.amounts[this.size] = amount;
+        this.times[this.size] = System.nanoTime();
+        this.size++;
+    }
+
+    /* Input Events */
+    @Override
+    public boolean keyDown(int keycode) {
+        this.add(KEY_DOWN, keycode, 0, 0, 0);
+        return true;
+    }
+
+    @Override
+    public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+        this.add(TOUCH_DOWN, button, screenX, screenY, 0);
+        return true;
+    }
+
+    @Override
+    public boolean scrolled(float amountX, float amountY) {
+        this.add(SCROLLED, 0, Gdx.input.getX(), Gdx.input.getY(), amountY);
+        return true;
+    }
+}
@@ -5,6 +5,7 @@ import com.badlogic.gdx.Game;
 public class Main extends Game {
     @Override
     public void create() {
+        StartupReport.mark(StartupReport.CREATE);
         setScreen(new GameplayScreen());
     }
 }
@@ -0,0 +1,87 @@
+package com.thwamster;
+
+import com.badlogic.gdx.Gdx;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * How long a launch took to reach each milestone, counted from the JVM's own start time so that class loading
+ * and the launcher are included. Marks are plain timestamps, the management classes are only touched once the
+ * first playable frame is up. Each launch logs its times and appends a row to REPORT_FILE, with whether a class
+ * data sharing archive was in use, so cold starts can be tracked across builds. On macOS StartupHelper may start
+ * a second JVM, and the times are then from the start of that one.
+ */
+public final class StartupReport {
+    /* Milestones */
+    public static final int MAIN = 0; // the launcher's main method
+    public static final int CREATE = 1; // the window and GL context are up
+    public static final int SHOW = 2; // the screen is set up, with its font and board
+    public static final int FIRST_FRAME = 3; // the first frame, still loading tiles
+    public static final int PLAYABLE = 4; // the first frame with the board drawn
+    private static final String[] MILESTONES = {"main", "create", "show", "first_frame", "playable"};
+
+    private static final String REPORT_FILE = "startup.csv";
+    private static final String EXIT_PROPERTY = "minesweeper.exitAfterStartup"; // set by the AppCDS training run
+
+    private static final long[] marks = new long[MILESTONES.length]; // wall clock milliseconds, 0 until reached
+    private static boolean reported;
+
+    private StartupReport() { }
+
+    public static void mark(int milestone) {
+        if (marks[milestone] == 0) {
+            marks[milestone] = System.currentTimeMillis();
+        }
+    }
+
+    // Call at the end of the first playable frame. Only the first call reports.
+    public static void report() {
+        if (reported) {
+            return;
+        }
+        reported = true;
+        mark(PLAYABLE);
+
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        long start = runtime.getStartTime();
+        boolean sharedArchive = runtime.getInputArguments().stream().anyMatch(argument -> argument.startsWith("-XX:SharedArchiveFile"));
+
+        StringBuilder log = new StringBuilder("JVM start to");
+        StringBuilder row = new StringBuilder().append(System.currentTimeMillis()).append(',').append(sharedArchive);
+        for (int i = 0; i < MILESTONES.length; i++) {
+            long since = marks[i] == 0 ? -1 : marks[i] - start;
+            if (since >= 0) {
+                log.append(' ').append(MILESTONES[i]).append(' ').append(since).append(" ms,");
+            }
+            row.append(',').append(since);
+        }
+        log.setLength(log.length() - 1);
+        Gdx.app.log("Startup", log + (sharedArchive ? " (class data sharing archive)" : ""));
+
+        Path file = Gdx.files.local(REPORT_FILE).file().toPath();
+        try {
+            boolean fresh = !Files.exists(file);
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                if (fresh) {
+                    out.write("time_ms,shared_archive," + String.join(",", Arrays.asList(MILESTONES)) + "\n");
+                }
+                out.write(row + "\n");
+            }
+        }
+        catch (IOException e) {
+            Gdx.app.error("Startup", "Could not write " + REPORT_FILE, e);
+        }
+
+        if (Boolean.getBoolean(EXIT_PROPERTY)) {
+            Gdx.app.exit();
+        }
+    }
+}
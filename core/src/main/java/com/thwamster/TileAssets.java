@@ -0,0 +1,88 @@
+package com.thwamster;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.PixmapPacker;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Disposable;
+
+/*
+ * Every tile image, packed into one texture atlas so a whole board draws from a single texture.
+ * The images are decoded by an AssetManager in the background, then packed once on the render thread.
+ */
+public class TileAssets implements Disposable {
+    /* Tiles */
+    public static final int EMPTY = 0;
+    public static final int FLOOR = 1; // followed by ONE through EIGHT, so FLOOR + number picks a number tile
+    public static final int ONE = 2;
+    public static final int EIGHT = 9;
+    public static final int BOMB = 10;
+    public static final int FLAG = 11;
+
+    private static final String[] FILES = {
+            "emptyTile.jpg", "empty floor.jpg",
+            "oneTile.jpg", "twoTile.jpg", "threeTile.jpg", "fourTile.jpg",
+            "fiveTile.jpg", "sixTile.jpg", "sevenTile.jpg", "eightTile.jpg",
+            "bomb.jpg", "flagTile.jpg"
+    };
+    private static final int PAGE_SIZE = 256; // twelve 25px tiles with padding fit on one page
+
+    /* Instance Variables */
+    private final AssetManager manager; // decodes the tile images off the render thread
+    private final TextureRegion[] regions = new TextureRegion[FILES.length];
+    private PixmapPacker packer; // keeps the packed page alive for as long as the atlas uses it
+    private TextureAtlas atlas;
+
+    /* Constructor */
+    public TileAssets() {
+        this.manager = new AssetManager();
+        for (String file : FILES) {
+            this.manager.load(file, Pixmap.class);
+        }
+    }
+
+    /* Helper Methods */
+    public TextureRegion get(int tile) { return this.regions[tile]; }
+    public boolean isLoaded() { return this.atlas != null; }
+    public float getProgress() { return this.isLoaded() ? 1 : this.manager.getProgress(); }
+
+    /* Loading Methods */
+    // Call once per frame until it returns true
+    public boolean update() {
+        if (!this.isLoaded() && this.manager.update()) {
+            this.pack();
+        }
+        return this.isLoaded();
+    }
+
+    public void finishLoading() {
+        if (!this.isLoaded()) {
+            this.manager.finishLoading();
+            this.pack();
+        }
+    }
+
+    private void pack() {
+        this.packer = new PixmapPacker(PAGE_SIZE, PAGE_SIZE, Pixmap.Format.RGBA8888, 2, false);
+        for (String file : FILES) {
+            this.packer.pack(file, this.manager.get(file, Pixmap.class));
+        }
+        this.atlas = this.packer.generateTextureAtlas(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest, false);
+
+        for (int i = 0; i < FILES.length; i++) {
+            this.regions[i] = this.atlas.findRegion(FILES[i]);
+            this.manager.unload(FILES[i]); // the packer holds its own copy of the pixels
+        }
+    }
+
+    @Override
+    public void dispose() {
+        this.manager.dispose();
+        if (this.atlas != null) {
+            this.atlas.dispose();
+            this.packer.dispose();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.thwamster;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.math.Matrix4;
+import com.thwamster.engine.TimeFormat;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/*
+ * Draws the HUD the way GameplayScreen does, with a clock that changes every frame so its line is laid out again
+ * each time, and counts the bytes the thread allocates once it is warm. GL calls and the batch do nothing, so only
+ * the text building, GlyphLayout and BitmapFontCache are measured. GL is a Proxy, which allocates on every call,
+ * but it is only called while the font loads; the batch is called every frame, so it is a plain class.
+ */
+class HudTextTest {
+    private static final int WARMUP_FRAMES = 20_000;
+    private static final int FRAMES = 10_000;
+    private static final long ALLOWED_BYTES = 1024; // a single allocating frame would pass this many times over
+    private static final int SCOREBOARD_SIZE = 24;
+
+    private static HeadlessApplication application;
+
+    @BeforeAll
+    static void setUp() {
+        application = new HeadlessApplication(new ApplicationAdapter() { }, new HeadlessApplicationConfiguration());
+        Gdx.gl = Gdx.gl20 = nothing(GL20.class);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        application.exit();
+    }
+
+    @Test
+    void steadyFramesAllocateNothing() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        BitmapFont font = new BitmapFont(); // the font libGDX ships, so FreeType is not needed
+        HudText hud = new HudText(font);
+        Batch batch = new NoBatch();
+        long[] scores = new long[SCOREBOARD_SIZE];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = 40_000 + i * 7_919L;
+        }
+
+        long thread = Thread.currentThread().getId();
+        for (int frame = 0; frame < WARMUP_FRAMES; frame++) {
+            drawFrame(hud, batch, frame, scores);
+        }
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int frame = WARMUP_FRAMES; frame < WARMUP_FRAMES + FRAMES; frame++) {
+            drawFrame(hud, batch, frame, scores);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        font.dispose();
+
+        assertTrue(allocated < ALLOWED_BYTES, allocated + " bytes allocated over " + FRAMES + " frames");
+    }
+
+    // The lines GameplayScreen draws while a game is being played
+    private static void drawFrame(HudText hud, Batch batch, int frame, long[] scores) {
+        long elapsed = frame * 17L;
+        hud.begin();
+        hud.line().append("Flags Remaining: ").append(99 - (frame >> 6) % 99);
+        hud.draw(batch, 80, 580);
+        TimeFormat.appendClock(hud.line().append("Time Elapsed:  "), elapsed);
+        hud.draw(batch, 550, 580);
+        hud.draw(batch, "Scores: ", 7, 490);
+        for (int i = 0; i < scores.length; i++) {
+            TimeFormat.appendClock(hud.line().append(i + 1).append(". "), scores[i]).append(", 3BV ").append(120 + i);
+            hud.draw(batch, 7, 470 - i * 20);
+        }
+        hud.draw(batch, "H for a hint.", 80, 40);
+    }
+
+    // An implementation that does nothing and returns zero, false or null from everything
+    private static <T> T nothing(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            Class<?> result = method.getReturnType();
+            if (result == boolean.class) { return false; }
+            else if (result == int.class) { return 0; }
+            else if (result == long.class) { return 0L; }
+            else if (result == float.class) { return 0F; }
+            else if (result == double.class) { return 0D; }
+            else if (result == byte.class) { return (byte) 0; }
+            else if (result == short.class) { return (short) 0; }
+            else if (result == char.class) { return (char) 0; }
+            return null;
+        }));
+    }
+
+    // Takes the vertices a BitmapFontCache hands it and draws nothing
+    private static class NoBatch implements Batch {
+        private final Color color = new Color(Color.WHITE);
+        private final Matrix4 projection = new Matrix4();
+        private final Matrix4 transform = new Matrix4();
+        private boolean drawing;
+
+        @Override public void begin() { this.drawing = true; }
+        @Override public void end() { this.drawing = false; }
+        @Override public void setColor(Color tint) { this.color.set(tint); }
+        @Override public void setColor(float r, float g, float b, float a) { this.color.set(r, g, b, a); }
+        @Override public Color getColor() { return this.color; }
+        @Override public void setPackedColor(float packedColor) { Color.abgr8888ToColor(this.color, packedColor); }
+        @Override public float getPackedColor() { return this.color.toFloatBits(); }
+        @Override public void draw(Texture texture, float x, float y, float originX, float originY, float width, float height, float scaleX,
+            float scaleY, float rotation, int srcX, int srcY, int srcWidth, int srcHeight, boolean flipX, boolean flipY) { }
+        @Override public void draw(Texture texture, float x, float y, float width, float height, int srcX, int srcY, int srcWidth,
+            int srcHeight, boolean flipX, boolean flipY) { }
+        @Override public void draw(Texture texture, float x, float y, int srcX, int srcY, int srcWidth, int srcHeight) { }
+        @Override public void draw(Texture texture, float x, float y, float width, float height, float u, float v, float u2, float v2) { }
+        @Override public void draw(Texture texture, float x, float y) { }
+        @Override public void draw(Texture texture, float x, float y, float width, float height) { }
+        @Override public void draw(Texture texture, float[] spriteVertices, int offset, int count) { }
+        @Override public void draw(TextureRegion region, float x, float y) { }
+        @Override public void draw(TextureRegion region, float x, float y, float width, float height) { }
+        @Override public void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height,
+            float scaleX, float scaleY, float rotation) { }
+        @Override public void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height,
+            float scaleX, float scaleY, float rotation, boolean clockwise) { }
+        @Override public void draw(TextureRegion region, float width, float height, Affine2 transform) { }
+        @Override public void flush() { }
+        @Override public void disableBlending() { }
+        @Override public void enableBlending() { }
+        @Override public void setBlendFunction(int srcFunc, int dstFunc) { }
+        @Override public void setBlendFunctionSeparate(int srcFuncColor, int dstFuncColor, int srcFuncAlpha, int dstFuncAlpha) { }
+        @Override public int getBlendSrcFunc() { return GL20.GL_SRC_ALPHA; }
+        @Override public int getBlendDstFunc() { return GL20.GL_ONE_MINUS_SRC_ALPHA; }
+        @Override public int getBlendSrcFuncAlpha() { return GL20.GL_SRC_ALPHA; }
+        @Override public int getBlendDstFuncAlpha() { return GL20.GL_ONE_MINUS_SRC_ALPHA; }
+        @Override public Matrix4 getProjectionMatrix() { return this.projection; }
+        @Override public Matrix4 getTransformMatrix() { return this.transform; }
+        @Override public void setProjectionMatrix(Matrix4 newProjection) { this.projection.set(newProjection); }
+        @Override public void setTransformMatrix(Matrix4 newTransform) { this.transform.set(newTransform); }
+        @Override public void setShader(ShaderProgram shader) { }
+        @Override public ShaderProgram getShader() { return null; }
+        @Override public boolean isBlendingEnabled() { return true; }
+        @Override public boolean isDrawing() { return this.drawing; }
+        @Override public void dispose() { }
+    }
+}
@@ -0,0 +1,42 @@
+package com.thwamster.lwjgl3;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.PixmapPacker;
+import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
+import com.badlogic.gdx.tools.bmfont.BitmapFontWriter;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.thwamster.HudFont;
+
+import java.io.File;
+
+/**
+ * Renders the HUD font with FreeType once, at build time, and writes it out as a BMFont file and its pages
+ * under fonts in a resources folder, where {@link HudFont} picks it up. Needs no window or GL context, only the natives.
+ * Run by the bakeFont task with the assets folder, which holds the TrueType file, and the folder to write to.
+ */
+public class FontBaker {
+    private static final int PAGE_SIZE = 256;
+
+    public static void main(String[] args) {
+        GdxNativesLoader.load();
+        File assets = new File(args.length > 0 ? args[0] : ".");
+        File resources = args.length > 1 ? new File(args[1]) : assets;
+        FileHandle folder = new FileHandle(new File(resources, HudFont.FOLDER));
+
+        PixmapPacker packer = new PixmapPacker(PAGE_SIZE, PAGE_SIZE, Pixmap.Format.RGBA8888, 1, false);
+        FreeTypeFontGenerator.FreeTypeFontParameter parameter = HudFont.parameter();
+        parameter.packer = packer; // with its own packer the generator leaves the pixels in memory, no textures
+
+        FreeTypeFontGenerator generator = new FreeTypeFontGenerator(new FileHandle(new File(assets, HudFont.SOURCE)));
+        FreeTypeFontGenerator.FreeTypeBitmapFontData data = generator.generateData(parameter);
+
+        BitmapFontWriter.FontInfo info = new BitmapFontWriter.FontInfo(HudFont.NAME, HudFont.SIZE);
+        String[] pages = BitmapFontWriter.writePixmaps(packer.getPages(), folder, HudFont.NAME);
+        BitmapFontWriter.writeFont(data, pages, folder.child(HudFont.NAME + ".fnt"), info, PAGE_SIZE, PAGE_SIZE);
+
+        generator.dispose();
+        packer.dispose();
+        System.out.println("Baked " + HudFont.SOURCE + " into " + pages.length + " page(s) under " + folder.path());
+    }
+}
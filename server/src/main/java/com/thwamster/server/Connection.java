@@ -0,0 +1,118 @@
+package com.thwamster.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+ * One client socket. Reads and writes only ever happen on the selector thread; session actors hand frames over
+ * through the outbound queue and ask the server to flush it.
+ */
+public class Connection {
+    /* Instance Variables */
+    private final GameServer server;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final int player; // unique across the server
+    private ByteBuffer inbound = ByteBuffer.allocate(256); // bytes read but not yet parsed, in write mode
+    private final ConcurrentLinkedQueue<ByteBuffer> outbound = new ConcurrentLinkedQueue<ByteBuffer>();
+    private volatile Session session; // set by the selector thread on JOIN
+    private volatile boolean closed;
+
+    /* Constructor */
+    public Connection(GameServer newServer, SocketChannel newChannel, SelectionKey newKey, int newPlayer) {
+        this.server = newServer;
+        this.channel = newChannel;
+        this.key = newKey;
+        this.player = newPlayer;
+    }
+
+    /* Helper Methods */
+    public int getPlayer() { return this.player; }
+    public Session getSession() { return this.session; }
+    public void setSession(Session newSession) { this.session = newSession; }
+    public SelectionKey getKey() { return this.key; }
+    public boolean isClosed() { return this.closed; }
+
+    /* Sending Methods */
+    // Safe from any thread
+    public void send(ByteBuffer frame) {
+        if (!this.closed) {
+            this.outbound.add(frame);
+            this.server.requestWrite(this);
+        }
+    }
+
+    // Selector thread only. Returns true once everything queued has gone out.
+    boolean flush() throws IOException {
+        ByteBuffer frame;
+        while ((frame = this.outbound.peek()) != null) {
+            this.channel.write(frame);
+            if (frame.hasRemaining()) {
+                return false; // the socket buffer is full, wait for the next OP_WRITE
+            }
+            this.outbound.poll();
+        }
+        return true;
+    }
+
+    /* Receiving Methods */
+    // Selector thread only. Returns -1 at end of stream.
+    int read() throws IOException {
+        if (!this.inbound.hasRemaining()) {
+            this.inbound = grow(this.inbound, this.inbound.capacity() * 2);
+        }
+        return this.channel.read(this.inbound);
+    }
+
+    // Selector thread only. Returns the next whole frame, type byte first, or null if it has not all arrived.
+    ByteBuffer nextFrame() throws IOException {
+        this.inbound.flip();
+        try {
+            if (this.inbound.remaining() < Protocol.HEADER_SIZE) {
+                return null;
+            }
+            int length = this.inbound.getInt(this.inbound.position());
+            if (length < 1 || length > Protocol.MAX_FRAME) {
+                throw new IOException("Bad frame length " + length + " from player " + this.player);
+            }
+            if (this.inbound.remaining() < Protocol.HEADER_SIZE + length) {
+                if (this.inbound.capacity() < Protocol.HEADER_SIZE + length) {
+                    this.inbound.compact();
+                    this.inbound = grow(this.inbound, Protocol.HEADER_SIZE + length);
+                    this.inbound.flip();
+                }
+                return null;
+            }
+
+            this.inbound.position(this.inbound.position() + Protocol.HEADER_SIZE);
+            ByteBuffer frame = this.inbound.slice();
+            frame.limit(length);
+            ByteBuffer copy = ByteBuffer.allocate(length).put(frame).flip();
+            this.inbound.position(this.inbound.position() + length);
+            return copy;
+        }
+        finally {
+            this.inbound.compact();
+        }
+    }
+
+    void close() {
+        this.closed = true;
+        this.key.cancel();
+        try {
+            this.channel.close();
+        }
+        catch (IOException e) {
+            // already gone
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer bigger = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        return bigger.put(buffer);
+    }
+}
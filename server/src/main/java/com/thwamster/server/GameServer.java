@@ -0,0 +1,239 @@
+package com.thwamster.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Hosts many Minesweeper sessions over TCP using the frames in Protocol.
+ *
+ * One selector thread does all socket reads and writes and turns frames into messages for the session actors.
+ * The game rules run on a small worker pool, one session at a time per worker, so thousands of idle connections
+ * cost a buffer each rather than a thread each.
+ */
+public class GameServer implements Runnable {
+    /* Instance Variables */
+    private final Selector selector;
+    private final ServerSocketChannel acceptor;
+    private final ExecutorService actors; // runs the session mailboxes
+    private final ConcurrentHashMap<Integer, Session> sessions = new ConcurrentHashMap<Integer, Session>();
+    private final ConcurrentLinkedQueue<Connection> pendingWrites = new ConcurrentLinkedQueue<Connection>(); // connections with frames to flush
+    private final AtomicInteger nextPlayer = new AtomicInteger();
+    private volatile boolean running = true;
+
+    /* Constructor */
+    public GameServer(int port, int numWorkers) throws IOException {
+        this.selector = Selector.open();
+        this.acceptor = ServerSocketChannel.open();
+        this.acceptor.bind(new InetSocketAddress(port));
+        this.acceptor.configureBlocking(false);
+        this.acceptor.register(this.selector, SelectionKey.OP_ACCEPT);
+
+        AtomicInteger count = new AtomicInteger();
+        this.actors = Executors.newFixedThreadPool(numWorkers, runnable -> {
+            Thread thread = new Thread(runnable, "session-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /* Helper Methods */
+    public int getPort() { return this.acceptor.socket().getLocalPort(); }
+    public int getNumSessions() { return this.sessions.size(); }
+
+    // A player joining or leaving changes the member count under the map's lock on that id, so a JOIN can never
+    // pick a session up just as its last player takes it out of the map
+    private Session joinSession(int id, byte mode, int rows, int cols, int bombs) {
+        return this.sessions.compute(id, (key, existing) -> {
+            Session session = existing != null ? existing : new Session(this, key, mode, rows, cols, bombs, this.actors);
+            session.numMembers++;
+            return session;
+        });
+    }
+
+    void leaveSession(Session session) {
+        this.sessions.computeIfPresent(session.getId(), (key, existing) -> existing == session && --existing.numMembers == 0 ? null : existing);
+    }
+
+    // Called by session actors after queueing a frame
+    void requestWrite(Connection connection) {
+        this.pendingWrites.add(connection);
+        this.selector.wakeup();
+    }
+
+    /* Server Methods */
+    @Override
+    public void run() {
+        try {
+            while (this.running) {
+                this.selector.select();
+
+                Connection pending;
+                while ((pending = this.pendingWrites.poll()) != null) {
+                    this.write(pending);
+                }
+
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        this.accept();
+                    }
+                    else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            this.read(connection);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            this.write(connection);
+                        }
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Server stopped: " + e);
+        }
+        finally {
+            this.close();
+        }
+    }
+
+    public void stop() {
+        this.running = false;
+        this.selector.wakeup();
+    }
+
+    private void close() {
+        for (SelectionKey key : this.selector.keys()) {
+            if (key.attachment() instanceof Connection) {
+                ((Connection) key.attachment()).close();
+            }
+        }
+        try {
+            this.acceptor.close();
+            this.selector.close();
+        }
+        catch (IOException e) {
+            // shutting down anyway
+        }
+        this.actors.shutdownNow();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = this.acceptor.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true); // deltas are small and latency matters more
+        SelectionKey key = channel.register(this.selector, SelectionKey.OP_READ);
+        key.attach(new Connection(this, channel, key, this.nextPlayer.incrementAndGet()));
+    }
+
+    private void read(Connection connection) {
+        try {
+            if (connection.read() < 0) {
+                this.disconnect(connection);
+                return;
+            }
+            ByteBuffer frame;
+            while ((frame = connection.nextFrame()) != null) {
+                this.dispatch(connection, frame);
+            }
+        }
+        catch (IOException | BufferUnderflowException e) {
+            // a frame too short for its type counts as a broken client too
+            this.disconnect(connection);
+        }
+    }
+
+    private void write(Connection connection) {
+        if (connection.isClosed()) {
+            return;
+        }
+        try {
+            SelectionKey key = connection.getKey();
+            if (connection.flush()) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+            else {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+        catch (IOException e) {
+            this.disconnect(connection);
+        }
+    }
+
+    private void dispatch(Connection connection, ByteBuffer frame) throws IOException {
+        byte type = frame.get();
+        Session session = connection.getSession();
+
+        if (type == Protocol.JOIN) {
+            if (session != null) {
+                return; // already in a game
+            }
+            int id = frame.getInt();
+            byte mode = frame.get() == Protocol.COOP ? Protocol.COOP : Protocol.RACE;
+            int rows = frame.getShort();
+            int cols = frame.getShort();
+            int bombs = frame.getInt();
+            if (rows < 1 || cols < 1 || rows > Protocol.MAX_SIDE || cols > Protocol.MAX_SIDE || rows * cols > Protocol.MAX_CELLS
+                || bombs < 0 || bombs >= rows * cols) {
+                throw new IOException("Bad board size from player " + connection.getPlayer());
+            }
+            Session joined = this.joinSession(id, mode, rows, cols, bombs);
+            connection.setSession(joined);
+            joined.tell(() -> joined.join(connection));
+        }
+        else if (session != null) {
+            int seq = frame.getInt();
+            int cell = type == Protocol.RESET ? -1 : frame.getInt();
+            session.tell(() -> session.act(connection, type, seq, cell));
+        }
+    }
+
+    private void disconnect(Connection connection) {
+        connection.close();
+        Session session = connection.getSession();
+        if (session != null) {
+            session.tell(() -> session.leave(connection));
+        }
+    }
+
+    /* Main */
+    public static void main(String[] args) throws IOException {
+        int port = 7777;
+        int numWorkers = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                case "--workers": numWorkers = Integer.parseInt(args[++i]); break;
+                default:
+                    System.err.println("Usage: server [--port N] [--workers N]");
+                    System.exit(2);
+            }
+        }
+
+        GameServer server = new GameServer(port, numWorkers);
+        System.out.println("Listening on port " + server.getPort() + " with " + numWorkers + " session workers");
+        server.run();
+    }
+}
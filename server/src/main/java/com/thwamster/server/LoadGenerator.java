@@ -0,0 +1,259 @@
+package com.thwamster.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Plays many clients against a GameServer at once and reports actions per second and action latency, measured
+ * from sending an action to receiving the update that answers it.
+ *
+ * Each client reveals random covered cells from its own view of the board and resets when its game ends.
+ * With --embedded a server is started in this process, so a run needs nothing else.
+ */
+public class LoadGenerator {
+    /* Settings */
+    private static final String USAGE = String.join("\n",
+        "Usage: loadgen [options]",
+        "  --host NAME       server host (default localhost)",
+        "  --port N          server port (default 7777)",
+        "  --embedded        start a server in this process on a free port instead",
+        "  --sessions N      concurrent sessions (default 100)",
+        "  --players N       clients per session (default 2)",
+        "  --mode race|coop  (default coop)",
+        "  --size RxCxB      board size (default 16x30x99)",
+        "  --seconds N       length of the run (default 10)");
+
+    /* Instance Variables */
+    private final String host;
+    private final int port;
+    private final byte mode;
+    private final int numRows;
+    private final int numCols;
+    private final int numBombs;
+
+    /* Constructor */
+    public LoadGenerator(String newHost, int newPort, byte newMode, int newNumRows, int newNumCols, int newNumBombs) {
+        this.host = newHost;
+        this.port = newPort;
+        this.mode = newMode;
+        this.numRows = newNumRows;
+        this.numCols = newNumCols;
+        this.numBombs = newNumBombs;
+    }
+
+    /* Load Methods */
+    // Runs every client until the deadline and returns each action's latency in nanoseconds
+    public long[] run(int numSessions, int numPlayers, long nanos) throws InterruptedException {
+        int numClients = numSessions * numPlayers;
+        ExecutorService clients = Executors.newFixedThreadPool(numClients);
+        long deadline = System.nanoTime() + nanos;
+
+        List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+        for (int c = 0; c < numClients; c++) {
+            int session = c / numPlayers + 1;
+            long seed = c;
+            futures.add(clients.submit(() -> this.play(session, seed, deadline)));
+        }
+        clients.shutdown();
+
+        // every client keeps its own samples, joined once they are all done
+        long[][] samples = new long[numClients][];
+        int total = 0;
+        for (int c = 0; c < numClients; c++) {
+            try {
+                samples[c] = futures.get(c).get();
+            }
+            catch (ExecutionException e) {
+                System.err.println("Client " + c + " failed: " + e.getCause());
+                samples[c] = new long[0];
+            }
+            total += samples[c].length;
+        }
+        long[] latencies = new long[total];
+        int at = 0;
+        for (long[] sample : samples) {
+            System.arraycopy(sample, 0, latencies, at, sample.length);
+            at += sample.length;
+        }
+        return latencies;
+    }
+
+    private long[] play(int session, long seed, long deadline) throws IOException {
+        Random random = new Random(seed);
+        long[] latencies = new long[1024];
+        int numLatencies = 0;
+
+        try (Socket socket = new Socket(this.host, this.port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            View view = new View();
+
+            send(out, Protocol.join(session, this.mode, this.numRows, this.numCols, this.numBombs));
+            while (view.cells == null) {
+                view.read(in); // WELCOME, then the board
+            }
+
+            int seq = 0;
+            while (System.nanoTime() < deadline) {
+                seq++;
+                long begin = System.nanoTime();
+                if (view.status == 1 || view.status == 0) {
+                    send(out, Protocol.action(Protocol.REVEAL, seq, view.randomCovered(random)));
+                }
+                else {
+                    send(out, Protocol.reset(seq));
+                }
+                while (view.read(in) != seq) {
+                    // updates caused by other players in the session
+                }
+
+                if (numLatencies == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, latencies.length * 2);
+                }
+                latencies[numLatencies++] = System.nanoTime() - begin;
+            }
+        }
+        return Arrays.copyOf(latencies, numLatencies);
+    }
+
+    private static void send(DataOutputStream out, ByteBuffer frame) throws IOException {
+        out.write(frame.array(), frame.position(), frame.remaining());
+        out.flush();
+    }
+
+    /* Client View */
+    // What one client knows of its board, kept up to date from the frames it receives
+    private static class View {
+        byte[] cells;
+        int status;
+        int pendingSize; // board size from WELCOME, until the first FULL arrives
+
+        // Reads one frame and returns the seq it answers, or 0
+        int read(DataInputStream in) throws IOException {
+            int length = in.readInt();
+            byte type = in.readByte();
+            switch (type) {
+                case Protocol.WELCOME: {
+                    in.readInt();
+                    in.readByte();
+                    int rows = in.readShort();
+                    int cols = in.readShort();
+                    in.readInt();
+                    this.cells = null;
+                    this.pendingSize = rows * cols;
+                    return 0;
+                }
+                case Protocol.DELTA: {
+                    int seq = in.readInt();
+                    in.readInt();
+                    this.status = in.readByte();
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        int cell = in.readInt();
+                        this.cells[cell] = in.readByte();
+                    }
+                    return seq;
+                }
+                case Protocol.FULL: {
+                    int seq = in.readInt();
+                    in.readInt();
+                    this.status = in.readByte();
+                    if (this.cells == null) {
+                        this.cells = new byte[this.pendingSize];
+                    }
+                    in.readFully(this.cells);
+                    return seq;
+                }
+                default:
+                    in.skipBytes(length - 1); // PROGRESS from a rival, or anything newer than this client
+                    return 0;
+            }
+        }
+
+        int randomCovered(Random random) {
+            int start = random.nextInt(this.cells.length);
+            for (int i = 0; i < this.cells.length; i++) {
+                int cell = (start + i) % this.cells.length;
+                if (this.cells[cell] == 0) {
+                    return cell;
+                }
+            }
+            return start;
+        }
+    }
+
+    /* Main */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String host = "localhost";
+        int port = 7777;
+        boolean embedded = false;
+        int numSessions = 100;
+        int numPlayers = 2;
+        byte mode = Protocol.COOP;
+        String size = "16x30x99";
+        int seconds = 10;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host": host = args[++i]; break;
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                case "--embedded": embedded = true; break;
+                case "--sessions": numSessions = Integer.parseInt(args[++i]); break;
+                case "--players": numPlayers = Integer.parseInt(args[++i]); break;
+                case "--mode": mode = "race".equals(args[++i]) ? Protocol.RACE : Protocol.COOP; break;
+                case "--size": size = args[++i]; break;
+                case "--seconds": seconds = Integer.parseInt(args[++i]); break;
+                default:
+                    System.err.println(USAGE);
+                    System.exit(2);
+            }
+        }
+        String[] parts = size.split("x");
+
+        GameServer server = null;
+        if (embedded) {
+            server = new GameServer(0, Runtime.getRuntime().availableProcessors());
+            Thread thread = new Thread(server, "server");
+            thread.setDaemon(true);
+            thread.start();
+            port = server.getPort();
+        }
+
+        LoadGenerator generator = new LoadGenerator(host, port, mode, Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+        long begin = System.nanoTime();
+        long[] latencies = generator.run(numSessions, numPlayers, seconds * 1_000_000_000L);
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        if (server != null) {
+            server.stop();
+        }
+
+        Arrays.sort(latencies);
+        System.out.printf(Locale.ROOT, "%d sessions, %d clients, %s mode, %s board%n",
+            numSessions, numSessions * numPlayers, mode == Protocol.COOP ? "coop" : "race", size);
+        System.out.printf(Locale.ROOT, "%d actions in %.1f s, %.0f actions/s%n", latencies.length, elapsed, latencies.length / elapsed);
+        if (latencies.length > 0) {
+            System.out.printf(Locale.ROOT, "latency p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                percentile(latencies, 0.5) / 1e3, percentile(latencies, 0.99) / 1e3, latencies[latencies.length - 1] / 1e3);
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
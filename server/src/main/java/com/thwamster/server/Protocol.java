@@ -0,0 +1,131 @@
+package com.thwamster.server;
+
+import com.thwamster.engine.BoardStorage;
+import com.thwamster.engine.FlatBoardStorage;
+
+import java.nio.ByteBuffer;
+
+/*
+ * The wire format shared by GameServer and LoadGenerator. Every frame is a big-endian int length, counting the
+ * type byte and payload, then the type byte and its payload.
+ *
+ * Client to server:
+ *   JOIN    int session, byte mode, short rows, short cols, int bombs   (the size is only used by the first player,
+ *           up to MAX_SIDE a side and MAX_CELLS in all, with fewer bombs than cells)
+ *   REVEAL  int seq, int cell
+ *   FLAG    int seq, int cell
+ *   CHORD   int seq, int cell
+ *   RESET   int seq
+ *
+ * Server to client:
+ *   WELCOME  int player, byte mode, short rows, short cols, int bombs
+ *   DELTA    int seq, int player, byte status, int count, then count times (int cell, byte value)
+ *   FULL     int seq, int player, byte status, then one value byte per cell
+ *   PROGRESS int player, int revealed, byte status   (race mode, a rival's board changed)
+ *
+ * seq is chosen by the client and echoed back on the update its action caused, 0 when another player caused it.
+ * Cell values use the FlatBoardStorage bits, with bombs and numbers only sent once a cell is revealed.
+ */
+public final class Protocol {
+    /* Client Frames */
+    public static final byte JOIN = 1;
+    public static final byte REVEAL = 2;
+    public static final byte FLAG = 3;
+    public static final byte CHORD = 4;
+    public static final byte RESET = 5;
+
+    /* Server Frames */
+    public static final byte WELCOME = 1;
+    public static final byte DELTA = 2;
+    public static final byte FULL = 3;
+    public static final byte PROGRESS = 4;
+
+    /* Modes */
+    public static final byte RACE = 0; // every player has their own copy of the board
+    public static final byte COOP = 1; // every player works on one shared board
+
+    /* Sizes */
+    public static final int HEADER_SIZE = 4; // the length prefix
+    public static final int MAX_FRAME = 1 << 24; // anything larger is a broken or hostile client
+    public static final int DELTA_CELL_SIZE = 5; // int cell, byte value
+    public static final int MAX_SIDE = 1024; // rows or columns a JOIN may ask for
+    public static final int MAX_CELLS = 512 * 512; // cells a JOIN may ask for, so a FULL frame stays at 256 KB
+
+    private Protocol() { }
+
+    /* Cell Values */
+    // What a player may see of a cell: nothing while covered, a flag, or the revealed number or bomb
+    public static byte visibleValue(BoardStorage board, int index) {
+        if (board.isFlagged(index)) {
+            return FlatBoardStorage.FLAGGED;
+        }
+        else if (!board.isRevealed(index)) {
+            return 0;
+        }
+        else if (board.isMine(index)) {
+            return (byte) (FlatBoardStorage.REVEALED | FlatBoardStorage.MINE);
+        }
+        else {
+            return (byte) (FlatBoardStorage.REVEALED | board.getNumber(index));
+        }
+    }
+
+    /* Client Frames */
+    public static ByteBuffer join(int session, byte mode, int rows, int cols, int bombs) {
+        ByteBuffer frame = start(JOIN, 13);
+        frame.putInt(session).put(mode).putShort((short) rows).putShort((short) cols).putInt(bombs);
+        return frame.flip();
+    }
+
+    public static ByteBuffer action(byte type, int seq, int cell) {
+        ByteBuffer frame = start(type, 8);
+        frame.putInt(seq).putInt(cell);
+        return frame.flip();
+    }
+
+    public static ByteBuffer reset(int seq) {
+        ByteBuffer frame = start(RESET, 4);
+        frame.putInt(seq);
+        return frame.flip();
+    }
+
+    /* Server Frames */
+    public static ByteBuffer welcome(int player, byte mode, int rows, int cols, int bombs) {
+        ByteBuffer frame = start(WELCOME, 13);
+        frame.putInt(player).put(mode).putShort((short) rows).putShort((short) cols).putInt(bombs);
+        return frame.flip();
+    }
+
+    // Only the cells listed in dirty, five bytes each
+    public static ByteBuffer delta(int seq, int player, int status, BoardStorage board, int[] dirty, int numDirty) {
+        ByteBuffer frame = start(DELTA, 13 + numDirty * DELTA_CELL_SIZE);
+        frame.putInt(seq).putInt(player).put((byte) status).putInt(numDirty);
+        for (int i = 0; i < numDirty; i++) {
+            frame.putInt(dirty[i]).put(visibleValue(board, dirty[i]));
+        }
+        return frame.flip();
+    }
+
+    // The whole board, for a new player or after a change too big to list, such as a loss uncovering every cell
+    public static ByteBuffer full(int seq, int player, int status, BoardStorage board) {
+        int numCells = board.getNumCells();
+        ByteBuffer frame = start(FULL, 9 + numCells);
+        frame.putInt(seq).putInt(player).put((byte) status);
+        for (int i = 0; i < numCells; i++) {
+            frame.put(visibleValue(board, i));
+        }
+        return frame.flip();
+    }
+
+    public static ByteBuffer progress(int player, int revealed, int status) {
+        ByteBuffer frame = start(PROGRESS, 9);
+        frame.putInt(player).putInt(revealed).put((byte) status);
+        return frame.flip();
+    }
+
+    private static ByteBuffer start(byte type, int payload) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + 1 + payload);
+        frame.putInt(1 + payload).put(type);
+        return frame;
+    }
+}
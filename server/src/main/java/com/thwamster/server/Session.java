@@ -0,0 +1,182 @@
+package com.thwamster.server;
+
+import com.thwamster.engine.MinesweeperEngine;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * One game, shared by everyone who joined it. The session is an actor: every change arrives as a message in its
+ * mailbox and the messages run one at a time on the shared worker pool, so the boards only ever have a single
+ * writer and need no locks.
+ *
+ * In RACE mode each player gets a board of their own seeded alike, and rivals only hear about progress.
+ * In COOP mode everyone plays one board and every change goes to every player.
+ */
+public class Session {
+    /* Mailbox */
+    private static final int BATCH_SIZE = 64; // messages handled before giving the worker thread up to other sessions
+
+    /* Instance Variables */
+    private final GameServer server;
+    private final int id;
+    private final byte mode;
+    private final int numRows;
+    private final int numCols;
+    private final int numBombs;
+    private final long seed; // every race board is laid out from this, so rivals face the same bombs
+    private final Executor executor;
+    private final ConcurrentLinkedQueue<Runnable> mailbox = new ConcurrentLinkedQueue<Runnable>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(); // a drain is queued or running
+    int numMembers; // players counted in by JOIN and not yet out, only touched by GameServer under the map's lock
+
+    // Owned by the actor, never touched outside a message
+    private final ArrayList<Connection> players = new ArrayList<Connection>();
+    private final HashMap<Connection, MinesweeperEngine> boards = new HashMap<Connection, MinesweeperEngine>();
+    private MinesweeperEngine shared; // the COOP board
+
+    /* Constructor */
+    public Session(GameServer newServer, int newId, byte newMode, int newNumRows, int newNumCols, int newNumBombs, Executor newExecutor) {
+        this.server = newServer;
+        this.id = newId;
+        this.mode = newMode;
+        this.numRows = newNumRows;
+        this.numCols = newNumCols;
+        this.numBombs = newNumBombs;
+        this.seed = new Random().nextLong();
+        this.executor = newExecutor;
+        if (newMode == Protocol.COOP) {
+            this.shared = this.newBoard();
+        }
+    }
+
+    /* Helper Methods */
+    public int getId() { return this.id; }
+
+    private MinesweeperEngine newBoard() {
+        return new MinesweeperEngine(this.numRows, this.numCols, this.numBombs, new Random(this.seed));
+    }
+
+    private MinesweeperEngine boardOf(Connection player) {
+        return this.mode == Protocol.COOP ? this.shared : this.boards.get(player);
+    }
+
+    /* Mailbox Methods */
+    // Safe from any thread
+    public void tell(Runnable message) {
+        this.mailbox.add(message);
+        if (this.scheduled.compareAndSet(false, true)) {
+            this.executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable message;
+            int handled = 0;
+            while (handled < BATCH_SIZE && (message = this.mailbox.poll()) != null) {
+                try {
+                    message.run();
+                }
+                catch (RuntimeException e) {
+                    // one bad message must not stall the session for everyone else
+                    System.err.println("Session " + this.id + " message failed: " + e);
+                }
+                handled++;
+            }
+        }
+        finally {
+            // even an Error leaves the session able to take its next message
+            this.scheduled.set(false);
+        }
+        // a message may have arrived after the last poll but before the flag dropped
+        if (!this.mailbox.isEmpty() && this.scheduled.compareAndSet(false, true)) {
+            this.executor.execute(this::drain);
+        }
+    }
+
+    /* Messages */
+    public void join(Connection player) {
+        this.players.add(player);
+        if (this.mode == Protocol.RACE) {
+            this.boards.put(player, this.newBoard());
+        }
+        MinesweeperEngine board = this.boardOf(player);
+        player.send(Protocol.welcome(player.getPlayer(), this.mode, this.numRows, this.numCols, this.numBombs));
+        player.send(Protocol.full(0, player.getPlayer(), board.getGameStatus(), board.getBoard()));
+        board.clearDirty();
+    }
+
+    public void leave(Connection player) {
+        if (!this.players.remove(player)) {
+            return; // already left
+        }
+        this.boards.remove(player);
+        this.server.leaveSession(this);
+    }
+
+    public void act(Connection player, byte type, int seq, int cell) {
+        MinesweeperEngine board = this.boardOf(player);
+        if (board == null) {
+            return; // left before the message ran
+        }
+
+        boolean validCell = cell >= 0 && cell < board.getNumCells();
+        switch (type) {
+            case Protocol.REVEAL:
+                if (validCell) { board.reveal(cell); }
+                break;
+            case Protocol.FLAG:
+                if (validCell) { board.flag(cell); }
+                break;
+            case Protocol.CHORD:
+                if (validCell) { board.chord(cell); }
+                break;
+            case Protocol.RESET:
+                board.reset();
+                break;
+            default:
+                break;
+        }
+
+        // an action that changed nothing still gets an empty delta, so the client knows it was handled
+        ByteBuffer update;
+        if (board.isAllDirty()) {
+            update = Protocol.full(seq, player.getPlayer(), board.getGameStatus(), board.getBoard());
+        }
+        else {
+            update = Protocol.delta(seq, player.getPlayer(), board.getGameStatus(), board.getBoard(), board.getDirty(), board.getNumDirty());
+        }
+        boolean changed = board.isAllDirty() || board.getNumDirty() > 0;
+        board.clearDirty();
+
+        // the other players' copies are made first, the acting player's frame belongs to the selector once sent
+        if (changed) {
+            for (int i = 0; i < this.players.size(); i++) {
+                Connection other = this.players.get(i);
+                if (other == player) {
+                    continue;
+                }
+                if (this.mode == Protocol.COOP) {
+                    other.send(withoutSeq(update));
+                }
+                else {
+                    other.send(Protocol.progress(player.getPlayer(), board.getNumRevealed(), board.getGameStatus()));
+                }
+            }
+        }
+        player.send(update);
+    }
+
+    // The same update for a player who did not cause it. Frames start with the length and type, then seq.
+    private static ByteBuffer withoutSeq(ByteBuffer update) {
+        ByteBuffer copy = ByteBuffer.allocate(update.remaining()).put(update.duplicate()).flip();
+        copy.putInt(Protocol.HEADER_SIZE + 1, 0);
+        return copy;
+    }
+}
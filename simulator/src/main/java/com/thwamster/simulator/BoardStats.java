@@ -0,0 +1,28 @@
+package com.thwamster.simulator;
+
+import com.thwamster.engine.BoardMetrics;
+import com.thwamster.engine.BoardStorage;
+
+/*
+ * Measures a freshly laid board with a BoardMetrics, its 3BV and the size of each opening, and adds them to a
+ * SimulationResult.
+ *
+ * Buffers are kept between boards, so each worker thread holds one of these.
+ */
+public class BoardStats {
+    /* Instance Variables */
+    private final BoardMetrics metrics = new BoardMetrics();
+
+    /* Measuring Methods */
+    // Adds the board's openings to the result and returns its 3BV
+    public int record(BoardStorage board, SimulationResult result) {
+        this.metrics.measure(board);
+        for (int i = 0; i < this.metrics.getNumOpenings(); i++) {
+            result.getOpeningSizes().add(this.metrics.getOpeningSize(i));
+        }
+
+        result.getOpenings().add(this.metrics.getNumOpenings());
+        result.getThreeBV().add(this.metrics.getThreeBV());
+        return this.metrics.getThreeBV();
+    }
+}
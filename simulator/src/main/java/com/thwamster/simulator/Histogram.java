@@ -0,0 +1,58 @@
+package com.thwamster.simulator;
+
+import java.util.Arrays;
+
+/*
+ * Counts of non-negative whole values, one bucket per value. Each worker fills its own and they are added
+ * together at the end, so no locking is ever needed.
+ */
+public class Histogram {
+    /* Instance Variables */
+    private long[] counts = new long[64]; // counts[v] is how many times v was added, grown as needed
+    private long total; // values added
+    private long sum; // of every value added
+    private int max = -1;
+
+    /* Helper Methods */
+    public long getTotal() { return this.total; }
+    public long getSum() { return this.sum; }
+    public int getMax() { return this.max; }
+    public double getMean() { return this.total == 0 ? 0 : (double) this.sum / this.total; }
+    public long getCount(int value) { return value <= this.max ? this.counts[value] : 0; }
+
+    // Smallest value with at least fraction of the total at or below it
+    public int percentile(double fraction) {
+        long target = (long) Math.ceil(fraction * this.total);
+        long seen = 0;
+        for (int v = 0; v <= this.max; v++) {
+            seen += this.counts[v];
+            if (seen >= target && seen > 0) {
+                return v;
+            }
+        }
+        return Math.max(0, this.max);
+    }
+
+    /* Counting Methods */
+    public void add(int value) {
+        if (value >= this.counts.length) {
+            this.counts = Arrays.copyOf(this.counts, Math.max(value + 1, this.counts.length * 2));
+        }
+        this.counts[value]++;
+        this.total++;
+        this.sum += value;
+        this.max = Math.max(this.max, value);
+    }
+
+    public void merge(Histogram other) {
+        if (other.max >= this.counts.length) {
+            this.counts = Arrays.copyOf(this.counts, other.max + 1);
+        }
+        for (int v = 0; v <= other.max; v++) {
+            this.counts[v] += other.counts[v];
+        }
+        this.total += other.total;
+        this.sum += other.sum;
+        this.max = Math.max(this.max, other.max);
+    }
+}
@@ -0,0 +1,138 @@
+package com.thwamster.simulator;
+
+import com.thwamster.engine.ScoreSummary;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/*
+ * Fleet-wide leaderboard from the score summaries each machine keeps next to its scores. Summaries of the same
+ * board size are merged into one, then each size reports its win count, percentiles and fastest times, followed
+ * by the fastest times across every size. The merged summaries can be written out and merged again later.
+ */
+public class Leaderboard {
+    /* Settings */
+    private static final String USAGE = String.join("\n",
+        "Usage: leaderboard [options] PATH...",
+        "  PATH           a .summary file, or a folder searched for them",
+        "  --top N        fastest times to list for each board size and overall (default 10)",
+        "  --rank MS      also show how a time in milliseconds ranks on each board size",
+        "  --out DIR      write each board size's merged summary into DIR");
+
+    /* Main */
+    public static void main(String[] args) throws IOException {
+        List<Path> paths = new ArrayList<Path>();
+        int top = 10;
+        long rank = -1;
+        Path out = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--top": top = Integer.parseInt(args[++i]); break;
+                case "--rank": rank = Long.parseLong(args[++i]); break;
+                case "--out": out = Paths.get(args[++i]); break;
+                case "--help":
+                    System.out.println(USAGE);
+                    return;
+                default:
+                    if (args[i].startsWith("--")) {
+                        System.err.println(USAGE);
+                        System.exit(2);
+                    }
+                    collect(Paths.get(args[i]), paths);
+            }
+        }
+        if (paths.isEmpty()) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        Map<String, ScoreSummary> merged = new LinkedHashMap<String, ScoreSummary>();
+        Map<String, Integer> sources = new LinkedHashMap<String, Integer>();
+        long begin = System.nanoTime();
+        for (Path path : paths) {
+            ScoreSummary summary;
+            try {
+                summary = ScoreSummary.load(path);
+            }
+            catch (IOException e) {
+                System.out.println(path + ": unreadable, " + e.getMessage());
+                continue;
+            }
+            String config = config(summary);
+            ScoreSummary into = merged.get(config);
+            if (into == null) {
+                into = new ScoreSummary(summary.getNumRows(), summary.getNumCols(), summary.getNumBombs());
+                merged.put(config, into);
+                sources.put(config, 0);
+            }
+            into.merge(summary);
+            sources.put(config, sources.get(config) + 1);
+        }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+
+        List<String> overall = new ArrayList<String>(); // every listed time with its board size and date, sorted at the end
+        List<Long> overallTimes = new ArrayList<Long>();
+        for (Map.Entry<String, ScoreSummary> entry : merged.entrySet()) {
+            ScoreSummary summary = entry.getValue();
+            System.out.printf(Locale.ROOT, "%s: %d wins from %d files, p10 %s, p50 %s, p90 %s%n", entry.getKey(), summary.getCount(),
+                sources.get(entry.getKey()), seconds(summary.quantile(0.1)), seconds(summary.quantile(0.5)), seconds(summary.quantile(0.9)));
+            if (rank >= 0) {
+                int place = summary.placeOf(rank);
+                System.out.printf(Locale.ROOT, "  %s is faster than %.1f%% of wins%s%n", seconds(rank), summary.fractionSlower(rank) * 100,
+                    place > 0 ? ", place " + place : "");
+            }
+            for (int i = 0; i < Math.min(top, summary.getNumTop()); i++) {
+                System.out.printf(Locale.ROOT, "  %2d. %s %s%n", i + 1, seconds(summary.getTopTime(i)), date(summary.getTopDate(i)));
+                overall.add(String.format(Locale.ROOT, "%s %s %s", seconds(summary.getTopTime(i)), entry.getKey(), date(summary.getTopDate(i))));
+                overallTimes.add(summary.getTopTime(i));
+            }
+
+            if (out != null) {
+                Files.createDirectories(out);
+                summary.save(out.resolve("scores-" + entry.getKey() + ".summary"));
+            }
+        }
+
+        Integer[] order = new Integer[overall.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(overallTimes.get(a), overallTimes.get(b)));
+        System.out.println("Fastest overall:");
+        for (int i = 0; i < Math.min(top, order.length); i++) {
+            System.out.printf(Locale.ROOT, "  %2d. %s%n", i + 1, overall.get(order[i]));
+        }
+        System.out.printf(Locale.ROOT, "%d summaries merged into %d board sizes in %.3f s%n", paths.size(), merged.size(), elapsed);
+    }
+
+    private static String config(ScoreSummary summary) {
+        return summary.getNumRows() + "x" + summary.getNumCols() + "-" + summary.getNumBombs();
+    }
+
+    private static String seconds(long millis) { return String.format(Locale.ROOT, "%.3f s", millis / 1e3); }
+
+    private static String date(long millis) {
+        return millis == 0 ? "(date unknown)" : Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC).toLocalDate().toString();
+    }
+
+    private static void collect(Path path, List<Path> paths) throws IOException {
+        if (!Files.isDirectory(path)) {
+            paths.add(path);
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            files.filter(file -> file.getFileName().toString().endsWith(".summary")).sorted().forEach(paths::add);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.thwamster.simulator;
+
+import com.thwamster.engine.MinesweeperEngine;
+
+import java.util.Random;
+
+/*
+ * Reveals covered cells at random, a baseline for the other strategies.
+ */
+public class RandomStrategy implements Strategy {
+    /* Instance Variables */
+    private final MinesweeperEngine engine;
+    private final Random random;
+
+    /* Constructor */
+    public RandomStrategy(MinesweeperEngine newEngine, Random newRandom) {
+        this.engine = newEngine;
+        this.random = newRandom;
+    }
+
+    /* Strategy Methods */
+    @Override
+    public int nextMove() {
+        int numCells = this.engine.getNumCells();
+        for (int tries = 0; tries < 32; tries++) {
+            int cell = this.random.nextInt(numCells);
+            if (this.engine.isCovered(cell)) {
+                return cell;
+            }
+        }
+
+        // a nearly cleared board: walk on from a random cell instead, at most one pass
+        int start = this.random.nextInt(numCells);
+        for (int i = 0; i < numCells; i++) {
+            int cell = (start + i) % numCells;
+            if (this.engine.isCovered(cell)) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,80 @@
+package com.thwamster.simulator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * Writes simulation results out. The CSV has one summary row per configuration, the JSON carries the summary
+ * and every histogram in full.
+ */
+public final class ResultWriter {
+    private static final String CSV_HEADER = "config,strategy,threads,games,wins,win_rate,moves_per_game,"
+        + "mean_3bv,p50_3bv,p90_3bv,max_3bv,mean_win_3bv,mean_openings,mean_opening_size,p50_opening_size,p90_opening_size,"
+        + "seconds,games_per_second";
+
+    private ResultWriter() { }
+
+    /* Writing Methods */
+    public static void writeCsv(Path path, List<SimulationResult> results) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write(CSV_HEADER);
+            out.newLine();
+            for (SimulationResult result : results) {
+                Histogram threeBV = result.getThreeBV();
+                Histogram sizes = result.getOpeningSizes();
+                out.write(String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%.6f,%.3f,%.3f,%d,%d,%d,%.3f,%.3f,%.3f,%d,%d,%.3f,%.1f",
+                    result.getConfig(), result.getStrategy(), result.getNumThreads(), result.getNumGames(), result.getNumWins(),
+                    result.getWinRate(), result.getNumGames() == 0 ? 0 : (double) result.getNumMoves() / result.getNumGames(),
+                    threeBV.getMean(), threeBV.percentile(0.5), threeBV.percentile(0.9), threeBV.getMax(),
+                    result.getWinThreeBV().getMean(), result.getOpenings().getMean(),
+                    sizes.getMean(), sizes.percentile(0.5), sizes.percentile(0.9),
+                    result.getNanos() / 1e9, result.getGamesPerSecond()));
+                out.newLine();
+            }
+        }
+    }
+
+    public static void writeJson(Path path, List<SimulationResult> results) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write("[\n");
+            for (int i = 0; i < results.size(); i++) {
+                SimulationResult result = results.get(i);
+                out.write("  {\n");
+                out.write("    \"config\": \"" + result.getConfig() + "\",\n");
+                out.write("    \"strategy\": \"" + result.getStrategy() + "\",\n");
+                out.write("    \"threads\": " + result.getNumThreads() + ",\n");
+                out.write("    \"games\": " + result.getNumGames() + ",\n");
+                out.write("    \"wins\": " + result.getNumWins() + ",\n");
+                out.write("    \"winRate\": " + String.format(Locale.ROOT, "%.6f", result.getWinRate()) + ",\n");
+                out.write("    \"moves\": " + result.getNumMoves() + ",\n");
+                out.write("    \"seconds\": " + String.format(Locale.ROOT, "%.3f", result.getNanos() / 1e9) + ",\n");
+                out.write("    \"gamesPerSecond\": " + String.format(Locale.ROOT, "%.1f", result.getGamesPerSecond()) + ",\n");
+                out.write("    \"threeBV\": " + histogramJson(result.getThreeBV()) + ",\n");
+                out.write("    \"winThreeBV\": " + histogramJson(result.getWinThreeBV()) + ",\n");
+                out.write("    \"openings\": " + histogramJson(result.getOpenings()) + ",\n");
+                out.write("    \"openingSizes\": " + histogramJson(result.getOpeningSizes()) + "\n");
+                out.write(i + 1 < results.size() ? "  },\n" : "  }\n");
+            }
+            out.write("]\n");
+        }
+    }
+
+    // {"mean": ..., "p50": ..., "p90": ..., "p99": ..., "max": ..., "counts": [count of 0, count of 1, ...]}
+    private static String histogramJson(Histogram histogram) {
+        StringBuilder json = new StringBuilder();
+        json.append(String.format(Locale.ROOT, "{\"mean\": %.3f, \"p50\": %d, \"p90\": %d, \"p99\": %d, \"max\": %d, \"counts\": [",
+            histogram.getMean(), histogram.percentile(0.5), histogram.percentile(0.9), histogram.percentile(0.99), histogram.getMax()));
+        for (int v = 0; v <= histogram.getMax(); v++) {
+            if (v > 0) {
+                json.append(", ");
+            }
+            json.append(histogram.getCount(v));
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,68 @@
+package com.thwamster.simulator;
+
+/*
+ * Everything measured for one board configuration. Workers each fill their own and merge them once they finish.
+ */
+public class SimulationResult {
+    /* Instance Variables */
+    private final String config; // rows x cols x bombs
+    private final String strategy;
+    private long numGames;
+    private long numWins;
+    private long numMoves; // reveals made across every game
+    private long nanos; // wall time of the whole run, set once after merging
+    private int numThreads;
+    private final Histogram threeBV = new Histogram(); // per board
+    private final Histogram openings = new Histogram(); // openings per board
+    private final Histogram openingSizes = new Histogram(); // cells per opening
+    private final Histogram winThreeBV = new Histogram(); // per board that was won
+
+    /* Constructor */
+    public SimulationResult(String newConfig, String newStrategy) {
+        this.config = newConfig;
+        this.strategy = newStrategy;
+    }
+
+    /* Helper Methods */
+    // Get Methods
+    public String getConfig() { return this.config; }
+    public String getStrategy() { return this.strategy; }
+    public long getNumGames() { return this.numGames; }
+    public long getNumWins() { return this.numWins; }
+    public long getNumMoves() { return this.numMoves; }
+    public long getNanos() { return this.nanos; }
+    public int getNumThreads() { return this.numThreads; }
+    public Histogram getThreeBV() { return this.threeBV; }
+    public Histogram getOpenings() { return this.openings; }
+    public Histogram getOpeningSizes() { return this.openingSizes; }
+    public Histogram getWinThreeBV() { return this.winThreeBV; }
+
+    public double getWinRate() { return this.numGames == 0 ? 0 : (double) this.numWins / this.numGames; }
+    public double getGamesPerSecond() { return this.nanos == 0 ? 0 : this.numGames * 1e9 / this.nanos; }
+
+    // Set Methods
+    public void setTiming(long newNanos, int newNumThreads) {
+        this.nanos = newNanos;
+        this.numThreads = newNumThreads;
+    }
+
+    /* Counting Methods */
+    public void addGame(boolean won, int moves, int boardThreeBV) {
+        this.numGames++;
+        this.numMoves += moves;
+        if (won) {
+            this.numWins++;
+            this.winThreeBV.add(boardThreeBV);
+        }
+    }
+
+    public void merge(SimulationResult other) {
+        this.numGames += other.numGames;
+        this.numWins += other.numWins;
+        this.numMoves += other.numMoves;
+        this.threeBV.merge(other.threeBV);
+        this.openings.merge(other.openings);
+        this.openingSizes.merge(other.openingSizes);
+        this.winThreeBV.merge(other.winThreeBV);
+    }
+}
@@ -0,0 +1,245 @@
+package com.thwamster.simulator;
+
+import com.thwamster.engine.MinesweeperEngine;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Headless Monte Carlo runs of the game rules, for win rates, 3BV and opening sizes over millions of games.
+ *
+ * Every worker thread has its own engine, strategy and random stream split from one seed, and claims games in
+ * batches from a shared counter so fast threads are never left idle. Results stay per thread until the run
+ * ends and are then merged, so the hot loop shares nothing but that counter.
+ */
+public class Simulator {
+    /* Settings */
+    private static final int BATCH_SIZE = 256; // games a worker claims at a time
+    private static final String USAGE = String.join("\n",
+        "Usage: simulator [options]",
+        "  --games N        games per configuration (default 100000)",
+        "  --configs LIST   comma separated: beginner, intermediate, expert or RxCxB (default all three levels)",
+        "  --strategy NAME  solver or random (default solver)",
+        "  --threads N      worker threads (default every core)",
+        "  --seed N         seed for reproducible runs (default random)",
+        "  --scaling        repeat each configuration on 1, 2, 4, ... threads and report the speedup",
+        "  --csv PATH       write a summary row per run",
+        "  --json PATH      write the summary and full histograms",
+        "  --quiet          no progress lines");
+
+    /* Instance Variables */
+    private final int numRows;
+    private final int numCols;
+    private final int numBombs;
+    private final String strategy;
+
+    /* Constructor */
+    public Simulator(int newNumRows, int newNumCols, int newNumBombs, String newStrategy) {
+        this.numRows = newNumRows;
+        this.numCols = newNumCols;
+        this.numBombs = newNumBombs;
+        this.strategy = newStrategy;
+    }
+
+    /* Helper Methods */
+    public String getConfig() { return this.numRows + "x" + this.numCols + "x" + this.numBombs; }
+
+    public static Strategy createStrategy(String name, MinesweeperEngine engine, Random random) {
+        switch (name) {
+            case "solver":
+                return new SolverStrategy(engine);
+            case "random":
+                return new RandomStrategy(engine, random);
+            default:
+                throw new IllegalArgumentException("Unknown strategy: " + name);
+        }
+    }
+
+    // Names match the levels in GameBoard.setDifficulty
+    public static Simulator parseConfig(String config, String strategy) {
+        switch (config) {
+            case "beginner":
+                return new Simulator(8, 8, 10, strategy);
+            case "intermediate":
+                return new Simulator(16, 16, 40, strategy);
+            case "expert":
+                return new Simulator(16, 30, 99, strategy);
+            default:
+                String[] parts = config.split("x");
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("Expected beginner, intermediate, expert or RxCxB, got " + config);
+                }
+                return new Simulator(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), strategy);
+        }
+    }
+
+    /* Simulation Methods */
+    public SimulationResult run(long numGames, int numThreads, long seed, boolean progress) throws InterruptedException {
+        AtomicLong claimed = new AtomicLong(); // next unclaimed game
+        AtomicLong finished = new AtomicLong(); // for progress lines only
+        CountDownLatch done = new CountDownLatch(numThreads);
+        ExecutorService workers = Executors.newFixedThreadPool(numThreads);
+        SplittableRandom seeds = new SplittableRandom(seed);
+
+        long begin = System.nanoTime();
+        List<Future<SimulationResult>> futures = new ArrayList<Future<SimulationResult>>();
+        for (int t = 0; t < numThreads; t++) {
+            long workerSeed = seeds.split().nextLong();
+            futures.add(workers.submit(() -> {
+                try {
+                    return this.work(numGames, workerSeed, claimed, finished);
+                }
+                finally {
+                    done.countDown();
+                }
+            }));
+        }
+        workers.shutdown();
+
+        while (!done.await(1, TimeUnit.SECONDS)) {
+            if (progress) {
+                double seconds = (System.nanoTime() - begin) / 1e9;
+                System.out.printf(Locale.ROOT, "  %s: %d / %d games, %.0f games/s%n", this.getConfig(), finished.get(), numGames, finished.get() / seconds);
+            }
+        }
+
+        SimulationResult total = new SimulationResult(this.getConfig(), this.strategy);
+        for (Future<SimulationResult> future : futures) {
+            try {
+                total.merge(future.get());
+            }
+            catch (ExecutionException e) {
+                throw new IllegalStateException("Simulation worker failed", e.getCause());
+            }
+        }
+        total.setTiming(System.nanoTime() - begin, numThreads);
+        return total;
+    }
+
+    private SimulationResult work(long numGames, long seed, AtomicLong claimed, AtomicLong finished) {
+        Random random = new Random(seed);
+        MinesweeperEngine engine = new MinesweeperEngine(this.numRows, this.numCols, this.numBombs, random);
+        Strategy player = createStrategy(this.strategy, engine, random);
+        BoardStats stats = new BoardStats();
+        SimulationResult result = new SimulationResult(this.getConfig(), this.strategy);
+
+        while (true) {
+            long first = claimed.getAndAdd(BATCH_SIZE);
+            if (first >= numGames) {
+                return result;
+            }
+            long last = Math.min(numGames, first + BATCH_SIZE);
+            for (long game = first; game < last; game++) {
+                this.play(engine, player, stats, result);
+            }
+            finished.addAndGet(last - first);
+        }
+    }
+
+    private void play(MinesweeperEngine engine, Strategy player, BoardStats stats, SimulationResult result) {
+        engine.reset();
+        int moves = 0;
+        int threeBV = 0;
+        while (!engine.isOver()) {
+            int cell = player.nextMove();
+            if (cell < 0) {
+                break;
+            }
+            boolean first = engine.getGameStatus() == MinesweeperEngine.READY;
+            engine.reveal(cell);
+            moves++;
+            if (first) {
+                threeBV = stats.record(engine.getBoard(), result);
+            }
+        }
+        result.addGame(engine.getGameStatus() == MinesweeperEngine.WON, moves, threeBV);
+    }
+
+    /* Main */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long numGames = 100000;
+        String configs = "beginner,intermediate,expert";
+        String strategy = "solver";
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        long seed = new Random().nextLong();
+        boolean scaling = false;
+        boolean progress = true;
+        String csv = null;
+        String json = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games": numGames = Long.parseLong(args[++i]); break;
+                case "--configs": configs = args[++i]; break;
+                case "--strategy": strategy = args[++i]; break;
+                case "--threads": numThreads = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--scaling": scaling = true; break;
+                case "--csv": csv = args[++i]; break;
+                case "--json": json = args[++i]; break;
+                case "--quiet": progress = false; break;
+                case "--help":
+                    System.out.println(USAGE);
+                    return;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.err.println(USAGE);
+                    System.exit(2);
+            }
+        }
+        createStrategy(strategy, new MinesweeperEngine(1, 2, 1), new Random()); // fail on a bad name before any work
+
+        System.out.println("Seed " + seed + ", " + numThreads + " threads, strategy " + strategy);
+        List<SimulationResult> results = new ArrayList<SimulationResult>();
+        for (String config : configs.split(",")) {
+            Simulator simulator = parseConfig(config.trim(), strategy);
+
+            double baseline = 0;
+            for (int threads = scaling ? 1 : numThreads; threads <= numThreads; threads = nextThreadCount(threads, numThreads)) {
+                SimulationResult result = simulator.run(numGames, threads, seed, progress);
+                results.add(result);
+                if (threads == 1) {
+                    baseline = result.getGamesPerSecond();
+                }
+                report(result, baseline);
+            }
+        }
+
+        if (csv != null) {
+            ResultWriter.writeCsv(Paths.get(csv), results);
+        }
+        if (json != null) {
+            ResultWriter.writeJson(Paths.get(json), results);
+        }
+    }
+
+    // 1, 2, 4, ... and finally max itself
+    private static int nextThreadCount(int threads, int max) {
+        return threads == max ? max + 1 : Math.min(threads * 2, max);
+    }
+
+    private static void report(SimulationResult result, double baseline) {
+        Histogram threeBV = result.getThreeBV();
+        System.out.printf(Locale.ROOT, "%s %s, %d threads: %d games, win rate %.2f%%, 3BV mean %.1f (p50 %d, p90 %d), "
+                + "openings %.2f per board of %.1f cells, %.2f s, %.0f games/s",
+            result.getConfig(), result.getStrategy(), result.getNumThreads(), result.getNumGames(), result.getWinRate() * 100,
+            threeBV.getMean(), threeBV.percentile(0.5), threeBV.percentile(0.9),
+            result.getOpenings().getMean(), result.getOpeningSizes().getMean(), result.getNanos() / 1e9, result.getGamesPerSecond());
+        if (baseline > 0 && result.getNumThreads() > 1) {
+            System.out.printf(Locale.ROOT, ", %.2fx the single thread", result.getGamesPerSecond() / baseline);
+        }
+        System.out.println();
+    }
+}
@@ -0,0 +1,21 @@
+package com.thwamster.simulator;
+
+import com.thwamster.engine.MinesweeperEngine;
+import com.thwamster.engine.Solver;
+
+/*
+ * Plays like a careful player: a proven safe cell when there is one, otherwise the cell least likely to be a bomb.
+ */
+public class SolverStrategy implements Strategy {
+    /* Instance Variables */
+    private final Solver solver;
+
+    /* Constructor */
+    public SolverStrategy(MinesweeperEngine engine) {
+        this.solver = new Solver(engine);
+    }
+
+    /* Strategy Methods */
+    @Override
+    public int nextMove() { return this.solver.hint(); }
+}
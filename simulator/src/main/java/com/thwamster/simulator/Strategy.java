@@ -0,0 +1,9 @@
+package com.thwamster.simulator;
+
+/*
+ * Decides which cell to reveal next. Each worker thread builds its own, bound to that thread's engine.
+ */
+public interface Strategy {
+    // The next cell to reveal, or -1 to give up on the game
+    int nextMove();
+}
@@ -0,0 +1,108 @@
+package com.thwamster.simulator;
+
+import com.thwamster.engine.GameJournal;
+import com.thwamster.engine.ReplayVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/*
+ * Headless check of saved game journals: replays each one and reports whether it is a genuine win in the time
+ * it carries. Journals are loaded up front, so the reported rate is the replaying alone.
+ */
+public class VerifyReplays {
+    /* Settings */
+    private static final String USAGE = String.join("\n",
+        "Usage: verify [options] PATH...",
+        "  PATH           a .msjr journal, or a folder searched for them",
+        "  --repeat N     check the whole set N times, for a steadier rate (default 1)",
+        "  --quiet        only print the summary");
+
+    /* Main */
+    public static void main(String[] args) throws IOException {
+        List<Path> paths = new ArrayList<Path>();
+        int repeat = 1;
+        boolean quiet = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--repeat": repeat = Integer.parseInt(args[++i]); break;
+                case "--quiet": quiet = true; break;
+                case "--help":
+                    System.out.println(USAGE);
+                    return;
+                default:
+                    if (args[i].startsWith("--")) {
+                        System.err.println(USAGE);
+                        System.exit(2);
+                    }
+                    collect(Paths.get(args[i]), paths);
+            }
+        }
+        if (paths.isEmpty()) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        List<GameJournal> journals = new ArrayList<GameJournal>();
+        List<Path> sources = new ArrayList<Path>();
+        int unreadable = 0;
+        for (Path path : paths) {
+            try {
+                journals.add(GameJournal.load(path));
+                sources.add(path);
+            }
+            catch (IOException e) {
+                unreadable++;
+                if (!quiet) {
+                    System.out.println(path + ": unreadable, " + e.getMessage());
+                }
+            }
+        }
+
+        ReplayVerifier verifier = new ReplayVerifier();
+        int[] verdicts = new int[journals.size()];
+        long begin = System.nanoTime();
+        for (int r = 0; r < repeat; r++) {
+            for (int j = 0; j < journals.size(); j++) {
+                GameJournal journal = journals.get(j);
+                verdicts[j] = verifier.verify(journal, journal.getLastTime());
+            }
+        }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+
+        int valid = 0;
+        for (int j = 0; j < journals.size(); j++) {
+            GameJournal journal = journals.get(j);
+            if (verdicts[j] == ReplayVerifier.VALID) {
+                valid++;
+            }
+            if (!quiet) {
+                System.out.printf(Locale.ROOT, "%s: %s, %dx%d with %d bombs, %d actions, %.3f s%n", sources.get(j), ReplayVerifier.describe(verdicts[j]),
+                    journal.getNumRows(), journal.getNumCols(), journal.getNumBombs(), journal.getNumActions(), journal.getLastTime() / 1e3);
+            }
+        }
+
+        long checked = (long) journals.size() * repeat;
+        System.out.printf(Locale.ROOT, "%d valid, %d invalid, %d unreadable%n", valid, journals.size() - valid, unreadable);
+        System.out.printf(Locale.ROOT, "%d replays in %.3f s, %.0f journals/s%n", checked, elapsed, elapsed > 0 ? checked / elapsed : 0);
+        if (valid < paths.size()) {
+            System.exit(1);
+        }
+    }
+
+    private static void collect(Path path, List<Path> paths) throws IOException {
+        if (!Files.isDirectory(path)) {
+            paths.add(path);
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            files.filter(file -> file.getFileName().toString().endsWith(".msjr")).sorted().forEach(paths::add);
+        }
+    }
+}